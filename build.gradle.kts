@@ -20,8 +20,74 @@ dependencies {
     // Include other required dependencies but don't manage versions directly
     implementation(fileTree("lib") { include("*.jar") })
     
-    // Removed external visualization libraries since we're using pure Swing now
-    // and loading vis.js from CDN in the HTML
+    // Removed external visualization libraries since we're using pure Swing now.
+    // vis-network for the interactive graph is bundled by vendorWebAssets below
+}
+
+// The interactive graph is served by the extension itself and must work offline,
+// so vis-network is bundled into the jar from the pinned copy committed in lib/.
+// The build never downloads it. Its SHA-256 is committed next to it and checked
+// on every build, so a modified copy fails the build instead of being shipped.
+// Without the copy the jar is built without vis-network and the build warns.
+val visNetworkVersion = "9.1.9"
+val visNetworkFile = file("lib/vis-network.min.js")
+val visNetworkChecksum = file("lib/vis-network.min.js.sha256")
+
+fun sha256(file: File): String =
+    java.security.MessageDigest.getInstance("SHA-256").digest(file.readBytes())
+        .joinToString("") { "%02x".format(it) }
+
+val vendorWebAssets by tasks.registering {
+    val target = layout.buildDirectory.file("generated/web/web/vendor/vis-network.min.js")
+    inputs.file(visNetworkFile).optional()
+    inputs.file(visNetworkChecksum).optional()
+    outputs.dir(layout.buildDirectory.dir("generated/web"))
+    doLast {
+        val out = target.get().asFile
+        if (!visNetworkFile.exists() || !visNetworkChecksum.exists()) {
+            // The build still works, the page then says that vis-network is not bundled
+            out.delete()
+            logger.warn("lib/vis-network.min.js or its .sha256 is missing, the interactive graph is built " +
+                "without vis-network. Run ./gradlew updateVisNetwork once and commit both files.")
+            return@doLast
+        }
+        val expected = visNetworkChecksum.readText().trim().substringBefore(' ')
+        val actual = sha256(visNetworkFile)
+        if (!actual.equals(expected, ignoreCase = true)) {
+            throw GradleException("lib/vis-network.min.js has SHA-256 $actual, expected $expected")
+        }
+        out.parentFile.mkdirs()
+        visNetworkFile.copyTo(out, overwrite = true)
+    }
+}
+
+// Run by hand to vendor the pinned vis-network into lib/. An existing checksum must
+// match the download, otherwise the checksum of the new copy is written for review.
+val updateVisNetwork by tasks.registering {
+    doLast {
+        val connection = uri("https://unpkg.com/vis-network@$visNetworkVersion/standalone/umd/vis-network.min.js")
+            .toURL().openConnection()
+        connection.connectTimeout = 10_000
+        connection.readTimeout = 30_000
+        val download = File(temporaryDir, "vis-network.min.js")
+        connection.getInputStream().use { input -> download.outputStream().use { input.copyTo(it) } }
+
+        val actual = sha256(download)
+        if (visNetworkChecksum.exists()) {
+            val expected = visNetworkChecksum.readText().trim().substringBefore(' ')
+            if (!actual.equals(expected, ignoreCase = true)) {
+                throw GradleException("Downloaded vis-network has SHA-256 $actual, expected $expected")
+            }
+        } else {
+            visNetworkChecksum.writeText("$actual  vis-network.min.js\n")
+        }
+        download.copyTo(visNetworkFile, overwrite = true)
+        logger.lifecycle("vis-network $visNetworkVersion SHA-256 $actual, commit lib/vis-network.min.js and its .sha256")
+    }
+}
+
+sourceSets.main {
+    resources.srcDir(vendorWebAssets)
 }
 
 // JavaFX configuration kept for reference, will not actually be used
@@ -2,21 +2,22 @@ package com.darkcell.burpn2neo;
 
 import burp.api.montoya.MontoyaApi;
 import burp.api.montoya.http.handler.*;
-import burp.api.montoya.http.message.HttpRequestResponse;
-import burp.api.montoya.http.message.requests.HttpRequest;
-import burp.api.montoya.http.message.responses.HttpResponse;
 
 /**
  * Handles HTTP traffic for the Neo4j Graph Analyzer extension.
- * Processes requests and responses to extract data for Neo4j.
+ * Hands the requests of received responses to the {@link IngestionPipeline},
+ * which writes them to Neo4j in the background. Sampled requests are traced
+ * from here, so the scope check is part of their stage times.
  */
 public class BurpHttpHandler implements HttpHandler {
     private final MontoyaApi api;
     private final Neo4jManager neo4jManager;
+    private final IngestionPipeline pipeline;
 
-    public BurpHttpHandler(MontoyaApi api, Neo4jManager neo4jManager) {
+    public BurpHttpHandler(MontoyaApi api, Neo4jManager neo4jManager, IngestionPipeline pipeline) {
         this.api = api;
         this.neo4jManager = neo4jManager;
+        this.pipeline = pipeline;
     }
 
     @Override
@@ -28,19 +29,17 @@ public class BurpHttpHandler implements HttpHandler {
     @Override
     public ResponseReceivedAction handleHttpResponseReceived(HttpResponseReceived responseReceived) {
         try {
+            StageTracer.Trace trace = pipeline.getTracer().start();
             // Only process in-scope items if configured to do so
             if (neo4jManager.isProcessInScopeOnly() && !api.scope().isInScope(responseReceived.initiatingRequest().url())) {
                 return ResponseReceivedAction.continueWith(responseReceived);
             }
+            if (trace != null) {
+                trace.lap(StageTracer.Stage.SCOPE_CHECK);
+            }
 
-            // Create a request/response pair for processing
-            HttpRequestResponse requestResponse = HttpRequestResponse.httpRequestResponse(
-                    responseReceived.initiatingRequest(),
-                    responseReceived
-            );
-
-            // Process the request/response in the Neo4j manager
-            neo4jManager.processRequestResponse(requestResponse);
+            // Only queued here, Burp's HTTP thread never waits for Neo4j
+            pipeline.submit(responseReceived.initiatingRequest(), trace);
         } catch (Exception e) {
             api.logging().logToError("Error processing HTTP response: " + e.getMessage());
             e.printStackTrace();
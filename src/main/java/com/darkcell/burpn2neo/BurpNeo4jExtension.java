@@ -11,6 +11,12 @@ import javax.swing.*;
 public class BurpNeo4jExtension implements BurpExtension {
     private static MontoyaApi api;
     private static Neo4jManager neo4jManager;
+    private static UiTaskScheduler tasks;
+    private static ConnectionManager connections;
+    private static GraphServer graphServer;
+    private static IngestionPipeline pipeline;
+    private static JmxExporter jmxExporter;
+    private static LogBuffer log;
 
     @Override
     public void initialize(MontoyaApi api) {
@@ -21,6 +27,13 @@ public class BurpNeo4jExtension implements BurpExtension {
         
         // Initialize components
         neo4jManager = new Neo4jManager(api);
+        tasks = new UiTaskScheduler(api.logging());
+        connections = new ConnectionManager(api, neo4jManager);
+        graphServer = new GraphServer(api.logging(), neo4jManager);
+        log = new LogBuffer(LogBuffer.DEFAULT_CAPACITY);
+        pipeline = new IngestionPipeline(api.logging(), log, neo4jManager, neo4jManager.getMetrics());
+        // Lets headless instances be monitored with standard JMX tooling
+        jmxExporter = new JmxExporter(api.logging(), neo4jManager.getMetrics());
         
         // Initialize Neo4j Manager
         if (neo4jManager.initialize()) {
@@ -40,13 +53,29 @@ public class BurpNeo4jExtension implements BurpExtension {
         
         // Register event handlers
         registerHandlers();
+
+        // Reconnect in the background so loading the extension never waits for the server
+        connections.connectOnStartup();
+
+        // Release the driver and background workers when the extension is unloaded
+        api.extension().registerUnloadingHandler(() -> {
+            pipeline.close();
+            jmxExporter.close();
+            log.close();
+            tasks.close();
+            graphServer.close();
+            connections.close();
+            neo4jManager.close();
+            neo4jManager.shutdown();
+        });
         
         api.logging().logToOutput("Neo4j Graph Analyzer extension loaded");
     }
     
     private void registerUI() {
         // Create the GraphPanel
-        GraphPanel graphPanel = new GraphPanel(api, neo4jManager);
+        GraphPanel graphPanel = new GraphPanel(api, neo4jManager, tasks, connections, graphServer, neo4jManager.getMetrics(),
+            pipeline.getTracer(), log);
         
         // Register the panel with Burp's UI
         api.userInterface().registerSuiteTab("Neo4j Graph", graphPanel);
@@ -54,7 +83,7 @@ public class BurpNeo4jExtension implements BurpExtension {
     
     private void registerHandlers() {
         // Create and register an HttpHandler
-        HttpHandler httpHandler = new BurpHttpHandler(api, neo4jManager);
+        HttpHandler httpHandler = new BurpHttpHandler(api, neo4jManager, pipeline);
         api.http().registerHttpHandler(httpHandler);
         
         api.logging().logToOutput("Registered HTTP handlers");
@@ -0,0 +1,97 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Record;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Position in the feed of new hosts, endpoints and parameters.
+ * Entities are ordered by their firstSeen timestamp, which is taken when their
+ * transaction starts, not when it commits. The import and the capture writer
+ * commit concurrently, so an entity stamped before the bookmark can become
+ * visible after it. Each read therefore goes back {@link #OVERLAP} before the
+ * bookmark, and skips the entities of that window that were already shown.
+ * @param since firstSeen of the newest entity already seen
+ * @param seen keys of the entities already seen that were first seen within the overlap before since
+ */
+public record ChangeBookmark(ZonedDateTime since, Set<String> seen) {
+    // Longer than any of the extension's write transactions takes to commit
+    public static final Duration OVERLAP = Duration.ofSeconds(10);
+
+    private static final String SEPARATOR = " ";
+    private static final String KEY_SEPARATOR = ",";
+
+    /**
+     * Bookmark before everything in the graph
+     */
+    public static ChangeBookmark initial() {
+        return new ChangeBookmark(ZonedDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC), Set.of());
+    }
+
+    /**
+     * Start of the window to read, the overlap before the bookmark
+     */
+    public ZonedDateTime from() {
+        return since.minus(OVERLAP);
+    }
+
+    /**
+     * Bookmark right after a page returned by {@link Neo4jManager#getChangesSince}
+     */
+    public ChangeBookmark advance(List<Record> records) {
+        ZonedDateTime newest = since;
+        for (Record record : records) {
+            ZonedDateTime firstSeen = record.get("firstSeen").asZonedDateTime();
+            if (firstSeen.isAfter(newest)) {
+                newest = firstSeen;
+            }
+        }
+
+        // Keys older than the new window can no longer be returned, so they are dropped
+        ZonedDateTime windowStart = newest.minus(OVERLAP);
+        Set<String> keys = new LinkedHashSet<>();
+        if (!since.isBefore(windowStart)) {
+            keys.addAll(seen);
+        }
+        for (Record record : records) {
+            if (!record.get("firstSeen").asZonedDateTime().isBefore(windowStart)) {
+                keys.add(record.get("key").asString(""));
+            }
+        }
+        return new ChangeBookmark(newest, Set.copyOf(keys));
+    }
+
+    /**
+     * Reads a bookmark written by {@link #encode()}, or the initial bookmark if it is missing or invalid
+     */
+    public static ChangeBookmark parse(String encoded) {
+        if (encoded == null || encoded.isBlank()) return initial();
+
+        int separator = encoded.indexOf(SEPARATOR);
+        try {
+            if (separator < 0) {
+                return new ChangeBookmark(ZonedDateTime.parse(encoded), Set.of());
+            }
+            String keys = encoded.substring(separator + 1);
+            return new ChangeBookmark(ZonedDateTime.parse(encoded.substring(0, separator)),
+                keys.isEmpty() ? Set.of() : Set.copyOf(Arrays.asList(keys.split(KEY_SEPARATOR))));
+        } catch (DateTimeParseException e) {
+            return initial();
+        }
+    }
+
+    /**
+     * Text form for storing the bookmark in the Burp preferences
+     */
+    public String encode() {
+        return since + SEPARATOR + String.join(KEY_SEPARATOR, seen);
+    }
+}
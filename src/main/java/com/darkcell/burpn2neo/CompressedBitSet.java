@@ -0,0 +1,254 @@
+package com.darkcell.burpn2neo;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ints, organized like a Roaring bitmap.
+ * Values are split into chunks of 65536 by their upper 16 bits. A chunk with few
+ * values stores them as a sorted char array, a dense chunk switches to a plain
+ * 8 KB bitmap. Sparse sets stay small and intersections of dense sets run on
+ * whole words.
+ * Not thread-safe, callers synchronize.
+ */
+class CompressedBitSet {
+    // Above this many values an array chunk takes more space than a bitmap chunk
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Container[] containers = new Container[0];
+    private int chunkCount = 0;
+    private int cardinality = 0;
+
+    /**
+     * Adds a value
+     * @return true if the value was not in the set yet
+     */
+    boolean add(int value) {
+        if (value < 0) throw new IllegalArgumentException("Negative value: " + value);
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+
+        int index = Arrays.binarySearch(keys, 0, chunkCount, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new ArrayContainer());
+        }
+
+        Container container = containers[index];
+        int before = container.cardinality();
+        Container updated = container.add(low);
+        containers[index] = updated;
+        if (updated.cardinality() > before) {
+            cardinality++;
+            return true;
+        }
+        return false;
+    }
+
+    boolean contains(int value) {
+        if (value < 0) return false;
+        int index = Arrays.binarySearch(keys, 0, chunkCount, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Independent copy, later adds to either set do not show in the other
+     */
+    CompressedBitSet copy() {
+        CompressedBitSet copy = new CompressedBitSet();
+        copy.keys = Arrays.copyOf(keys, chunkCount);
+        copy.containers = new Container[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.chunkCount = chunkCount;
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Size of the intersection with another set, without materializing it
+     */
+    int andCardinality(CompressedBitSet other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            char a = keys[i];
+            char b = other.keys[j];
+            if (a == b) {
+                count += containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private void insertChunk(int index, char key, Container container) {
+        if (chunkCount == keys.length) {
+            int capacity = Math.max(4, chunkCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(containers, index, containers, index + 1, chunkCount - index);
+        keys[index] = key;
+        containers[index] = container;
+        chunkCount++;
+    }
+
+    private interface Container {
+        /**
+         * Adds a value and returns the container to use from now on, which
+         * is a bitmap once an array container grows too large
+         */
+        Container add(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        int andCardinality(Container other);
+
+        Container copy();
+    }
+
+    private static final class ArrayContainer implements Container {
+        private char[] values = new char[4];
+        private int size = 0;
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) return this;
+            if (size >= ARRAY_MAX) {
+                BitmapContainer bitmap = new BitmapContainer(this);
+                return bitmap.add(value);
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        public Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(size, 4));
+            copy.size = size;
+            return copy;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public int andCardinality(Container other) {
+            if (other instanceof BitmapContainer bitmap) {
+                return bitmap.andCardinality(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < array.size) {
+                char a = values[i];
+                char b = array.values[j];
+                if (a == b) {
+                    count++;
+                    i++;
+                    j++;
+                } else if (a < b) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality = 0;
+
+        BitmapContainer(ArrayContainer array) {
+            for (int i = 0; i < array.size; i++) {
+                add(array.values[i]);
+            }
+        }
+
+        private BitmapContainer(BitmapContainer other) {
+            System.arraycopy(other.words, 0, words, 0, BITMAP_WORDS);
+            cardinality = other.cardinality;
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(this);
+        }
+
+        @Override
+        public Container add(char value) {
+            int word = value >>> 6;
+            long mask = 1L << value;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int andCardinality(Container other) {
+            if (other instanceof BitmapContainer bitmap) {
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    count += Long.bitCount(words[i] & bitmap.words[i]);
+                }
+                return count;
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            int count = 0;
+            for (int i = 0; i < array.size; i++) {
+                if (contains(array.values[i])) count++;
+            }
+            return count;
+        }
+    }
+}
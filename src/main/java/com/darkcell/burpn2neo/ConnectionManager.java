@@ -0,0 +1,185 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.persistence.Preferences;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connects {@link Neo4jManager} to the database on a background thread.
+ * Connecting verifies the server and migrates the schema, which can take as long
+ * as the connection timeout, so it must never run on the event dispatch thread.
+ * Attempts run one at a time in the order requested; listeners hear about state
+ * changes on the event dispatch thread. Settings of the last successful connection
+ * are saved in the Burp preferences so the extension can reconnect on startup.
+ */
+public class ConnectionManager implements AutoCloseable {
+    private static final String PREFERENCE_URI = "neoburp.connection.uri";
+    private static final String PREFERENCE_USERNAME = "neoburp.connection.username";
+    private static final String PREFERENCE_PASSWORD = "neoburp.connection.password";
+    private static final String PREFERENCE_AUTO_CONNECT = "neoburp.connection.autoConnect";
+
+    public enum State {
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED,
+        FAILED
+    }
+
+    /**
+     * Notified on the event dispatch thread whenever the connection state changes
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param message URI, failure reason or other detail to show, may be null
+         */
+        void onStateChanged(State state, String message);
+    }
+
+    /**
+     * Connection details as saved in the preferences
+     * @param password empty unless auto-connect is enabled
+     */
+    public record Settings(String uri, String username, String password, boolean autoConnect) {
+    }
+
+    private final MontoyaApi api;
+    private final Neo4jManager neo4jManager;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong latestAttempt = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "NeoBurp-connect");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile State state = State.DISCONNECTED;
+    private volatile String message;
+
+    public ConnectionManager(MontoyaApi api, Neo4jManager neo4jManager) {
+        this.api = api;
+        this.neo4jManager = neo4jManager;
+    }
+
+    /**
+     * Registers a listener and tells it the current state right away
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        State current = state;
+        String currentMessage = message;
+        SwingUtilities.invokeLater(() -> listener.onStateChanged(current, currentMessage));
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Connects in the background and saves the settings once connected.
+     * A request made while an earlier attempt is still running replaces the earlier one.
+     * @param autoConnect whether to connect with these settings on the next startup,
+     *                    which requires saving the password in the preferences
+     */
+    public void connect(String uri, String username, String password, boolean autoConnect) {
+        long attempt = latestAttempt.incrementAndGet();
+        setState(State.CONNECTING, uri);
+
+        executor.execute(() -> {
+            // A newer request is queued, don't bother connecting with outdated settings
+            if (attempt != latestAttempt.get()) return;
+
+            boolean connected = neo4jManager.connect(uri, username, password);
+            if (attempt != latestAttempt.get()) return;
+
+            if (connected) {
+                saveSettings(new Settings(uri, username, password, autoConnect));
+                setState(State.CONNECTED, uri + " (schema v" + neo4jManager.getSchemaVersion() + ")");
+            } else {
+                setState(State.FAILED, neo4jManager.getConnectionError());
+            }
+        });
+    }
+
+    /**
+     * Connects with the saved settings if auto-connect is enabled
+     * @return whether a connection attempt was started
+     */
+    public boolean connectOnStartup() {
+        Settings settings = loadSettings();
+        if (!settings.autoConnect()) return false;
+
+        api.logging().logToOutput("Connecting to " + settings.uri() + " with the saved settings");
+        connect(settings.uri(), settings.username(), settings.password(), true);
+        return true;
+    }
+
+    /**
+     * Closes the current connection in the background
+     */
+    public void disconnect() {
+        latestAttempt.incrementAndGet();
+        executor.execute(() -> {
+            neo4jManager.close();
+            setState(State.DISCONNECTED, null);
+        });
+    }
+
+    /**
+     * Saved connection details, with defaults for anything never saved
+     */
+    public Settings loadSettings() {
+        Preferences preferences = api.persistence().preferences();
+        String uri = preferences.getString(PREFERENCE_URI);
+        String username = preferences.getString(PREFERENCE_USERNAME);
+        String password = preferences.getString(PREFERENCE_PASSWORD);
+        Boolean autoConnect = preferences.getBoolean(PREFERENCE_AUTO_CONNECT);
+        return new Settings(
+            uri != null ? uri : "bolt://localhost:7687",
+            username != null ? username : "neo4j",
+            password != null ? password : "",
+            autoConnect != null && autoConnect);
+    }
+
+    private void saveSettings(Settings settings) {
+        Preferences preferences = api.persistence().preferences();
+        preferences.setString(PREFERENCE_URI, settings.uri());
+        preferences.setString(PREFERENCE_USERNAME, settings.username());
+        preferences.setBoolean(PREFERENCE_AUTO_CONNECT, settings.autoConnect());
+        // Only keep the password around when it is needed to reconnect on startup
+        if (settings.autoConnect()) {
+            preferences.setString(PREFERENCE_PASSWORD, settings.password());
+        } else {
+            preferences.deleteString(PREFERENCE_PASSWORD);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private void setState(State state, String message) {
+        this.state = state;
+        this.message = message;
+        SwingUtilities.invokeLater(() -> {
+            for (Listener listener : listeners) {
+                listener.onStateChanged(state, message);
+            }
+        });
+    }
+
+    /**
+     * Abandons pending attempts, e.g. when the extension is unloaded
+     */
+    @Override
+    public void close() {
+        latestAttempt.incrementAndGet();
+        executor.shutdownNow();
+        listeners.clear();
+    }
+}
@@ -0,0 +1,123 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes query results in the shapes the functions of web/visualization.html expect.
+ * Records are written as they are read from the result, so a large graph never
+ * has to be held in memory as a whole.
+ */
+public final class GraphJson {
+    private GraphJson() {
+    }
+
+    /**
+     * [{name, endpointCount}] for loadHosts, from ALL_HOSTS_WITH_STATS rows
+     */
+    public static void writeHosts(Iterator<Record> records, JsonWriter json) throws IOException {
+        json.beginArray();
+        while (records.hasNext()) {
+            Record record = records.next();
+            json.beginObject()
+                .name("name").value(record.get("host").asString(""))
+                .name("endpointCount").value(record.get("endpointCount").asLong(0))
+                .endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * [{path, method, parameterCount}] for loadEndpoints, from HOST_ENDPOINTS_WITH_STATS rows
+     */
+    public static void writeEndpoints(Iterator<Record> records, JsonWriter json) throws IOException {
+        json.beginArray();
+        while (records.hasNext()) {
+            Record record = records.next();
+            json.beginObject()
+                .name("path").value(record.get("path").asString(""))
+                .name("method").value(record.get("method").asString(""))
+                .name("parameterCount").value(record.get("parameterCount").asLong(0))
+                .endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * [{name, method, values}] for loadParameters, from GRAPH_ENDPOINT_PARAMETERS rows
+     */
+    public static void writeParameters(Iterator<Record> records, JsonWriter json) throws IOException {
+        json.beginArray();
+        while (records.hasNext()) {
+            Record record = records.next();
+            json.beginObject()
+                .name("name").value(record.get("name").asString(""))
+                .name("method").value(record.get("method").asString(""))
+                .name("values");
+            json.beginArray();
+            for (Value value : record.get("values").values()) {
+                json.value(value.isNull() ? null : value.asObject());
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * [{from, fromLabel, to, toLabel, type, weight}] for showRelationships, from GRAPH_SIMILAR_ENDPOINTS rows.
+     * The ends are the node ids loadEndpoints gives endpoints, the labels name endpoints not shown yet.
+     */
+    public static void writeSimilarEndpoints(Iterator<Record> records, JsonWriter json) throws IOException {
+        json.beginArray();
+        while (records.hasNext()) {
+            Record record = records.next();
+            json.beginObject()
+                .name("from").value(endpointId(record.get("host1").asString(""), record.get("path1").asString(""),
+                    record.get("method1").asString("")))
+                .name("fromLabel").value(record.get("host1").asString("") + record.get("path1").asString(""))
+                .name("to").value(endpointId(record.get("host2").asString(""), record.get("path2").asString(""),
+                    record.get("method2").asString("")))
+                .name("toLabel").value(record.get("host2").asString("") + record.get("path2").asString(""))
+                .name("type").value("SIMILAR_TO")
+                .name("weight").value(record.get("weight").asLong(0))
+                .endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * {nodes: [{id, label, kind, size, expand}]} for expandCluster, expand is null for leaves
+     */
+    public static void writeLevelOfDetail(List<LevelOfDetailService.Node> nodes, JsonWriter json) throws IOException {
+        json.beginObject().name("nodes").beginArray();
+        for (LevelOfDetailService.Node node : nodes) {
+            json.beginObject()
+                .name("id").value(node.id())
+                .name("label").value(node.label())
+                .name("kind").value(node.kind().name().toLowerCase())
+                .name("size").value(node.size())
+                .name("expand").value(node.expand())
+                .endObject();
+        }
+        json.endArray().endObject();
+    }
+
+    /**
+     * Node id of a host in the visualization
+     */
+    public static String hostId(String host) {
+        return "host_" + host;
+    }
+
+    /**
+     * Node id of an endpoint in the visualization
+     */
+    public static String endpointId(String host, String path, String method) {
+        return "endpoint_" + host + "_" + path + "_" + method;
+    }
+}
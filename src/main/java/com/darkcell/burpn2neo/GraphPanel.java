@@ -8,39 +8,64 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.List;
-import java.util.Vector;
 import java.net.URI;
 
 /**
  * Main UI panel for the Neo4j Graph Analyzer extension
  */
 public class GraphPanel extends JPanel {
+    private static final int HOST_PAGE_SIZE = 500;
+    private static final int SIMILAR_HOSTS_LIMIT = 100;
+    private static final String[] ENDPOINT_COLUMNS = {"Host 1", "Path 1", "Host 2", "Path 2", "Parameter"};
+    private static final String[] HOST_PAIR_COLUMNS = {"Host 1", "Host 2", "Shared Parameters", "Score"};
+    // Both analyses fill the same table, so they share a task key
+    private static final String ANALYSIS_TASK = "analysis";
+
     private final MontoyaApi api;
     private final Neo4jManager neo4jManager;
+    private final UiTaskScheduler tasks;
+    private final ConnectionManager connections;
+    private final GraphServer graphServer;
+    private final MetricsRegistry metrics;
 
     // Configuration panel components
     private JTextField uriField;
     private JTextField usernameField;
     private JPasswordField passwordField;
     private JButton connectButton;
+    private JButton disconnectButton;
+    private JCheckBox autoConnectCheckBox;
     private JLabel connectionStatusLabel;
 
     // Import panel components
     private JButton importButton;
     private JProgressBar progressBar;
-    private JTextArea logArea;
+    private ImportTelemetryPanel telemetryPanel;
+    private final LogBuffer logBuffer;
 
     // Analysis panel components
     private JComboBox<String> hostSelector;
     private JTable resultsTable;
-    private DefaultTableModel tableModel;
+    // Similar endpoints can run into millions of rows and are loaded page by page
+    private PagedTableModel similarEndpointsModel;
+    private DefaultTableModel hostPairsModel;
+    private JTextField filterField;
+    private JComboBox<HostParameterMatrix.Measure> measureSelector;
+    private JLabel analysisStatusLabel;
     
     // Graph visualization panel
     private JPanel visualizationPlaceholder;
 
-    public GraphPanel(MontoyaApi api, Neo4jManager neo4jManager) {
+    public GraphPanel(MontoyaApi api, Neo4jManager neo4jManager, UiTaskScheduler tasks,
+                      ConnectionManager connections, GraphServer graphServer, MetricsRegistry metrics,
+                      StageTracer tracer, LogBuffer logBuffer) {
         this.api = api;
         this.neo4jManager = neo4jManager;
+        this.tasks = tasks;
+        this.connections = connections;
+        this.graphServer = graphServer;
+        this.metrics = metrics;
+        this.logBuffer = logBuffer;
 
         setLayout(new BorderLayout());
 
@@ -50,6 +75,7 @@ public class GraphPanel extends JPanel {
         tabbedPane.addTab("Import", createImportPanel());
         tabbedPane.addTab("Analysis", createAnalysisPanel());
         tabbedPane.addTab("Visualization", createVisualizationPanel());
+        tabbedPane.addTab("Metrics", new MetricsPanel(metrics, tracer));
 
         add(tabbedPane, BorderLayout.CENTER);
     }
@@ -101,17 +127,28 @@ public class GraphPanel extends JPanel {
         passwordField = new JPasswordField(20);
         connectionPanel.add(passwordField, gbc);
 
-        // Connection button
-        gbc.gridx = 0;
+        // Auto-connect option
+        gbc.gridx = 1;
         gbc.gridy = 3;
-        gbc.gridwidth = 2;
         gbc.weightx = 0;
+        autoConnectCheckBox = new JCheckBox("Connect automatically on startup (saves the password in Burp's settings)");
+        connectionPanel.add(autoConnectCheckBox, gbc);
+
+        // Connection buttons
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.gridwidth = 2;
         gbc.anchor = GridBagConstraints.CENTER;
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 5, 0));
         connectButton = new JButton("Connect to Neo4j");
-        connectionPanel.add(connectButton, gbc);
+        buttonPanel.add(connectButton);
+        disconnectButton = new JButton("Disconnect");
+        disconnectButton.setEnabled(false);
+        buttonPanel.add(disconnectButton);
+        connectionPanel.add(buttonPanel, gbc);
 
         // Status label
-        gbc.gridy = 4;
+        gbc.gridy = 5;
         connectionStatusLabel = new JLabel("Status: Not connected");
         connectionPanel.add(connectionStatusLabel, gbc);
 
@@ -136,8 +173,17 @@ public class GraphPanel extends JPanel {
         
         panel.add(new JScrollPane(instructionsArea), BorderLayout.CENTER);
 
+        // Start from the settings of the last successful connection
+        ConnectionManager.Settings settings = connections.loadSettings();
+        uriField.setText(settings.uri());
+        usernameField.setText(settings.username());
+        passwordField.setText(settings.password());
+        autoConnectCheckBox.setSelected(settings.autoConnect());
+
         // Add action listeners
         connectButton.addActionListener(e -> connectToNeo4j());
+        disconnectButton.addActionListener(e -> connections.disconnect());
+        connections.addListener(this::onConnectionStateChanged);
 
         return panel;
     }
@@ -153,20 +199,25 @@ public class GraphPanel extends JPanel {
         JPanel controlPanel = new JPanel();
         importButton = new JButton("Import Proxy History");
         controlPanel.add(importButton);
+        JButton cancelImportButton = new JButton("Cancel");
+        cancelImportButton.addActionListener(e -> tasks.cancel("import"));
+        controlPanel.add(cancelImportButton);
         panel.add(controlPanel, BorderLayout.NORTH);
 
         // Progress panel
         JPanel progressPanel = new JPanel(new BorderLayout());
         progressBar = new JProgressBar(0, 100);
         progressBar.setStringPainted(true);
-        progressPanel.add(progressBar, BorderLayout.NORTH);
+        telemetryPanel = new ImportTelemetryPanel();
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(progressBar, BorderLayout.NORTH);
+        statusPanel.add(telemetryPanel, BorderLayout.CENTER);
+        progressPanel.add(statusPanel, BorderLayout.NORTH);
 
-        // Log area
-        logArea = new JTextArea();
-        logArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(logArea);
-        scrollPane.setPreferredSize(new Dimension(600, 300));
-        progressPanel.add(scrollPane, BorderLayout.CENTER);
+        // Import and capture messages, bounded however long Burp runs
+        LogPanel logPanel = new LogPanel(api.logging(), logBuffer);
+        logPanel.setPreferredSize(new Dimension(600, 300));
+        progressPanel.add(logPanel, BorderLayout.CENTER);
 
         panel.add(progressPanel, BorderLayout.CENTER);
 
@@ -197,23 +248,64 @@ public class GraphPanel extends JPanel {
         JButton analyzeButton = new JButton("Find Similar Endpoints");
         controlPanel.add(analyzeButton);
         
+        controlPanel.add(new JLabel("Measure:"));
+        measureSelector = new JComboBox<>(HostParameterMatrix.Measure.values());
+        controlPanel.add(measureSelector);
+        
+        JButton similarHostsButton = new JButton("Find Similar Hosts");
+        similarHostsButton.setToolTipText("Top host pairs by shared parameters, computed in memory");
+        controlPanel.add(similarHostsButton);
+
+        controlPanel.add(new JLabel("Filter:"));
+        filterField = new JTextField(20);
+        filterField.setToolTipText("Show similar endpoints containing this text, press Enter to apply");
+        controlPanel.add(filterField);
+        
         panel.add(controlPanel, BorderLayout.NORTH);
 
         // Results table
-        tableModel = new DefaultTableModel(
-            new Object[][] {},
-            new String[] {"Host 1", "Path 1", "Host 2", "Path 2", "Parameter"}
+        similarEndpointsModel = new PagedTableModel(
+            ENDPOINT_COLUMNS,
+            Neo4jManager.SIMILAR_ENDPOINT_COLUMNS.toArray(new String[0]),
+            neo4jManager::getSimilarEndpointsPage,
+            neo4jManager::countSimilarEndpoints,
+            tasks,
+            ANALYSIS_TASK
         );
-        resultsTable = new JTable(tableModel);
+        similarEndpointsModel.setRowCountListener(count -> {
+            if (resultsTable.getModel() != similarEndpointsModel) return;
+            analysisStatusLabel.setText("Found " + count + " similar endpoints"
+                + (similarEndpointsModel.getFilter().isEmpty() ? "" : " matching the filter"));
+        });
+        hostPairsModel = new DefaultTableModel(new Object[][] {}, HOST_PAIR_COLUMNS);
+        resultsTable = new JTable(similarEndpointsModel);
         resultsTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+
+        // Clicking a header sorts similar endpoints on the server
+        resultsTable.getTableHeader().addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                if (resultsTable.getModel() != similarEndpointsModel || !neo4jManager.isConnected()) return;
+                int column = resultsTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    similarEndpointsModel.sortBy(resultsTable.convertColumnIndexToModel(column));
+                }
+            }
+        });
         
         JScrollPane scrollPane = new JScrollPane(resultsTable);
         scrollPane.setPreferredSize(new Dimension(600, 400));
         panel.add(scrollPane, BorderLayout.CENTER);
+        
+        analysisStatusLabel = new JLabel(" ");
+        analysisStatusLabel.setBorder(new EmptyBorder(5, 0, 0, 0));
+        panel.add(analysisStatusLabel, BorderLayout.SOUTH);
 
         // Add action listeners
         refreshButton.addActionListener(e -> refreshHosts());
         analyzeButton.addActionListener(e -> findSimilarEndpoints());
+        similarHostsButton.addActionListener(e -> findSimilarHosts());
+        filterField.addActionListener(e -> findSimilarEndpoints());
         hostSelector.addActionListener(e -> hostSelected());
 
         return panel;
@@ -227,7 +319,7 @@ public class GraphPanel extends JPanel {
         panel.setBorder(new EmptyBorder(10, 10, 10, 10));
         
         // Initialize the visualization panel with proper sizing
-        GraphVisualizationPanel visualizationPanel = new GraphVisualizationPanel(api, neo4jManager);
+        GraphVisualizationPanel visualizationPanel = new GraphVisualizationPanel(api, neo4jManager, tasks, graphServer);
         
         // Set preferred size to ensure enough space for visualizations
         // but not so large that it breaks Burp's UI layout
@@ -313,19 +405,26 @@ public class GraphPanel extends JPanel {
         String username = usernameField.getText();
         String password = new String(passwordField.getPassword());
 
-        connectButton.setEnabled(false);
-        connectionStatusLabel.setText("Connecting...");
+        connections.connect(uri, username, password, autoConnectCheckBox.isSelected());
+    }
 
-        SwingUtilities.invokeLater(() -> {
-            boolean connected = neo4jManager.connect(uri, username, password);
-            if (connected) {
-                connectionStatusLabel.setText("Status: Connected to " + uri);
+    /**
+     * Shows connection progress, called on the event dispatch thread
+     */
+    private void onConnectionStateChanged(ConnectionManager.State state, String message) {
+        connectButton.setEnabled(state != ConnectionManager.State.CONNECTING);
+        disconnectButton.setEnabled(state == ConnectionManager.State.CONNECTED);
+
+        switch (state) {
+            case CONNECTING -> connectionStatusLabel.setText("Status: Connecting to " + message + "...");
+            case CONNECTED -> {
+                connectionStatusLabel.setText("Status: Connected to " + message);
                 refreshHosts();
-            } else {
-                connectionStatusLabel.setText("Status: Connection failed");
             }
-            connectButton.setEnabled(true);
-        });
+            case FAILED -> connectionStatusLabel.setText("Status: Connection failed"
+                + (message != null ? ": " + message : ""));
+            case DISCONNECTED -> connectionStatusLabel.setText("Status: Not connected");
+        }
     }
 
     /**
@@ -335,51 +434,55 @@ public class GraphPanel extends JPanel {
         if (!checkConnection()) return;
 
         importButton.setEnabled(false);
-        logArea.setText("");
         log("Fetching proxy history...");
 
-        new Thread(() -> {
-            try {
-                // Get the proxy history using the API
-                // This handles different versions of the Burp API by using reflection
-                List<?> history = api.proxy().history();
-                int total = history.size();
-
-                if (total == 0) {
-                    log("No proxy history found.");
-                    SwingUtilities.invokeLater(() -> importButton.setEnabled(true));
-                    return;
-                }
+        UiTaskScheduler.UiTask<Integer, Void> task = tasks.submit("import", "Import proxy history", progress -> {
+            // Get the proxy history using the API
+            // This handles different versions of the Burp API by using reflection
+            List<?> history = api.proxy().history();
+            int total = history.size();
 
-                log("Found " + total + " proxy history items. Starting import...");
-                SwingUtilities.invokeLater(() -> progressBar.setValue(0));
-
-                // Cast to List<Object> to use our generic importer
-                @SuppressWarnings("unchecked")
-                List<Object> historyObjects = (List<Object>)(List<?>)history;
-                
-                neo4jManager.importProxyHistory(historyObjects, (current, totalItems) -> {
-                    SwingUtilities.invokeLater(() -> {
-                        int percentage = (int) (((double) current / totalItems) * 100);
-                        progressBar.setValue(percentage);
-                        
-                        if (current % 10 == 0 || current == totalItems) {
-                            log("Processed " + current + "/" + totalItems + " items");
-                        }
-                    });
-                });
-
-                log("Import completed.");
-                SwingUtilities.invokeLater(() -> {
-                    importButton.setEnabled(true);
-                    refreshHosts();
-                });
-
-            } catch (Exception e) {
-                log("Error importing proxy history: " + e.getMessage());
-                SwingUtilities.invokeLater(() -> importButton.setEnabled(true));
+            if (total == 0) {
+                log("No proxy history found.");
+                return 0;
             }
-        }).start();
+
+            log("Found " + total + " proxy history items. Starting import...");
+
+            // Cast to List<Object> to use our generic importer
+            @SuppressWarnings("unchecked")
+            List<Object> historyObjects = (List<Object>)(List<?>)history;
+            
+            // The import only counts, the panel samples the counters at its own pace
+            ImportTelemetry telemetry = new ImportTelemetry(api.logging(), progress::isCancelled);
+            SwingUtilities.invokeLater(() -> telemetryPanel.start(telemetry, progress::reportProgress));
+            neo4jManager.importProxyHistory(historyObjects, telemetry);
+            return total;
+        }, null, total -> {
+            ImportTelemetry.Snapshot summary = telemetryPanel.stop();
+            if (total > 0) {
+                log("Import completed: " + (summary != null ? summary.processed() + " items in "
+                    + ImportTelemetryPanel.formatDuration(summary.elapsedMillis() / 1000) + ", "
+                    + summary.errorCount() + " errors" : total + " items"));
+                refreshHosts();
+            }
+            importButton.setEnabled(true);
+        }, e -> {
+            telemetryPanel.stop();
+            logBuffer.error("import", "Error importing proxy history: " + e.getMessage());
+            importButton.setEnabled(true);
+        });
+
+        progressBar.setValue(0);
+        task.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setValue((Integer) event.getNewValue());
+            } else if ("state".equals(event.getPropertyName()) && task.isCancelled()) {
+                telemetryPanel.stop();
+                log("Import cancelled.");
+                importButton.setEnabled(true);
+            }
+        });
     }
 
     /**
@@ -388,22 +491,28 @@ public class GraphPanel extends JPanel {
     private void refreshHosts() {
         if (!checkConnection()) return;
 
-        new Thread(() -> {
-            try {
-                List<Record> hosts = neo4jManager.getAllHosts();
-                
-                SwingUtilities.invokeLater(() -> {
-                    hostSelector.removeAllItems();
-                    hostSelector.addItem("-- All Hosts --");
-                    
-                    for (Record host : hosts) {
-                        hostSelector.addItem(host.get("host").asString());
-                    }
-                });
-            } catch (Exception e) {
-                api.logging().logToError("Error refreshing hosts: " + e.getMessage());
+        hostSelector.removeAllItems();
+        hostSelector.addItem("-- All Hosts --");
+
+        // Add hosts page by page so the first page shows up immediately
+        tasks.<Void, String>submit("refresh-hosts", "Refresh hosts", progress -> {
+            String lastHost = null;
+            ResultPage page;
+            do {
+                page = neo4jManager.getHostsPage(lastHost, HOST_PAGE_SIZE);
+                for (Record host : page.getRecords()) {
+                    progress.publish(host.get("host").asString());
+                }
+                if (!page.isEmpty()) {
+                    lastHost = page.lastRecord().get("host").asString();
+                }
+            } while (page.hasMore() && !progress.isCancelled());
+            return null;
+        }, hosts -> {
+            for (String host : hosts) {
+                hostSelector.addItem(host);
             }
-        }).start();
+        }, null, e -> api.logging().logToError("Error refreshing hosts: " + e.getMessage()));
     }
 
     /**
@@ -412,41 +521,56 @@ public class GraphPanel extends JPanel {
     private void findSimilarEndpoints() {
         if (!checkConnection()) return;
 
-        clearResultsTable();
+        analysisStatusLabel.setText("Counting similar endpoints...");
+        resultsTable.setModel(similarEndpointsModel);
+        similarEndpointsModel.setFilter(filterField.getText());
+        similarEndpointsModel.reload();
+    }
 
-        new Thread(() -> {
-            try {
-                List<Record> similarities = neo4jManager.findSimilarEndpoints();
-
-                SwingUtilities.invokeLater(() -> {
-                    for (Record record : similarities) {
-                        Vector<String> row = new Vector<>();
-                        row.add(record.get("host1").asString());
-                        row.add(record.get("path1").asString());
-                        row.add(record.get("host2").asString());
-                        row.add(record.get("path2").asString());
-                        row.add(record.get("parameter").asString());
-                        tableModel.addRow(row);
-                    }
-                });
-            } catch (Exception e) {
-                api.logging().logToError("Error finding similar endpoints: " + e.getMessage());
+    /**
+     * Finds the host pairs that share the most parameters
+     */
+    private void findSimilarHosts() {
+        if (!checkConnection()) return;
+
+        HostParameterMatrix.Measure measure = (HostParameterMatrix.Measure) measureSelector.getSelectedItem();
+        hostPairsModel.setRowCount(0);
+        resultsTable.setModel(hostPairsModel);
+        analysisStatusLabel.setText("Finding similar hosts...");
+
+        tasks.submit(ANALYSIS_TASK, "Find similar hosts", progress -> {
+            long start = System.nanoTime();
+            List<HostParameterMatrix.HostPair> pairs = neo4jManager.findSimilarHosts(measure, SIMILAR_HOSTS_LIMIT);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            HostParameterMatrix matrix = neo4jManager.getHostParameterMatrix();
+
+            Object[][] rows = new Object[pairs.size()][];
+            for (int i = 0; i < rows.length; i++) {
+                HostParameterMatrix.HostPair pair = pairs.get(i);
+                rows[i] = new Object[]{pair.host1(), pair.host2(), pair.sharedParameters(),
+                    String.format("%.3f", pair.score())};
             }
-        }).start();
+            return new SimilarHosts(rows, matrix.getHostCount(), matrix.isReady(), elapsedMs);
+        }, result -> {
+            // One table event for all rows instead of one per row
+            hostPairsModel.setDataVector(result.rows(), HOST_PAIR_COLUMNS);
+            analysisStatusLabel.setText("Found " + result.rows().length + " host pairs across "
+                + result.hostCount() + " hosts in " + result.elapsedMs() + " ms"
+                + (result.matrixReady() ? "" : " (still loading parameters from Neo4j)"));
+        });
     }
 
     /**
-     * Handles host selection
+     * Table rows of the most similar host pairs and how they were computed
      */
-    private void hostSelected() {
-        // Can be implemented later to show endpoints for selected host
+    private record SimilarHosts(Object[][] rows, int hostCount, boolean matrixReady, long elapsedMs) {
     }
 
     /**
-     * Clears the results table
+     * Handles host selection
      */
-    private void clearResultsTable() {
-        tableModel.setRowCount(0);
+    private void hostSelected() {
+        // Can be implemented later to show endpoints for selected host
     }
 
     /**
@@ -466,12 +590,9 @@ public class GraphPanel extends JPanel {
     }
 
     /**
-     * Adds a message to the log area
+     * Adds a message to the import log, from any thread
      */
     private void log(String message) {
-        SwingUtilities.invokeLater(() -> {
-            logArea.append(message + "\n");
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        });
+        logBuffer.info("import", message);
     }
 }
\ No newline at end of file
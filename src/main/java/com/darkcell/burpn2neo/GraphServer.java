@@ -0,0 +1,398 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the interactive graph page and its data on 127.0.0.1, so the graph can
+ * be explored in a browser without internet access.
+ * The page and vis-network are served from the extension jar. Graph data comes
+ * from paged JSON endpoints that stream from Neo4j, are gzipped when the browser
+ * accepts it and carry an ETag derived from {@link Neo4jManager#getDataVersion()},
+ * so unchanged data is answered with 304 without running a query. The overview
+ * is served level by level by {@link LevelOfDetailService}, whose domain levels
+ * carry the statistics version instead and stay cached while requests are captured.
+ * All URLs start with a random token, and requests with a foreign Host header are
+ * refused, so other local users and web pages cannot read the graph.
+ */
+public class GraphServer implements AutoCloseable {
+    private static final int THREADS = 4;
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_PAGE_SIZE = 2000;
+    private static final int DEFAULT_RELATIONSHIP_LIMIT = 500;
+    // Path of each bundled asset below the token, and its classpath resource
+    private static final Map<String, String> ASSETS = Map.of(
+        "", "web/visualization.html",
+        "index.html", "web/visualization.html",
+        "vendor/vis-network.min.js", "web/vendor/vis-network.min.js");
+
+    private final Logging logging;
+    private final Neo4jManager neo4jManager;
+    private final LevelOfDetailService levelOfDetail;
+    private final String token;
+    // Makes ETags of an earlier Burp session useless, the data version restarts at zero
+    private final String instance;
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private record Asset(byte[] bytes, byte[] gzipped, String contentType, String etag) {
+    }
+
+    /**
+     * Writes one JSON response body
+     */
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    public GraphServer(Logging logging, Neo4jManager neo4jManager) {
+        this.logging = logging;
+        this.neo4jManager = neo4jManager;
+        this.levelOfDetail = new LevelOfDetailService(neo4jManager);
+        SecureRandom random = new SecureRandom();
+        byte[] tokenBytes = new byte[16];
+        random.nextBytes(tokenBytes);
+        this.token = HexFormat.of().formatHex(tokenBytes);
+        this.instance = Long.toHexString(random.nextLong());
+    }
+
+    /**
+     * Starts the server on a free port if it is not running yet
+     * @return address of the graph page
+     */
+    public synchronized String start() throws IOException {
+        if (server == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(THREADS, r -> {
+                Thread thread = new Thread(r, "NeoBurp-http-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/", this::handle);
+            server.setExecutor(executor);
+            server.start();
+            logging.logToOutput("Graph server listening on 127.0.0.1:" + server.getAddress().getPort());
+        }
+        return getUrl();
+    }
+
+    /**
+     * Address of the graph page, or null if the server is not running
+     */
+    public synchronized String getUrl() {
+        if (server == null) return null;
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + token + "/";
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                sendError(exchange, 403, "Forbidden");
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String prefix = "/" + token;
+            if (path.equals(prefix)) {
+                // Relative URLs of the page only work below the trailing slash
+                exchange.getResponseHeaders().set("Location", prefix + "/");
+                exchange.sendResponseHeaders(302, -1);
+                return;
+            }
+            if (!path.startsWith(prefix + "/")) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+
+            String route = path.substring(prefix.length() + 1);
+            if (route.startsWith("api/")) {
+                handleApi(exchange, route.substring(4), parseQuery(exchange.getRequestURI().getRawQuery()));
+            } else {
+                handleAsset(exchange, route);
+            }
+        } catch (Exception e) {
+            // The response may already be streaming, all that is left is to log it
+            logging.logToError("Error serving " + exchange.getRequestURI().getPath() + ": " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleApi(HttpExchange exchange, String route, Map<String, String> query) throws IOException {
+        if (!neo4jManager.isConnected()) {
+            sendError(exchange, 503, "Not connected to Neo4j");
+            return;
+        }
+
+        int limit = intParameter(query, "limit", DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+        switch (route) {
+            case "hosts" -> sendJson(exchange, json -> {
+                json.beginObject().name("items");
+                Neo4jManager.StreamedRows rows = neo4jManager.writeHostsPageJson(
+                    query.getOrDefault("after", ""), limit, json);
+                json.name("next");
+                // A full page may have a successor, the client asks for it with after=next
+                if (rows.count() == limit) {
+                    json.value(rows.last().get("host").asString(""));
+                } else {
+                    json.nullValue();
+                }
+                json.endObject();
+            });
+            case "endpoints" -> {
+                String host = query.get("host");
+                if (host == null) {
+                    sendError(exchange, 400, "Missing host");
+                    return;
+                }
+                sendJson(exchange, json -> {
+                    json.beginObject().name("items");
+                    Neo4jManager.StreamedRows rows = neo4jManager.writeEndpointsPageJson(host,
+                        query.getOrDefault("afterPath", ""), query.getOrDefault("afterMethod", ""), limit, json);
+                    json.name("next");
+                    if (rows.count() == limit) {
+                        json.beginObject()
+                            .name("path").value(rows.last().get("path").asString(""))
+                            .name("method").value(rows.last().get("method").asString(""))
+                            .endObject();
+                    } else {
+                        json.nullValue();
+                    }
+                    json.endObject();
+                });
+            }
+            case "parameters" -> {
+                String host = query.get("host");
+                String path = query.get("path");
+                if (host == null || path == null) {
+                    sendError(exchange, 400, "Missing host or path");
+                    return;
+                }
+                sendJson(exchange, json -> neo4jManager.writeParametersJson(host, path, json));
+            }
+            case "similar-endpoints" -> {
+                int relationships = intParameter(query, "limit", DEFAULT_RELATIONSHIP_LIMIT, MAX_PAGE_SIZE);
+                sendJson(exchange, json -> neo4jManager.writeSimilarEndpointsJson(relationships, json));
+            }
+            case "lod" -> {
+                // Checked first, an unchanged overview is answered without expanding it
+                String etag = etag(levelOfDetail.getVersion(query));
+                if (notModified(exchange, etag)) return;
+                List<LevelOfDetailService.Node> nodes;
+                try {
+                    nodes = levelOfDetail.expand(query);
+                } catch (IllegalArgumentException e) {
+                    exchange.getResponseHeaders().remove("ETag");
+                    sendError(exchange, 400, e.getMessage());
+                    return;
+                }
+                sendJson(exchange, etag, json -> GraphJson.writeLevelOfDetail(nodes, json));
+            }
+            default -> sendError(exchange, 404, "Not found");
+        }
+    }
+
+    private void handleAsset(HttpExchange exchange, String route) throws IOException {
+        String resource = ASSETS.get(route);
+        Asset asset = resource != null ? loadAsset(resource) : null;
+        if (asset == null) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", asset.contentType());
+        headers.set("ETag", asset.etag());
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Vary", "Accept-Encoding");
+        if (asset.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        byte[] body = asset.bytes();
+        if (acceptsGzip(exchange)) {
+            headers.set("Content-Encoding", "gzip");
+            body = asset.gzipped();
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Streams a JSON body, answering 304 when the client already has the current data
+     */
+    private void sendJson(HttpExchange exchange, JsonBody body) throws IOException {
+        sendJson(exchange, etag(neo4jManager.getDataVersion()), body);
+    }
+
+    private void sendJson(HttpExchange exchange, String etag, JsonBody body) throws IOException {
+        if (notModified(exchange, etag)) return;
+        Headers headers = exchange.getResponseHeaders();
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+
+        boolean gzip = acceptsGzip(exchange);
+        if (gzip) {
+            headers.set("Content-Encoding", "gzip");
+        }
+        // Length 0 means chunked, the size is not known before the query finished
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        if (gzip) {
+            out = new GZIPOutputStream(out, 8192);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            JsonWriter json = new JsonWriter(writer);
+            body.write(json);
+            json.flush();
+        }
+    }
+
+    private String etag(String version) {
+        return "W/\"" + instance + "-" + version + "\"";
+    }
+
+    /**
+     * Sets the caching headers of a JSON response and answers 304 if the client has this version
+     * @return true if the response was sent
+     */
+    private boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        headers.set("ETag", etag);
+        // The browser keeps the response but asks every time whether it is still current
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Vary", "Accept-Encoding");
+        if (!etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) return false;
+        exchange.sendResponseHeaders(304, -1);
+        return true;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        // The message may quote request parameters, so it is escaped like any other JSON string
+        StringWriter text = new StringWriter();
+        new JsonWriter(text).beginObject().name("error").value(message).endObject().flush();
+        byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private Asset loadAsset(String resource) throws IOException {
+        Asset cached = assets.get(resource);
+        if (cached != null) return cached;
+
+        try (InputStream in = GraphServer.class.getClassLoader().getResourceAsStream(resource)) {
+            // vis-network is missing when the build had no vendored copy in lib/
+            if (in == null) return null;
+            byte[] bytes = in.readAllBytes();
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 3);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+
+            String contentType = resource.endsWith(".js") ? "text/javascript; charset=utf-8" : "text/html; charset=utf-8";
+            Asset asset = new Asset(bytes, compressed.toByteArray(), contentType, "\"" + sha256(bytes) + "\"");
+            assets.put(resource, asset);
+            return asset;
+        }
+    }
+
+    private boolean isLocalHost(String host) {
+        if (host == null) return false;
+        int port;
+        synchronized (this) {
+            if (server == null) return false;
+            port = server.getAddress().getPort();
+        }
+        // Rejects DNS rebinding, where a web page reaches the port under its own host name
+        return host.equals("127.0.0.1:" + port) || host.equals("localhost:" + port);
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return accepted != null && accepted.toLowerCase().contains("gzip");
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue, int max) {
+        try {
+            int value = Integer.parseInt(query.getOrDefault(name, String.valueOf(defaultValue)));
+            return Math.max(1, Math.min(value, max));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
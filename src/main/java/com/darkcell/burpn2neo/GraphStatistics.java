@@ -0,0 +1,370 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+import org.neo4j.driver.Session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.neo4j.driver.Values.parameters;
+
+/**
+ * Maintains per-host and global counters while data is ingested.
+ * Ingestion only bumps in-memory counters, a background thread adds them to the
+ * Host nodes, the PathPrefix nodes of the level of detail view and the
+ * (:GraphStats {id: 'global'}) node in one batch every few seconds. Overview screens read these properties instead of counting
+ * relationships on every call.
+ */
+public class GraphStatistics implements AutoCloseable {
+    private static final long FLUSH_INTERVAL_MS = 2000;
+
+    // Counts the endpoints and parameter links below every path prefix of a host,
+    // the host itself is the prefix ''
+    private static final String PREFIX_COUNTS =
+        "MATCH (e:Endpoint) WHERE e.host IS NOT NULL AND e.prefix IS NOT NULL " +
+        "WITH e.host AS host, CASE e.prefix WHEN '' THEN [] ELSE split(e.prefix, '/') END AS segments, " +
+        "     coalesce(e.parameterCount, 0) AS links " +
+        "UNWIND range(0, size(segments)) AS depth " +
+        "WITH host, segments[0..depth] AS parts, count(*) AS endpoints, sum(links) AS parameterLinks " +
+        "WITH host, parts, endpoints, parameterLinks, " +
+        "     reduce(key = '', s IN parts | key + CASE key WHEN '' THEN '' ELSE '/' END + s) AS prefix, " +
+        "     reduce(key = '', s IN parts[0..-1] | key + CASE key WHEN '' THEN '' ELSE '/' END + s) AS parent " +
+        "CALL { WITH host, parts, endpoints, parameterLinks, prefix, parent " +
+        "  MERGE (x:PathPrefix {host: host, prefix: prefix}) " +
+        "  SET x.parent = CASE size(parts) WHEN 0 THEN null ELSE parent END, x.segment = parts[-1], " +
+        "      x.endpointCount = endpoints, x.parameterCount = parameterLinks " +
+        "} IN TRANSACTIONS OF 1000 ROWS";
+
+    /**
+     * Recomputes all statistics from the graph, for databases written before the
+     * counters existed or changed behind the extension's back. The request count
+     * of a host cannot be recovered, so it is kept and never drops below the
+     * endpoint count. Statements use CALL IN TRANSACTIONS and need an auto-commit session.
+     */
+    static final List<String> RECOMPUTE_STATEMENTS = List.of(
+        "MATCH (e:Endpoint) " +
+        "CALL { WITH e " +
+        "  OPTIONAL MATCH (e)-[r:HAS_PARAMETER]->(:Parameter) " +
+        "  WITH e, count(r) AS links " +
+        "  SET e.parameterCount = links " +
+        "} IN TRANSACTIONS OF 1000 ROWS",
+        "MATCH (h:Host) " +
+        "CALL { WITH h " +
+        "  OPTIONAL MATCH (h)-[:HAS_ENDPOINT]->(e:Endpoint) " +
+        "  WITH h, count(e) AS endpoints, sum(coalesce(e.parameterCount, 0)) AS links, " +
+        "       collect(DISTINCT e.method) AS methods " +
+        "  SET h.endpointCount = endpoints, h.parameterCount = links, h.methods = methods, " +
+        "      h.requestCount = CASE WHEN coalesce(h.requestCount, 0) < endpoints " +
+        "                       THEN endpoints ELSE h.requestCount END " +
+        "} IN TRANSACTIONS OF 1000 ROWS",
+        "MATCH (e:Endpoint) WHERE e.prefix IS NULL " +
+        "CALL { WITH e " +
+        "  SET e.prefix = reduce(key = '', s IN [s IN split(e.path, '/') WHERE s <> ''] | " +
+        "      key + CASE key WHEN '' THEN '' ELSE '/' END + s) " +
+        "} IN TRANSACTIONS OF 1000 ROWS",
+        "MATCH (x:PathPrefix) CALL { WITH x DELETE x } IN TRANSACTIONS OF 1000 ROWS",
+        PREFIX_COUNTS,
+        "OPTIONAL MATCH (h:Host) " +
+        "WITH count(h) AS hosts, sum(coalesce(h.endpointCount, 0)) AS endpoints, " +
+        "     sum(coalesce(h.parameterCount, 0)) AS links, sum(coalesce(h.requestCount, 0)) AS requests, " +
+        "     collect(coalesce(h.methods, [])) AS methodLists " +
+        "CALL { OPTIONAL MATCH (p:Parameter) RETURN count(p) AS parameters } " +
+        "MERGE (s:GraphStats {id: 'global'}) " +
+        "SET s.hostCount = hosts, s.endpointCount = endpoints, s.parameterCount = parameters, " +
+        "    s.parameterLinkCount = links, s.requestCount = requests, " +
+        "    s.methods = reduce(merged = [], methods IN methodLists | merged + [m IN methods WHERE NOT m IN merged]), " +
+        "    s.updatedAt = datetime()"
+    );
+
+    private final Logging logging;
+    private final Runnable onWrite;
+    private final Map<String, HostCounters> pending = new ConcurrentHashMap<>();
+    // New endpoints and parameter links per path, added to all prefixes of the path on flush
+    private final Map<PathKey, PathCounters> pendingPaths = new ConcurrentHashMap<>();
+    private final LongAdder newHosts = new LongAdder();
+    private final LongAdder newParameters = new LongAdder();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile SessionFactory sessions;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param onWrite invoked after counters were written, e.g. to invalidate cached results
+     */
+    public GraphStatistics(Logging logging, Runnable onWrite) {
+        this.logging = logging;
+        this.onWrite = onWrite;
+    }
+
+    /**
+     * Starts flushing counters to the given database
+     */
+    public synchronized void start(SessionFactory sessions) {
+        stop();
+        this.sessions = sessions;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "NeoBurp-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the remaining counters and stops flushing
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            flush();
+        }
+        sessions = null;
+    }
+
+    /**
+     * Changes whenever the statistics in the graph changed, after a flush that wrote
+     * counters or a recompute. Unlike {@link QueryResultCache#getWriteEpoch()} it stays
+     * the same between flushes, so results derived from the statistics can be kept.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Records that the statistics were recomputed from the graph
+     */
+    void recomputed() {
+        generation.incrementAndGet();
+    }
+
+    public void hostCreated() {
+        newHosts.increment();
+    }
+
+    /**
+     * Records one request to an endpoint of the host
+     * @param endpointCreated whether the request created the endpoint
+     */
+    public void requestSeen(String host, String path, String method, boolean endpointCreated) {
+        if (endpointCreated) {
+            pendingPaths.compute(new PathKey(host, path), (key, counters) -> {
+                if (counters == null) counters = new PathCounters();
+                counters.endpoints.increment();
+                return counters;
+            });
+        }
+        // Updating inside compute keeps flush from taking the counters halfway through
+        pending.compute(host, (h, counters) -> {
+            if (counters == null) counters = new HostCounters();
+            counters.requests.increment();
+            if (endpointCreated) {
+                counters.endpoints.increment();
+                if (method != null) {
+                    counters.methods.add(method);
+                }
+            }
+            return counters;
+        });
+    }
+
+    /**
+     * Records parameters linked to endpoints of the host
+     * @param links number of new HAS_PARAMETER relationships
+     * @param parameterCreated whether a new Parameter node was created
+     */
+    public void parametersLinked(String host, String path, int links, boolean parameterCreated) {
+        if (links > 0) {
+            pending.compute(host, (h, counters) -> {
+                if (counters == null) counters = new HostCounters();
+                counters.parameters.add(links);
+                return counters;
+            });
+            pendingPaths.compute(new PathKey(host, path), (key, counters) -> {
+                if (counters == null) counters = new PathCounters();
+                counters.parameters.add(links);
+                return counters;
+            });
+        }
+        if (parameterCreated) {
+            newParameters.increment();
+        }
+    }
+
+    /**
+     * Adds the pending counters to the graph in one transaction
+     */
+    void flush() {
+        SessionFactory current = sessions;
+        if (current == null || (pending.isEmpty() && pendingPaths.isEmpty()
+                && newHosts.sum() == 0 && newParameters.sum() == 0)) return;
+
+        // Take a snapshot, counters bumped meanwhile stay for the next flush
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Map<String, HostCounters> taken = new HashMap<>();
+        for (String host : pending.keySet()) {
+            HostCounters counters = pending.remove(host);
+            if (counters == null) continue;
+            taken.put(host, counters);
+            rows.add(counters.toRow(host));
+        }
+        Map<PathKey, PathCounters> takenPaths = new HashMap<>();
+        for (PathKey key : pendingPaths.keySet()) {
+            PathCounters counters = pendingPaths.remove(key);
+            if (counters != null) {
+                takenPaths.put(key, counters);
+            }
+        }
+        List<Map<String, Object>> prefixRows = prefixRows(takenPaths);
+        long hosts = newHosts.sumThenReset();
+        long parameterNodes = newParameters.sumThenReset();
+
+        long endpoints = 0;
+        long links = 0;
+        long requests = 0;
+        List<String> methods = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            endpoints += (Long) row.get("endpoints");
+            links += (Long) row.get("parameters");
+            requests += (Long) row.get("requests");
+            for (Object method : (List<?>) row.get("methods")) {
+                if (!methods.contains(method)) methods.add((String) method);
+            }
+        }
+
+        Map<String, Object> global = new HashMap<>();
+        global.put("hosts", hosts);
+        global.put("endpoints", endpoints);
+        global.put("parameters", parameterNodes);
+        global.put("links", links);
+        global.put("requests", requests);
+        global.put("methods", methods);
+
+        try (Session session = current.write()) {
+            session.executeWrite(tx -> {
+                tx.run(QueryTemplate.FLUSH_HOST_STATISTICS.cypher(), parameters("rows", rows)).consume();
+                tx.run(QueryTemplate.FLUSH_GLOBAL_STATISTICS.cypher(), parameters("delta", global)).consume();
+                if (!prefixRows.isEmpty()) {
+                    tx.run(QueryTemplate.FLUSH_PREFIX_STATISTICS.cypher(), parameters("rows", prefixRows)).consume();
+                }
+                return null;
+            });
+            generation.incrementAndGet();
+            onWrite.run();
+        } catch (Exception e) {
+            logging.logToError("Error writing graph statistics: " + e.getMessage());
+            // Put the counters back so they are written by the next flush
+            taken.forEach((host, counters) -> pending.merge(host, counters, HostCounters::mergeFrom));
+            takenPaths.forEach((key, counters) -> pendingPaths.merge(key, counters, PathCounters::mergeFrom));
+            newHosts.add(hosts);
+            newParameters.add(parameterNodes);
+        }
+    }
+
+    /**
+     * One row per prefix of the paths, with the counts of all paths below it summed up
+     */
+    private static List<Map<String, Object>> prefixRows(Map<PathKey, PathCounters> paths) {
+        Map<PathKey, long[]> sums = new HashMap<>();
+        for (Map.Entry<PathKey, PathCounters> entry : paths.entrySet()) {
+            long endpoints = entry.getValue().endpoints.sum();
+            long parameters = entry.getValue().parameters.sum();
+            List<String> segments = segments(entry.getKey().path());
+            for (int depth = 0; depth <= segments.size(); depth++) {
+                long[] sum = sums.computeIfAbsent(
+                    new PathKey(entry.getKey().host(), String.join("/", segments.subList(0, depth))), key -> new long[2]);
+                sum[0] += endpoints;
+                sum[1] += parameters;
+            }
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(sums.size());
+        for (Map.Entry<PathKey, long[]> entry : sums.entrySet()) {
+            String prefix = entry.getKey().path();
+            int slash = prefix.lastIndexOf('/');
+            Map<String, Object> row = new HashMap<>();
+            row.put("host", entry.getKey().host());
+            row.put("prefix", prefix);
+            // The host itself has no parent, a first segment has the host as parent
+            row.put("parent", prefix.isEmpty() ? null : slash < 0 ? "" : prefix.substring(0, slash));
+            row.put("segment", prefix.isEmpty() ? null : prefix.substring(slash + 1));
+            row.put("endpoints", entry.getValue()[0]);
+            row.put("parameters", entry.getValue()[1]);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * The non-empty segments of a path, as they are grouped in the level of detail view
+     */
+    static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * The key of a path in Endpoint.prefix and PathPrefix.prefix
+     */
+    static String prefixOf(String path) {
+        return String.join("/", segments(path));
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private record PathKey(String host, String path) {
+    }
+
+    private static final class PathCounters {
+        private final LongAdder endpoints = new LongAdder();
+        private final LongAdder parameters = new LongAdder();
+
+        PathCounters mergeFrom(PathCounters other) {
+            endpoints.add(other.endpoints.sum());
+            parameters.add(other.parameters.sum());
+            return this;
+        }
+    }
+
+    private static final class HostCounters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder endpoints = new LongAdder();
+        private final LongAdder parameters = new LongAdder();
+        private final Set<String> methods = ConcurrentHashMap.newKeySet();
+
+        Map<String, Object> toRow(String host) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("host", host);
+            row.put("requests", requests.sum());
+            row.put("endpoints", endpoints.sum());
+            row.put("parameters", parameters.sum());
+            row.put("methods", new ArrayList<>(methods));
+            return row;
+        }
+
+        HostCounters mergeFrom(HostCounters other) {
+            requests.add(other.requests.sum());
+            endpoints.add(other.endpoints.sum());
+            parameters.add(other.parameters.sum());
+            methods.addAll(other.methods);
+            return this;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.util.Map;
 import java.util.HashSet;
 import java.util.Set;
 import java.io.StringWriter;
+import java.time.Duration;
 import java.io.PrintWriter;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
@@ -28,66 +29,54 @@ import java.awt.datatransfer.StringSelection;
  * Provides both textual analysis and a simplified visualization preview
  */
 public class GraphVisualizationPanel extends JPanel {
-    // Simple JSON implementations to avoid external dependencies
-    private static class JSONArray {
-        private final List<Object> items = new ArrayList<>();
-        
-        public void put(Object value) {
-            items.add(value);
-        }
-        
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder("[");
-            for (int i = 0; i < items.size(); i++) {
-                if (i > 0) sb.append(",");
-                Object item = items.get(i);
-                if (item instanceof String) {
-                    sb.append("\"").append(((String) item).replace("\"", "\\\"")).append("\"");
-                } else {
-                    sb.append(item);
-                }
-            }
-            sb.append("]");
-            return sb.toString();
-        }
-    }
-    
-    private static class JSONObject {
-        private final Map<String, Object> map = new HashMap<>();
-        
-        public void put(String key, Object value) {
-            map.put(key, value);
-        }
-        
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder("{");
-            boolean first = true;
-            for (Map.Entry<String, Object> entry : map.entrySet()) {
-                if (!first) sb.append(",");
-                first = false;
-                sb.append("\"").append(entry.getKey()).append("\":");
-                Object value = entry.getValue();
-                if (value instanceof String) {
-                    sb.append("\"").append(((String) value).replace("\"", "\\\"")).append("\"");
-                } else {
-                    sb.append(value);
-                }
-            }
-            sb.append("}");
-            return sb.toString();
-        }
-    }
-
     private final MontoyaApi api;
     private final Neo4jManager neo4jManager;
+    private final UiTaskScheduler tasks;
+    private final GraphServer graphServer;
     private JPanel mainPanel;
     private JEditorPane htmlPreview;
     private JTextArea queryArea;
+    private JTextField queryParametersField;
+    private JSpinner queryTimeoutSpinner;
+    private JSpinner queryRowLimitSpinner;
+    private JSplitPane resultsSplitPane;
+    // Overviews are rendered as HTML, custom query results in a table
+    private JPanel resultsCards;
+    private QueryResultsPanel queryResultsPanel;
+    private QueryPlanPanel queryPlanPanel;
+    private JTextField searchField;
+    private JComboBox<String> searchScopeCombo;
+    private Timer searchTimer;
+    // Incremented per search so a slow earlier search cannot overwrite newer results
+    private final java.util.concurrent.atomic.AtomicLong searchGeneration = new java.util.concurrent.atomic.AtomicLong();
     private JComboBox<String> exampleQueriesCombo;
     private JLabel statusLabel;
 
+    // Links with this prefix are handled inside the panel instead of opening a browser
+    private static final String ACTION_PREFIX = "neoburp:";
+    private static final int HOST_PAGE_SIZE = 200;
+    // Records pulled from the cursor per table append while a query streams
+    private static final int RESULT_PAGE_SIZE = 500;
+    private static final String NEO4J_BROWSER_URL = "http://localhost:7474/browser/";
+    private static final String HTML_CARD = "html";
+    private static final String RESULTS_CARD = "results";
+    private static final int SEARCH_LIMIT = 200;
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final int CHANGES_PAGE_SIZE = 200;
+    // Burp preference holding the "What's New" bookmark, one per database URI
+    private static final String CHANGE_BOOKMARK_PREFERENCE = "neoburp.changes.bookmark.";
+    // Everything that renders into the preview shares one task key, so the newest request wins
+    private static final String PREVIEW_TASK = "preview";
+    private static final String CANCEL_TASK = "cancel-query";
+
+    // Hosts loaded so far by "Show All Hosts", extended page by page
+    private volatile List<Record> loadedHosts = List.of();
+    private volatile boolean moreHosts = false;
+
+    // Cursor of the last custom query, kept open so more records can be pulled on demand
+    private QueryCursor activeCursor;
+    private volatile boolean cancelRequested = false;
+
     private static final String[] EXAMPLE_QUERIES = {
         "MATCH (h:Host) RETURN h.name AS host",
         "MATCH (h:Host)-[:HAS_ENDPOINT]->(e:Endpoint) RETURN h.name AS host, e.path AS path, e.method AS method LIMIT 100",
@@ -97,8 +86,8 @@ public class GraphVisualizationPanel extends JPanel {
         "MATCH (e1:Endpoint)-[:HAS_PARAMETER]->(p:Parameter)<-[:HAS_PARAMETER]-(e2:Endpoint) WHERE e1.host <> e2.host RETURN e1.host AS host1, e1.path AS path1, e2.host AS host2, e2.path AS path2, p.name AS parameter",
         "MATCH (e:Endpoint) WHERE e.path CONTAINS '/api/' RETURN e.host AS host, e.path AS path, e.method AS method",
         "MATCH (h:Host)-[:HAS_ENDPOINT]->(e:Endpoint) WHERE e.method = 'POST' RETURN h.name AS host, e.path AS path",
-        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p:Parameter) WHERE p.name CONTAINS 'token' OR p.name CONTAINS 'key' OR p.name CONTAINS 'auth' RETURN e.host AS host, e.path AS path, p.name AS parameter, p.values AS values",
-        "MATCH (e:Endpoint) WHERE e.path =~ '.*\\.(js|css|png|jpg|gif|ico)$' RETURN e.host AS host, e.path AS path, e.method AS method",
+        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p:AuthParam) RETURN e.host AS host, e.path AS path, p.name AS parameter, p.values AS values",
+        "CALL db.index.fulltext.queryNodes('endpoint_path_fulltext', '*.js OR *.css OR *.png OR *.jpg OR *.gif OR *.ico') YIELD node AS e WHERE any(ext IN ['.js', '.css', '.png', '.jpg', '.gif', '.ico'] WHERE toLower(e.path) ENDS WITH ext) RETURN e.host AS host, e.path AS path, e.method AS method",
         // New cross-host analysis queries
         "MATCH (e1:Endpoint)-[:HAS_PARAMETER]->(p1:Parameter), (e2:Endpoint)-[:HAS_PARAMETER]->(p2:Parameter) WHERE e1.host <> e2.host AND p1.name = p2.name AND p1.name CONTAINS 'session' RETURN e1.host AS host1, e1.path AS path1, p1.name AS param1, e2.host AS host2, e2.path AS path2, p2.name AS param2",
         "MATCH (e1:Endpoint)-[:HAS_PARAMETER]->(p1:Parameter), (e2:Endpoint)-[:HAS_PARAMETER]->(p2:Parameter) WHERE e1.host <> e2.host AND p1.name = p2.name AND p1.name CONTAINS 'jwt' RETURN e1.host AS host1, e1.path AS path1, p1.name AS param1, e2.host AS host2, e2.path AS path2, p2.name AS param2",
@@ -106,16 +95,16 @@ public class GraphVisualizationPanel extends JPanel {
         "MATCH (e1:Endpoint)-[:HAS_PARAMETER]->(p1:Parameter), (e2:Endpoint)-[:HAS_PARAMETER]->(p2:Parameter) WHERE e1.host <> e2.host AND p1.name = p2.name AND (p1.name CONTAINS 'id' OR p1.name CONTAINS 'user') RETURN e1.host AS host1, e1.path AS path1, p1.name AS param1, e2.host AS host2, e2.path AS path2, p2.name AS param2",
         "MATCH (h1:Host)-[:HAS_ENDPOINT]->(e1:Endpoint), (h2:Host)-[:HAS_ENDPOINT]->(e2:Endpoint) WHERE h1 <> h2 AND e1.path CONTAINS '/api/' AND e2.path CONTAINS '/api/' AND split(e1.path, '/')[2] = split(e2.path, '/')[2] RETURN h1.name AS host1, e1.path AS path1, h2.name AS host2, e2.path AS path2, split(e1.path, '/')[2] AS apiVersion",
         "MATCH (h1:Host)-[:HAS_ENDPOINT]->(e1:Endpoint), (h2:Host)-[:HAS_ENDPOINT]->(e2:Endpoint) WHERE h1 <> h2 AND e1.method = 'POST' AND e2.method = 'POST' AND e1.path = e2.path RETURN h1.name AS host1, e1.path AS path1, h2.name AS host2, e2.path AS path2, e1.method AS method",
-        "MATCH (e1:Endpoint)-[:HAS_PARAMETER]->(p1:Parameter), (e2:Endpoint)-[:HAS_PARAMETER]->(p2:Parameter) WHERE e1.host <> e2.host AND p1.name = p2.name AND p1.name =~ '(?i).*auth.*|.*token.*|.*api[-_]?key.*|.*secret.*|.*password.*' RETURN e1.host AS host1, e1.path AS path1, p1.name AS param1, e2.host AS host2, e2.path AS path2, p2.name AS param2",
-        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p:Parameter) WHERE p.name =~ '(?i).*file.*|.*path.*|.*dir.*|.*include.*|.*require.*' RETURN e.host AS host, e.path AS path, e.method AS method, p.name AS param",
-        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p:Parameter) WHERE p.name =~ '(?i).*redir.*|.*url.*|.*link.*|.*goto.*|.*next.*|.*target.*' RETURN e.host AS host, e.path AS path, e.method AS method, p.name AS param, p.values AS values",
-        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p:Parameter) WHERE p.name =~ '(?i).*q.*|.*query.*|.*search.*|.*find.*' RETURN e.host AS host, e.path AS path, e.method AS method, p.name AS param",
+        "MATCH (e1:Endpoint)-[:HAS_PARAMETER]->(p:AuthParam)<-[:HAS_PARAMETER]-(e2:Endpoint) WHERE e1.host <> e2.host RETURN e1.host AS host1, e1.path AS path1, p.name AS param1, e2.host AS host2, e2.path AS path2, p.name AS param2",
+        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p:FileParam) RETURN e.host AS host, e.path AS path, e.method AS method, p.name AS param",
+        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p:RedirectParam) RETURN e.host AS host, e.path AS path, e.method AS method, p.name AS param, p.values AS values",
+        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p:SearchParam) RETURN e.host AS host, e.path AS path, e.method AS method, p.name AS param",
         // Host cluster queries
         "MATCH (h1:Host)-[:HAS_ENDPOINT]->(e1:Endpoint)-[:HAS_PARAMETER]->(p:Parameter)<-[:HAS_PARAMETER]-(e2:Endpoint)<-[:HAS_ENDPOINT]-(h2:Host) WHERE h1 <> h2 WITH h1, h2, count(p) AS sharedParams RETURN h1.name AS host1, h2.name AS host2, sharedParams ORDER BY sharedParams DESC LIMIT 10",
         "MATCH (h1:Host), (h2:Host) WHERE h1 <> h2 MATCH (h1)-[:HAS_ENDPOINT]->(e1:Endpoint), (h2)-[:HAS_ENDPOINT]->(e2:Endpoint) WHERE e1.path = e2.path WITH h1, h2, count(e1) AS sharedEndpoints RETURN h1.name AS host1, h2.name AS host2, sharedEndpoints ORDER BY sharedEndpoints DESC LIMIT 10",
-        "MATCH (h:Host)-[:HAS_ENDPOINT]->(e:Endpoint)-[:HAS_PARAMETER]->(p:Parameter) WITH h, count(DISTINCT e) AS endpoints, count(DISTINCT p) AS params RETURN h.name AS host, endpoints, params ORDER BY endpoints DESC",
+        "MATCH (h:Host) RETURN h.name AS host, h.endpointCount AS endpoints, h.parameterCount AS parameterLinks, h.requestCount AS requests, h.methods AS methods ORDER BY endpoints DESC",
         "MATCH (h1:Host)-[:HAS_ENDPOINT]->(e1:Endpoint), (h2:Host)-[:HAS_ENDPOINT]->(e2:Endpoint) WHERE h1 <> h2 AND (e1.path = e2.path OR EXISTS((e1)-[:HAS_PARAMETER]->()<-[:HAS_PARAMETER]-(e2))) WITH DISTINCT h1, h2 RETURN h1.name AS host1, h2.name AS host2",
-        "MATCH (h1:Host)-[:HAS_ENDPOINT]->(:Endpoint)-[:HAS_PARAMETER]->(p:Parameter)<-[:HAS_PARAMETER]-(:Endpoint)<-[:HAS_ENDPOINT]-(h2:Host) WHERE h1 <> h2 AND p.name =~ '(?i).*token.*|.*key.*|.*auth.*|.*session.*|.*jwt.*' WITH DISTINCT h1, h2, p RETURN h1.name AS host1, h2.name AS host2, collect(DISTINCT p.name) AS sensitiveParams",
+        "MATCH (h1:Host)-[:HAS_ENDPOINT]->(:Endpoint)-[:HAS_PARAMETER]->(p:AuthParam)<-[:HAS_PARAMETER]-(:Endpoint)<-[:HAS_ENDPOINT]-(h2:Host) WHERE h1 <> h2 WITH DISTINCT h1, h2, p RETURN h1.name AS host1, h2.name AS host2, collect(DISTINCT p.name) AS sensitiveParams",
         // Graph visualization queries (return actual nodes and relationships)
         "MATCH (h:Host) RETURN h",
         "MATCH p=(h:Host)-[:HAS_ENDPOINT]->(e:Endpoint) RETURN p LIMIT 50",
@@ -124,8 +113,8 @@ public class GraphVisualizationPanel extends JPanel {
         "MATCH p=((h1:Host)-[:HAS_ENDPOINT]->()-[:HAS_PARAMETER]->()<-[:HAS_PARAMETER]-()<-[:HAS_ENDPOINT]-(h2:Host)) WHERE h1 <> h2 RETURN p LIMIT 20",
         "MATCH (h1:Host), (h2:Host) WHERE h1 <> h2 MATCH p=((h1)-[:HAS_ENDPOINT]->(e1:Endpoint)), p2=((h2)-[:HAS_ENDPOINT]->(e2:Endpoint)) WHERE e1.path = e2.path RETURN p, p2 LIMIT 10",
         "MATCH p=((h:Host)-[:HAS_ENDPOINT]->(e:Endpoint)) WHERE e.method = 'POST' RETURN p LIMIT 50",
-        "MATCH p=((e:Endpoint)-[:HAS_PARAMETER]->(param:Parameter)) WHERE param.name =~ '(?i).*token.*|.*key.*|.*auth.*|.*session.*' RETURN p LIMIT 30",
-        "MATCH p=((e:Endpoint)-[:HAS_PARAMETER]->(param:Parameter)) WHERE param.name =~ '(?i).*file.*|.*path.*|.*dir.*|.*include.*' RETURN p LIMIT 30",
+        "MATCH p=((e:Endpoint)-[:HAS_PARAMETER]->(param:AuthParam)) RETURN p LIMIT 30",
+        "MATCH p=((e:Endpoint)-[:HAS_PARAMETER]->(param:FileParam)) RETURN p LIMIT 30",
         "MATCH (h:Host) WITH h MATCH p=((h)-[:HAS_ENDPOINT]->(:Endpoint)-[:HAS_PARAMETER]->(:Parameter)) RETURN p LIMIT 50"
     };
     
@@ -154,7 +143,7 @@ public class GraphVisualizationPanel extends JPanel {
         // Host cluster descriptions
         "Top host pairs by shared parameters",
         "Top host pairs by shared endpoints",
-        "Host statistics (endpoints and parameters)",
+        "Host statistics (endpoints and parameter links)",
         "All connected host pairs (any relationship)",
         "Hosts sharing sensitive authentication parameters",
         // Graph visualization descriptions
@@ -170,9 +159,12 @@ public class GraphVisualizationPanel extends JPanel {
         "[GRAPH] Show complete graph for a host"
     };
 
-    public GraphVisualizationPanel(MontoyaApi api, Neo4jManager neo4jManager) {
+    public GraphVisualizationPanel(MontoyaApi api, Neo4jManager neo4jManager, UiTaskScheduler tasks,
+                                   GraphServer graphServer) {
         this.api = api;
         this.neo4jManager = neo4jManager;
+        this.tasks = tasks;
+        this.graphServer = graphServer;
         
         setLayout(new BorderLayout());
         setBorder(BorderFactory.createEmptyBorder());
@@ -215,6 +207,11 @@ public class GraphVisualizationPanel extends JPanel {
         });
         buttonPanel.add(openBrowserButton);
         
+        JButton interactiveGraphButton = new JButton("Interactive Graph");
+        interactiveGraphButton.setToolTipText("Explore the graph in your browser, served locally by the extension");
+        interactiveGraphButton.addActionListener(e -> openInteractiveGraph());
+        buttonPanel.add(interactiveGraphButton);
+        
         JButton copyQueryButton = new JButton("Copy Query");
         copyQueryButton.addActionListener(e -> {
             queryArea.selectAll();
@@ -227,6 +224,30 @@ public class GraphVisualizationPanel extends JPanel {
         executeQueryButton.addActionListener(e -> executeQuery());
         buttonPanel.add(executeQueryButton);
         
+        JButton explainQueryButton = new JButton("Explain");
+        explainQueryButton.setToolTipText("Show the query plan without running the query");
+        explainQueryButton.addActionListener(e -> inspectQuery(false));
+        buttonPanel.add(explainQueryButton);
+        
+        JButton profileQueryButton = new JButton("Profile");
+        profileQueryButton.setToolTipText("Run the query with PROFILE and show rows and db hits per operator");
+        profileQueryButton.addActionListener(e -> inspectQuery(true));
+        buttonPanel.add(profileQueryButton);
+        
+        JButton cancelQueryButton = new JButton("Cancel");
+        cancelQueryButton.setToolTipText("Terminate the running query on the server");
+        cancelQueryButton.addActionListener(e -> cancelActiveQuery());
+        buttonPanel.add(cancelQueryButton);
+        
+        JButton runningQueriesButton = new JButton("Running Queries");
+        runningQueriesButton.addActionListener(e -> showRunningQueries());
+        buttonPanel.add(runningQueriesButton);
+        
+        JButton tasksButton = new JButton("Tasks");
+        tasksButton.setToolTipText("Show queued and running background tasks");
+        tasksButton.addActionListener(e -> tasks.showTasksDialog(this));
+        buttonPanel.add(tasksButton);
+        
         headerPanel.add(buttonPanel, BorderLayout.EAST);
         mainPanel.add(headerPanel, BorderLayout.NORTH);
         
@@ -262,7 +283,58 @@ public class GraphVisualizationPanel extends JPanel {
         showExampleQueriesButton.addActionListener(e -> showCopyableQueries());
         topActionsPanel.add(showExampleQueriesButton);
         
-        actionsPanel.add(topActionsPanel, BorderLayout.NORTH);
+        JButton planStatsButton = new JButton("Query Plan Stats");
+        planStatsButton.setToolTipText("Show how often the query plans could be reused");
+        planStatsButton.addActionListener(e -> showPlanCacheStats());
+        topActionsPanel.add(planStatsButton);
+        
+        JButton graphStatsButton = new JButton("Graph Statistics");
+        graphStatsButton.setToolTipText("Show the host and graph totals maintained during ingestion");
+        graphStatsButton.addActionListener(e -> showGraphStatistics());
+        topActionsPanel.add(graphStatsButton);
+        
+        JButton whatsNewButton = new JButton("What's New");
+        whatsNewButton.setToolTipText("Show hosts, endpoints and parameters added since you last looked");
+        whatsNewButton.addActionListener(e -> showChanges());
+        topActionsPanel.add(whatsNewButton);
+        
+        // Instant search over the full-text indexes
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.add(new JLabel("Search:"));
+        searchField = new JTextField(30);
+        searchField.setToolTipText("Find parameters or paths containing all of the words");
+        searchPanel.add(searchField);
+        searchScopeCombo = new JComboBox<>(new String[]{"Parameters", "Paths"});
+        searchPanel.add(searchScopeCombo);
+        
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> runSearch());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                searchTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                searchTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        searchField.addActionListener(e -> {
+            searchTimer.stop();
+            runSearch();
+        });
+        searchScopeCombo.addActionListener(e -> runSearch());
+        
+        JPanel topRowsPanel = new JPanel(new BorderLayout());
+        topRowsPanel.add(topActionsPanel, BorderLayout.NORTH);
+        topRowsPanel.add(searchPanel, BorderLayout.SOUTH);
+        actionsPanel.add(topRowsPanel, BorderLayout.NORTH);
         
         // Bottom actions panel for query examples
         JPanel queryPanel = new JPanel(new BorderLayout());
@@ -304,6 +376,28 @@ public class GraphVisualizationPanel extends JPanel {
         JScrollPane queryScrollPane = new JScrollPane(queryArea);
         queryPanel.add(queryScrollPane, BorderLayout.CENTER);
         
+        // Values for $placeholders in the query, so changing a value does not change the query text
+        JPanel parametersPanel = new JPanel(new BorderLayout(5, 0));
+        parametersPanel.setBorder(new EmptyBorder(5, 0, 0, 0));
+        parametersPanel.add(new JLabel("Parameters: "), BorderLayout.WEST);
+        queryParametersField = new JTextField();
+        queryParametersField.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        queryParametersField.setToolTipText("Values for $parameters in the query, e.g. host=example.com; limit=25");
+        parametersPanel.add(queryParametersField, BorderLayout.CENTER);
+        
+        // Bounds for a single query, so a runaway query cannot hold a connection for long
+        JPanel limitsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        limitsPanel.add(new JLabel("Timeout (s):"));
+        queryTimeoutSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) QueryExecutionManager.DEFAULT_TIMEOUT.getSeconds(), 1, 3600, 5));
+        limitsPanel.add(queryTimeoutSpinner);
+        limitsPanel.add(new JLabel("Row limit:"));
+        queryRowLimitSpinner = new JSpinner(new SpinnerNumberModel(
+            QueryExecutionManager.DEFAULT_ROW_LIMIT, 1, 1_000_000, 1000));
+        limitsPanel.add(queryRowLimitSpinner);
+        parametersPanel.add(limitsPanel, BorderLayout.EAST);
+        queryPanel.add(parametersPanel, BorderLayout.SOUTH);
+        
         actionsPanel.add(queryPanel, BorderLayout.CENTER);
         
         contentPanel.add(actionsPanel, BorderLayout.NORTH);
@@ -337,6 +431,11 @@ public class GraphVisualizationPanel extends JPanel {
             @Override
             public void hyperlinkUpdate(HyperlinkEvent e) {
                 if (e.getEventType() == HyperlinkEvent.EventType.ACTIVATED) {
+                    String target = e.getDescription();
+                    if (target != null && target.startsWith(ACTION_PREFIX)) {
+                        handlePanelAction(target.substring(ACTION_PREFIX.length()));
+                        return;
+                    }
                     try {
                         Desktop.getDesktop().browse(e.getURL().toURI());
                     } catch (Exception ex) {
@@ -357,7 +456,18 @@ public class GraphVisualizationPanel extends JPanel {
         htmlScrollPane.setMinimumSize(new Dimension(200, 200));
         htmlScrollPane.setMaximumSize(new Dimension(Integer.MAX_VALUE, 500)); 
         
-        visualizationPanel.add(htmlScrollPane, BorderLayout.CENTER);
+        // Plan inspector next to the results, only shown after Explain or Profile
+        queryPlanPanel = new QueryPlanPanel(() -> queryPlanPanel.setVisible(false));
+        queryPlanPanel.setVisible(false);
+        queryResultsPanel = new QueryResultsPanel(NEO4J_BROWSER_URL, api.logging());
+        resultsCards = new JPanel(new CardLayout());
+        resultsCards.add(htmlScrollPane, HTML_CARD);
+        resultsCards.add(queryResultsPanel, RESULTS_CARD);
+        resultsSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, resultsCards, queryPlanPanel);
+        resultsSplitPane.setResizeWeight(0.6);
+        resultsSplitPane.setBorder(null);
+        
+        visualizationPanel.add(resultsSplitPane, BorderLayout.CENTER);
         
         contentPanel.add(visualizationPanel, BorderLayout.CENTER);
         
@@ -394,6 +504,8 @@ public class GraphVisualizationPanel extends JPanel {
      * Clears the results area and resets the query
      */
     private void clearResults() {
+        closeActiveCursor();
+        
         // Reset the HTML preview
         showWelcomeMessage();
         
@@ -419,344 +531,740 @@ public class GraphVisualizationPanel extends JPanel {
         
         if (!checkConnection()) return;
         
+        final Map<String, Object> parameters;
+        try {
+            parameters = parseQueryParameters(queryParametersField.getText());
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Invalid Parameters", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        Duration timeout = Duration.ofSeconds(((Number) queryTimeoutSpinner.getValue()).longValue());
+        int rowLimit = ((Number) queryRowLimitSpinner.getValue()).intValue();
+        
         statusLabel.setText("Executing query...");
         
-        new Thread(() -> {
+        showQueryResults(query, "running...");
+        
+        tasks.<Runnable, QueryResultsPanel.Chunk>submit(PREVIEW_TASK, "Run query", progress -> {
             try {
-                List<Record> results = neo4jManager.executeQuery(query);
-                updateResultsFromQuery(results, query);
-                updateStatus("Query executed successfully. Returned " + results.size() + " records.");
+                closeActiveCursor();
+                cancelRequested = false;
+                
+                // Stream the result into the table page by page until it ends or hits the row limit
+                QueryCursor cursor = neo4jManager.openCursor(query, parameters, QueryCursor.DEFAULT_FETCH_SIZE,
+                    timeout, rowLimit);
+                synchronized (this) {
+                    activeCursor = cursor;
+                }
+                // The first chunk sets the columns, even for an empty result
+                progress.publish(new QueryResultsPanel.Chunk(cursor.keys(), List.of()));
+                int count = 0;
+                while (!progress.isCancelled() && cursor.hasNext()) {
+                    List<Record> page = cursor.nextPage(RESULT_PAGE_SIZE);
+                    count += page.size();
+                    progress.publish(new QueryResultsPanel.Chunk(cursor.keys(), QueryResultsPanel.toRows(page)));
+                }
+                int total = count;
+                boolean truncated = cursor.isTruncated();
+                return () -> {
+                    String state = truncated ? "row limit reached" : "complete";
+                    queryResultsPanel.setState(state);
+                    updateStatus("Query executed successfully. " + total + " records, " + state + ".");
+                };
             } catch (Exception e) {
+                if (cancelRequested) {
+                    return () -> {
+                        queryResultsPanel.setState("cancelled");
+                        updateStatus("Query cancelled");
+                    };
+                }
                 updateStatus("Error: " + e.getMessage());
                 logError("Error executing query: " + e.getMessage(), e);
-                SwingUtilities.invokeLater(() -> {
+                return () -> {
+                    queryResultsPanel.setState("failed");
                     JOptionPane.showMessageDialog(
                         this, 
                         "Error executing query: " + e.getMessage(), 
                         "Query Error", 
                         JOptionPane.ERROR_MESSAGE
                     );
-                });
+                };
             }
-        }).start();
+        }, queryResultsPanel::append, Runnable::run, null);
     }
     
     /**
-     * Updates the HTML preview with query results
+     * Runs the current query with EXPLAIN or PROFILE and shows the plan next to the results
      */
-    private void updateResultsFromQuery(List<Record> records, String query) {
-        if (records.isEmpty()) {
-            updateHTMLPreview("<h2>Query Results</h2><p>No records found.</p>");
+    private void inspectQuery(boolean profile) {
+        String query = queryArea.getText().trim();
+        if (query.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter a query", "Empty Query", JOptionPane.WARNING_MESSAGE);
             return;
         }
         
-        // Build HTML content with better layout and scrolling
-        StringBuilder html = new StringBuilder();
-        html.append("<html><body style=\"margin: 0; padding: 0;\">");
-        html.append("<div style=\"padding: 15px; max-width: 100%;\">");
-        html.append("<h2 style=\"color: #333366; margin-bottom: 15px;\">Query Results</h2>");
-        html.append("<div style=\"background-color: #f5f5f5; padding: 10px; border-left: 4px solid #2196F3; margin-bottom: 20px; font-family: monospace; white-space: pre-wrap; overflow-x: auto;\">");
-        html.append(query);
-        html.append("</div>");
-        html.append("<p><strong>Records:</strong> ").append(records.size()).append("</p>");
-        
-        // Generate graph visualization first if appropriate query
-        boolean hasGraphVisualization = 
-            query.toLowerCase().contains("return p") || 
-            query.toLowerCase().contains(":host") ||
-            query.toLowerCase().contains(":endpoint") ||
-            query.toLowerCase().contains("host") && query.toLowerCase().contains("path");
-
-        if (hasGraphVisualization) {
-            html.append("<div class=\"graph-section\" style=\"margin: 20px 0;\">");
-            html.append("<h3 style=\"color: #333366; border-bottom: 1px solid #ddd; padding-bottom: 5px;\">Graph Visualization</h3>");
-            html.append("<div class=\"graph-view\" style=\"padding: 20px; background-color: #f9f9f9; border: 1px solid #ddd; border-radius: 5px; margin-bottom: 20px;\">");
-            
-            if (records.size() > 10) {
-                html.append("<p style=\"color: #666; font-style: italic; margin-bottom: 15px;\">Showing preview of first 10 results. For complete visualization, use Neo4j Browser.</p>");
-            }
-            
-            // Add simple visualization
-            for (int i = 0; i < Math.min(10, records.size()); i++) {
-                Record record = records.get(i);
-                addSimpleGraphPreview(html, record);
-            }
-            
-            // Add "View in Neo4j Browser" button - ensuring it includes the query
-            String encodedQuery = java.net.URLEncoder.encode(query, java.nio.charset.StandardCharsets.UTF_8);
-            html.append("<div style=\"text-align: center; margin-top: 20px;\">");
-            html.append("<a href=\"http://localhost:7474/browser/?cmd=").append(encodedQuery)
-                .append("\" style=\"" +
-                    "padding: 10px 20px; " +
-                    "background-color: #4CAF50; " +
-                    "color: white; " +
-                    "text-decoration: none; " +
-                    "border-radius: 4px; " +
-                    "display: inline-block; " +
-                    "font-weight: bold; " +
-                    "box-shadow: 0 2px 4px rgba(0,0,0,0.1);\">" +
-                    "<span style=\"margin-right: 5px;\">🔍</span> " +
-                    "Open Interactive Graph in Neo4j Browser</a>");
-            html.append("</div>");
-            
-            html.append("</div>");
-            html.append("</div>");
+        if (!checkConnection()) return;
+        
+        if (profile && !QueryResultCache.isReadOnly(query)) {
+            int choice = JOptionPane.showConfirmDialog(
+                this,
+                "PROFILE executes the query, including its writes. Continue?",
+                "Profile Write Query",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.WARNING_MESSAGE
+            );
+            if (choice != JOptionPane.YES_OPTION) return;
         }
         
-        // Generate table with results
-        html.append("<div class=\"table-section\">");
-        html.append("<h3 style=\"color: #333366; border-bottom: 1px solid #ddd; padding-bottom: 5px;\">Table Results</h3>");
-        html.append("<div style=\"overflow-x: auto; max-width: 100%;\">");
-        html.append("<table style=\"width: 100%; border-collapse: collapse; margin-top: 10px;\">");
+        final Map<String, Object> parameters;
+        try {
+            parameters = parseQueryParameters(queryParametersField.getText());
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Invalid Parameters", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        Duration timeout = Duration.ofSeconds(((Number) queryTimeoutSpinner.getValue()).longValue());
+        int rowLimit = ((Number) queryRowLimitSpinner.getValue()).intValue();
+        
+        statusLabel.setText(profile ? "Profiling query..." : "Explaining query...");
+        queryPlanPanel.clear(profile ? "Profiling..." : "Explaining...");
+        showPlanPanel();
         
-        // Headers
-        html.append("<tr style=\"background-color: #e1f5fe;\">");
-        for (String key : records.get(0).keys()) {
-            html.append("<th style=\"padding: 12px 8px; text-align: left; border: 1px solid #b3e5fc; font-weight: bold;\">").append(key).append("</th>");
+        runInBackground(PREVIEW_TASK, (profile ? "Profile" : "Explain") + " query", progress -> {
+            try {
+                closeActiveCursor();
+                cancelRequested = false;
+                
+                QueryProfile result = neo4jManager.inspectQuery(query, parameters, profile, timeout, rowLimit);
+                List<Object[]> rows = profile ? QueryResultsPanel.toRows(result.getRecords()) : List.of();
+                List<String> columns = result.getRecords().isEmpty() ? List.of() : result.getRecords().get(0).keys();
+                
+                return () -> {
+                    queryPlanPanel.showProfile(result);
+                    if (profile) {
+                        showQueryResults(query, result.isTruncated() ? "profiled, row limit reached" : "profiled");
+                        queryResultsPanel.append(List.of(new QueryResultsPanel.Chunk(columns, rows)));
+                        updateStatus("Query profiled. " + result.getRecords().size() + " records, "
+                            + result.getTotalDbHits() + " db hits.");
+                    } else {
+                        updateStatus("Query plan ready");
+                    }
+                };
+            } catch (Exception e) {
+                if (cancelRequested) {
+                    updateStatus("Query cancelled");
+                    return null;
+                }
+                updateStatus("Error: " + e.getMessage());
+                logError("Error inspecting query: " + e.getMessage(), e);
+                SwingUtilities.invokeLater(() -> queryPlanPanel.clear("Error: " + e.getMessage()));
+                return null;
+            }
+        });
+    }
+    
+    private void showPlanPanel() {
+        if (!queryPlanPanel.isVisible()) {
+            queryPlanPanel.setVisible(true);
+            resultsSplitPane.setDividerLocation(0.6);
         }
-        html.append("</tr>");
-        
-        // Data rows - limit to 100 rows for UI performance
-        int maxRows = Math.min(records.size(), 100);
-        for (int i = 0; i < maxRows; i++) {
-            Record record = records.get(i);
-            String rowStyle = i % 2 == 0 ? "background-color: #ffffff;" : "background-color: #f5f5f5;";
-            html.append("<tr style=\"").append(rowStyle).append("\">");
-            
-            for (String key : record.keys()) {
-                String value = record.get(key).asObject() != null ? record.get(key).toString() : "null";
-                // Handle long values
-                if (value.length() > 100) {
-                    value = value.substring(0, 97) + "...";
+    }
+    
+    /**
+     * Parses "name=value; name=value" into query parameters.
+     * Integers, decimals and booleans are converted, everything else is passed as a string.
+     */
+    static Map<String, Object> parseQueryParameters(String text) {
+        Map<String, Object> parameters = new HashMap<>();
+        if (text == null || text.isBlank()) return parameters;
+        
+        for (String part : text.split(";")) {
+            if (part.isBlank()) continue;
+            int separator = part.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected name=value but got: " + part.trim());
+            }
+            String name = part.substring(0, separator).trim();
+            if (name.startsWith("$")) {
+                name = name.substring(1);
+            }
+            parameters.put(name, parseParameterValue(part.substring(separator + 1).trim()));
+        }
+        return parameters;
+    }
+    
+    private static Object parseParameterValue(String value) {
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        if (value.length() >= 2 && (value.startsWith("'") && value.endsWith("'")
+                || value.startsWith("\"") && value.endsWith("\""))) {
+            return value.substring(1, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // Not an integer
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+    
+    /**
+     * Terminates the running custom query on the server
+     */
+    private void cancelActiveQuery() {
+        final QueryCursor cursor;
+        synchronized (this) {
+            cursor = activeCursor;
+        }
+        if (cursor == null || cursor.isClosed()) {
+            // Explain and Profile runs have no cursor, they are only listed as running queries
+            List<QueryExecutionManager.RunningQuery> running = neo4jManager.getQueryExecution().getRunningQueries();
+            if (running.isEmpty()) {
+                statusLabel.setText("No query running");
+                return;
+            }
+            cancelRequested = true;
+            statusLabel.setText("Cancelling query...");
+            runInBackground(CANCEL_TASK, "Cancel running queries", progress -> {
+                for (QueryExecutionManager.RunningQuery runningQuery : running) {
+                    neo4jManager.cancelQuery(runningQuery.getId());
                 }
-                html.append("<td style=\"padding: 8px; border: 1px solid #ddd;\">").append(value).append("</td>");
+                return () -> updateStatus("Query cancelled");
+            });
+            return;
+        }
+        
+        cancelRequested = true;
+        statusLabel.setText("Cancelling query...");
+        
+        runInBackground(CANCEL_TASK, "Cancel query", progress -> {
+            boolean cancelled = neo4jManager.cancelQuery(cursor);
+            return () -> updateStatus(cancelled ? "Query cancelled" : "Query already finished");
+        });
+    }
+    
+    /**
+     * Shows the interactive queries that are still streaming, with an option to cancel them
+     */
+    private void showRunningQueries() {
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this), "Running Queries", Dialog.ModalityType.MODELESS);
+        dialog.setLayout(new BorderLayout(5, 5));
+        
+        javax.swing.table.DefaultTableModel model = new javax.swing.table.DefaultTableModel(
+            new String[]{"Id", "Elapsed (s)", "Rows", "Timeout (s)", "Query"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
             }
-            html.append("</tr>");
+        };
+        JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(4).setPreferredWidth(400);
+        
+        Runnable refresh = () -> {
+            model.setRowCount(0);
+            for (QueryExecutionManager.RunningQuery runningQuery : neo4jManager.getQueryExecution().getRunningQueries()) {
+                model.addRow(new Object[]{
+                    runningQuery.getId(),
+                    runningQuery.getElapsed().getSeconds(),
+                    runningQuery.getRowCount(),
+                    runningQuery.getTimeout().getSeconds(),
+                    runningQuery.getQuery().replaceAll("\\s+", " ")
+                });
+            }
+        };
+        refresh.run();
+        Timer refreshTimer = new Timer(1000, e -> refresh.run());
+        refreshTimer.start();
+        
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton cancelButton = new JButton("Cancel Selected");
+        cancelButton.addActionListener(e -> {
+            int row = table.getSelectedRow();
+            if (row < 0) return;
+            String id = (String) model.getValueAt(row, 0);
+            // Cancelling the panel's own query is expected, not an error
+            final QueryCursor cursor;
+            synchronized (this) {
+                cursor = activeCursor;
+            }
+            QueryExecutionManager.RunningQuery active = cursor != null
+                ? neo4jManager.getQueryExecution().findByCursor(cursor) : null;
+            if (active != null && id.equals(active.getId())) {
+                cancelRequested = true;
+            }
+            runInBackground(CANCEL_TASK + "-" + id, "Cancel query " + id, progress -> {
+                neo4jManager.cancelQuery(id);
+                return null;
+            });
+        });
+        buttons.add(cancelButton);
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dialog.dispose());
+        buttons.add(closeButton);
+        
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        
+        dialog.add(new JScrollPane(table), BorderLayout.CENTER);
+        dialog.add(buttons, BorderLayout.SOUTH);
+        dialog.setSize(800, 300);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+    
+    /**
+     * Closes the cursor of the previous custom query, releasing its connection
+     */
+    private synchronized void closeActiveCursor() {
+        if (activeCursor != null) {
+            activeCursor.close();
+            activeCursor = null;
+        }
+    }
+    
+    /**
+     * Handles links that trigger actions inside the panel
+     */
+    private void handlePanelAction(String action) {
+        String argument = "";
+        int separator = action.indexOf('?');
+        if (separator >= 0) {
+            argument = action.substring(separator + 1);
+            action = action.substring(0, separator);
         }
         
-        // Add indicator if results were truncated
-        if (records.size() > 100) {
-            html.append("<tr><td colspan=\"").append(records.get(0).keys().size()).append("\" style=\"text-align: center; padding: 10px; background-color: #fff3cd; color: #856404;\">");
-            html.append("Showing 100 of ").append(records.size()).append(" results. Use Neo4j Browser for complete results.");
-            html.append("</td></tr>");
+        switch (action) {
+            case "more-hosts":
+                loadMoreHosts();
+                break;
+            case "hosts":
+                renderHosts();
+                break;
+            case "host-endpoints":
+                if (argument.startsWith("host=")) {
+                    showHostEndpoints(java.net.URLDecoder.decode(argument.substring(5), java.nio.charset.StandardCharsets.UTF_8));
+                }
+                break;
+            case "recompute-stats":
+                recomputeGraphStatistics();
+                break;
+            case "more-changes":
+                showChanges();
+                break;
+            case "reset-changes":
+                api.persistence().preferences().deleteString(changeBookmarkPreference());
+                showChanges();
+                break;
+            default:
+                api.logging().logToError("Unknown panel action: " + action);
         }
+    }
+    
+    
+    /**
+     * Loads the first page of hosts from the database
+     */
+    public void loadAllHosts() {
+        if (!checkConnection()) return;
         
-        html.append("</table>");
-        html.append("</div>");
-        html.append("</div>");
-        html.append("</div>");
-        html.append("</body></html>");
+        statusLabel.setText("Loading hosts...");
         
-        updateHTMLPreview(html.toString());
+        runInBackground(PREVIEW_TASK, "Load hosts", progress -> {
+            try {
+                ResultPage page = neo4jManager.getHostsPage(null, HOST_PAGE_SIZE);
+                return () -> {
+                    loadedHosts = page.getRecords();
+                    moreHosts = page.hasMore();
+                    renderHosts();
+                };
+            } catch (Exception e) {
+                updateStatus("Error: " + e.getMessage());
+                logError("Error loading hosts: " + e.getMessage(), e);
+                return null;
+            }
+        });
     }
     
     /**
-     * Adds a simple graph visualization for path results
+     * Loads the next page of hosts after the last one shown
      */
-    private void addSimpleGraphPreview(StringBuilder html, Record record) {
-        // Check for paths in the record
-        boolean hasPathObject = false;
-        for (String key : record.keys()) {
-            if (record.get(key).type().name().equals("PATH")) {
-                hasPathObject = true;
-                // Enhanced path visualization with more visual elements and layout
-                html.append("<div style=\"margin-bottom: 20px; padding: 15px; background-color: #f8f8f8; border-radius: 5px; box-shadow: 0 1px 3px rgba(0,0,0,0.1);\">");
+    private void loadMoreHosts() {
+        List<Record> hosts = loadedHosts;
+        if (!moreHosts || hosts.isEmpty() || !checkConnection()) return;
+        
+        statusLabel.setText("Loading more hosts...");
+        
+        runInBackground(PREVIEW_TASK, "Load more hosts", progress -> {
+            try {
+                String lastHost = hosts.get(hosts.size() - 1).get("host").asString();
+                ResultPage page = neo4jManager.getHostsPage(lastHost, HOST_PAGE_SIZE);
+                List<Record> combined = new ArrayList<>(hosts);
+                combined.addAll(page.getRecords());
+                return () -> {
+                    loadedHosts = combined;
+                    moreHosts = page.hasMore();
+                    renderHosts();
+                };
+            } catch (Exception e) {
+                updateStatus("Error: " + e.getMessage());
+                logError("Error loading hosts: " + e.getMessage(), e);
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * Renders the hosts loaded so far
+     */
+    private void renderHosts() {
+        List<Record> hosts = loadedHosts;
+        
+        StringBuilder html = new StringBuilder();
+        html.append("<h2>Hosts in Database</h2>");
+        html.append("<p>Showing ").append(hosts.size()).append(" hosts").append(moreHosts ? " (more available)" : "").append("</p>");
+        
+        if (!hosts.isEmpty()) {
+            // Add visual representation of hosts
+            html.append(createHostVisualization(hosts));
+            
+            // Add tabular data
+            html.append("<h3>Host Details</h3>");
+            html.append("<table>");
+            html.append("<tr><th>Host</th><th>Actions</th></tr>");
+            
+            for (Record record : hosts) {
+                String hostName = record.get("host").asString();
                 
-                // Extract path components if possible
-                try {
-                    // Just show a generic path visualization
-                    html.append("<div style=\"display: flex; align-items: center; justify-content: center;\">");
-                    html.append("<span class=\"node host\" style=\"padding: 10px; border-radius: 4px; margin-right: 5px; font-weight: bold;\">HOST</span>");
-                    html.append("<span class=\"relationship\" style=\"margin: 0 8px; font-size: 20px;\">→</span>");
-                    html.append("<span class=\"node endpoint\" style=\"padding: 10px; border-radius: 4px; margin-right: 5px; font-weight: bold;\">ENDPOINT</span>");
-                    html.append("<span class=\"relationship\" style=\"margin: 0 8px; font-size: 20px;\">→</span>");
-                    html.append("<span class=\"node parameter\" style=\"padding: 10px; border-radius: 4px; font-weight: bold;\">PARAMETER</span>");
-                    html.append("</div>");
-                } catch (Exception e) {
-                    // Fallback in case of error
-                    html.append("<div>Complex path object (see Neo4j Browser for interactive visualization)</div>");
-                }
+                html.append("<tr>");
+                html.append("<td>").append(escapeHtml(hostName)).append("</td>");
                 
-                html.append("</div>");
-                break;
+                // Drill down in the panel with the parameterized query, the browser link
+                // gets a literal copy because Neo4j Browser cannot take parameters in a URL
+                String encodedHost = java.net.URLEncoder.encode(hostName, java.nio.charset.StandardCharsets.UTF_8);
+                String query = QueryTemplate.HOST_ENDPOINTS.inline(Map.of("host", hostName));
+                String encodedQuery = java.net.URLEncoder.encode(query, java.nio.charset.StandardCharsets.UTF_8);
+                html.append("<td><a href=\"").append(ACTION_PREFIX).append("host-endpoints?host=").append(encodedHost)
+                    .append("\">View Endpoints</a> | ");
+                html.append("<a href=\"http://localhost:7474/browser/?cmd=").append(encodedQuery).append("\">Open in Neo4j Browser</a></td>");
+                
+                html.append("</tr>");
+            }
+            
+            html.append("</table>");
+            
+            if (moreHosts) {
+                html.append("<p><a href=\"").append(ACTION_PREFIX).append("more-hosts\">Load next ")
+                    .append(HOST_PAGE_SIZE).append(" hosts</a></p>");
             }
+            
+            // Add graph visualization hint
+            String graphQuery = "MATCH (h:Host) RETURN h";
+            String encodedGraphQuery = java.net.URLEncoder.encode(graphQuery, java.nio.charset.StandardCharsets.UTF_8);
+            html.append("<p><a href=\"http://localhost:7474/browser/?cmd=").append(encodedGraphQuery).append("\">View Host Graph in Neo4j Browser</a></p>");
         }
         
-        if (hasPathObject) return;
+        updateHTMLPreview(html.toString());
+        updateStatus("Loaded " + hosts.size() + " hosts" + (moreHosts ? " (more available)" : ""));
+    }
+    
+    /**
+     * Shows the endpoints of one host using the parameterized drill-down query
+     */
+    private void showHostEndpoints(String hostName) {
+        if (!checkConnection()) return;
+        
+        statusLabel.setText("Loading endpoints for " + hostName + "...");
         
-        // Check for node patterns
-        boolean hasNodes = false;
-        for (String key : record.keys()) {
-            if (record.get(key).type().name().equals("NODE")) {
-                hasNodes = true;
-                html.append("<div style=\"margin-bottom: 20px; padding: 15px; background-color: #f8f8f8; border-radius: 5px; box-shadow: 0 1px 3px rgba(0,0,0,0.1);\">");
-                html.append("<div style=\"display: flex; align-items: center; justify-content: center;\">");
+        runInBackground(PREVIEW_TASK, "Load endpoints of " + hostName, progress -> {
+            try {
+                List<Record> endpoints = neo4jManager.getEndpointsForHostWithStats(hostName);
                 
-                // Extract node labels if possible
-                try {
-                    String nodeInfo = record.get(key).toString();
-                    String label = nodeInfo.contains(":") ? 
-                                   nodeInfo.substring(nodeInfo.indexOf(":") + 1, nodeInfo.indexOf("{")) : 
-                                   "Node";
-                    
-                    String styleClass = "node";
-                    if (label.contains("Host")) styleClass += " host";
-                    else if (label.contains("Endpoint")) styleClass += " endpoint";
-                    else if (label.contains("Parameter")) styleClass += " parameter";
-                    
-                    html.append("<span class=\"" + styleClass + "\" style=\"padding: 10px; border-radius: 4px; font-weight: bold;\">");
-                    html.append(label);
-                    html.append("</span>");
-                } catch (Exception e) {
-                    // Fallback
-                    html.append("<span class=\"node\" style=\"padding: 10px; border-radius: 4px;\">Node</span>");
+                StringBuilder html = new StringBuilder();
+                html.append("<h2>Endpoints of ").append(escapeHtml(hostName)).append("</h2>");
+                html.append("<p>Found ").append(endpoints.size()).append(" endpoints</p>");
+                
+                if (!endpoints.isEmpty()) {
+                    html.append("<table>");
+                    html.append("<tr><th>Method</th><th>Path</th><th>Parameters</th></tr>");
+                    for (Record record : endpoints) {
+                        html.append("<tr>");
+                        html.append("<td>").append(escapeHtml(record.get("method").asString(""))).append("</td>");
+                        html.append("<td>").append(escapeHtml(record.get("path").asString(""))).append("</td>");
+                        html.append("<td>").append(record.get("parameterCount").asLong(0)).append("</td>");
+                        html.append("</tr>");
+                    }
+                    html.append("</table>");
                 }
                 
-                html.append("</div>");
-                html.append("</div>");
-                break;
+                if (!loadedHosts.isEmpty()) {
+                    html.append("<p><a href=\"").append(ACTION_PREFIX).append("hosts\">Back to hosts</a></p>");
+                }
+                
+                String preview = html.toString();
+                return () -> {
+                    updateHTMLPreview(preview);
+                    updateStatus("Loaded " + endpoints.size() + " endpoints for " + hostName);
+                };
+            } catch (Exception e) {
+                updateStatus("Error: " + e.getMessage());
+                logError("Error loading endpoints: " + e.getMessage(), e);
+                return null;
             }
-        }
-        
-        if (hasNodes) return;
+        });
+    }
+    
+    /**
+     * Shows the graph and per-host totals. These are read from the precomputed
+     * statistics, so no relationships are counted.
+     */
+    private void showGraphStatistics() {
+        if (!checkConnection()) return;
         
-        // Check for common patterns in field names
-        boolean hasHost = false, hasEndpoint = false, hasParam = false;
-        for (String key : record.keys()) {
-            if (key.contains("host")) hasHost = true;
-            if (key.contains("path") || key.contains("endpoint")) hasEndpoint = true;
-            if (key.contains("param")) hasParam = true;
-        }
+        statusLabel.setText("Loading graph statistics...");
         
-        if (hasHost) {
-            // Create a more visually engaging representation
-            html.append("<div style=\"margin-bottom: 20px; padding: 15px; background-color: #f8f8f8; border-radius: 5px; box-shadow: 0 1px 3px rgba(0,0,0,0.1);\">");
-            html.append("<div style=\"display: flex; align-items: center; flex-wrap: wrap;\">");
-            
-            String host = "", path = "", param = "", method = "";
-            
-            for (String key : record.keys()) {
-                if (key.contains("host") && record.get(key).asObject() != null) {
-                    host = record.get(key).asString();
+        runInBackground(PREVIEW_TASK, "Load graph statistics", progress -> {
+            try {
+                List<Record> totals = neo4jManager.getGraphStatistics();
+                List<Record> hosts = neo4jManager.getAllHostsWithStats();
+                
+                StringBuilder html = new StringBuilder();
+                html.append("<h2>Graph Statistics</h2>");
+                if (!totals.isEmpty()) {
+                    Record total = totals.get(0);
+                    html.append("<table>");
+                    html.append("<tr><td>Hosts</td><td>").append(total.get("hosts").asLong(0)).append("</td></tr>");
+                    html.append("<tr><td>Endpoints</td><td>").append(total.get("endpoints").asLong(0)).append("</td></tr>");
+                    html.append("<tr><td>Parameters</td><td>").append(total.get("parameters").asLong(0)).append("</td></tr>");
+                    html.append("<tr><td>Endpoint parameters</td><td>").append(total.get("parameterLinks").asLong(0)).append("</td></tr>");
+                    html.append("<tr><td>Requests</td><td>").append(total.get("requests").asLong(0)).append("</td></tr>");
+                    html.append("<tr><td>Methods</td><td>")
+                        .append(escapeHtml(String.join(", ", total.get("methods").asList(v -> v.asString(""))))).append("</td></tr>");
+                    html.append("</table>");
+                }
+                
+                html.append("<h3>Hosts</h3>");
+                html.append("<table>");
+                html.append("<tr><th>Host</th><th>Endpoints</th><th>Endpoint Parameters</th><th>Requests</th><th>Methods</th></tr>");
+                for (Record record : hosts) {
+                    String host = record.get("host").asString("");
+                    html.append("<tr>");
+                    html.append("<td><a href=\"").append(ACTION_PREFIX).append("host-endpoints?host=")
+                        .append(java.net.URLEncoder.encode(host, java.nio.charset.StandardCharsets.UTF_8)).append("\">")
+                        .append(escapeHtml(host)).append("</a></td>");
+                    html.append("<td>").append(record.get("endpointCount").asLong(0)).append("</td>");
+                    html.append("<td>").append(record.get("parameterCount").asLong(0)).append("</td>");
+                    html.append("<td>").append(record.get("requestCount").asLong(0)).append("</td>");
+                    html.append("<td>").append(escapeHtml(String.join(", ", record.get("methods").asList(v -> v.asString(""))))).append("</td>");
+                    html.append("</tr>");
                 }
-                if (key.contains("path") && record.get(key).asObject() != null) {
-                    path = record.get(key).asString();
+                html.append("</table>");
+                html.append("<p>Totals are updated every few seconds during ingestion. ")
+                    .append("<a href=\"").append(ACTION_PREFIX).append("recompute-stats\">Recompute from the graph</a> ")
+                    .append("after deleting data with custom queries.</p>");
+                
+                String preview = html.toString();
+                return () -> {
+                    updateHTMLPreview(preview);
+                    updateStatus("Loaded statistics for " + hosts.size() + " hosts");
+                };
+            } catch (Exception e) {
+                updateStatus("Error: " + e.getMessage());
+                logError("Error loading graph statistics: " + e.getMessage(), e);
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * Shows what was added since the stored bookmark and moves the bookmark past it,
+     * so the next refresh only reads entities created in the meantime
+     */
+    private void showChanges() {
+        if (!checkConnection()) return;
+        
+        statusLabel.setText("Loading changes...");
+        String preference = changeBookmarkPreference();
+        
+        runInBackground(PREVIEW_TASK, "Load changes", progress -> {
+            try {
+                ChangeBookmark bookmark = ChangeBookmark.parse(api.persistence().preferences().getString(preference));
+                ResultPage page = neo4jManager.getChangesSince(bookmark, CHANGES_PAGE_SIZE);
+                List<Record> changes = page.getRecords();
+                if (!changes.isEmpty()) {
+                    api.persistence().preferences().setString(preference, bookmark.advance(changes).encode());
                 }
-                if (key.contains("method") && record.get(key).asObject() != null) {
-                    method = record.get(key).asString();
+                
+                StringBuilder html = new StringBuilder();
+                html.append("<h2>What's New</h2>");
+                if (bookmark.equals(ChangeBookmark.initial())) {
+                    html.append("<p>Showing everything from the start of the graph.</p>");
+                } else {
+                    html.append("<p>Added since ").append(escapeHtml(bookmark.since().toString())).append("</p>");
                 }
-                if (key.contains("param") && record.get(key).asObject() != null) {
-                    param = record.get(key).asString();
+                
+                if (changes.isEmpty()) {
+                    html.append("<p>Nothing new.</p>");
+                } else {
+                    html.append("<table>");
+                    html.append("<tr><th>Type</th><th>Host</th><th>Method</th><th>Path</th><th>Parameter</th><th>First Seen</th></tr>");
+                    for (Record record : changes) {
+                        String host = record.get("host").asString("");
+                        String parameter = record.get("parameter").asString("");
+                        html.append("<tr>");
+                        html.append("<td>").append(escapeHtml(record.get("type").asString(""))).append("</td>");
+                        html.append("<td><a href=\"").append(ACTION_PREFIX).append("host-endpoints?host=")
+                            .append(java.net.URLEncoder.encode(host, java.nio.charset.StandardCharsets.UTF_8)).append("\">")
+                            .append(escapeHtml(host)).append("</a></td>");
+                        html.append("<td>").append(escapeHtml(record.get("method").asString(""))).append("</td>");
+                        html.append("<td>").append(escapeHtml(record.get("path").asString(""))).append("</td>");
+                        html.append("<td>").append(escapeHtml(parameter))
+                            .append(record.get("newName").asBoolean(false) ? " (new name)" : "").append("</td>");
+                        html.append("<td>").append(escapeHtml(record.get("firstSeen").asZonedDateTime().toString())).append("</td>");
+                        html.append("</tr>");
+                    }
+                    html.append("</table>");
                 }
-            }
-            
-            // Host node with cleaner styling
-            html.append("<span class=\"node host\" style=\"" + 
-                    "padding: 10px; " +
-                    "background-color: #bbdefb; " +
-                    "border-radius: 5px; " +
-                    "box-shadow: 0 1px 2px rgba(0,0,0,0.1); " +
-                    "display: inline-block; " +
-                    "margin-right: 8px; " +
-                    "font-weight: bold; " +
-                    "border: 1px solid #90caf9;\">" +
-                    host +
-                    "</span>");
-            
-            // Add endpoint if available
-            if (hasEndpoint) {
-                html.append("<span class=\"relationship\" style=\"margin: 0 10px; color: #666; font-weight: bold; font-size: 16px;\">→</span>");
-                html.append("<span class=\"node endpoint\" style=\"" +
-                        "padding: 10px; " +
-                        "background-color: #c8e6c9; " +
-                        "border-radius: 5px; " +
-                        "box-shadow: 0 1px 2px rgba(0,0,0,0.1); " +
-                        "display: inline-block; " +
-                        "margin-right: 8px; " +
-                        "border: 1px solid #a5d6a7;\">");
                 
-                if (!method.isEmpty()) {
-                    html.append("<span style=\"font-weight: bold; color: #2e7d32; margin-right: 5px;\">")
-                        .append(method)
-                        .append("</span>");
+                if (page.hasMore()) {
+                    html.append("<p><a href=\"").append(ACTION_PREFIX).append("more-changes\">Show the next ")
+                        .append(CHANGES_PAGE_SIZE).append(" changes</a></p>");
                 }
+                html.append("<p><a href=\"").append(ACTION_PREFIX).append("reset-changes\">Start over from the beginning</a></p>");
                 
-                html.append(path).append("</span>");
+                String preview = html.toString();
+                return () -> {
+                    updateHTMLPreview(preview);
+                    updateStatus("Loaded " + changes.size() + " changes" + (page.hasMore() ? " (more available)" : ""));
+                };
+            } catch (Exception e) {
+                updateStatus("Error: " + e.getMessage());
+                logError("Error loading changes: " + e.getMessage(), e);
+                return null;
             }
-            
-            // Add parameter if available
-            if (hasParam) {
-                html.append("<span class=\"relationship\" style=\"margin: 0 10px; color: #666; font-weight: bold; font-size: 16px;\">→</span>");
-                html.append("<span class=\"node parameter\" style=\"" +
-                        "padding: 10px; " +
-                        "background-color: #ffccbc; " +
-                        "border-radius: 5px; " +
-                        "box-shadow: 0 1px 2px rgba(0,0,0,0.1); " +
-                        "display: inline-block; " +
-                        "border: 1px solid #ffab91;\">" +
-                        param +
-                        "</span>");
+        });
+    }
+    
+    /**
+     * Bookmarks are kept per database, since each one has its own history
+     */
+    private String changeBookmarkPreference() {
+        return CHANGE_BOOKMARK_PREFERENCE + neo4jManager.getUri();
+    }
+    
+    /**
+     * Recounts the statistics from the graph and shows them again
+     */
+    private void recomputeGraphStatistics() {
+        if (!checkConnection()) return;
+        
+        statusLabel.setText("Recomputing graph statistics...");
+        
+        runInBackground(PREVIEW_TASK, "Recompute graph statistics", progress -> {
+            if (neo4jManager.recomputeGraphStatistics()) {
+                return this::showGraphStatistics;
             }
-            
-            html.append("</div>");
-            html.append("</div>");
+            updateStatus("Failed to recompute graph statistics, see the extension errors");
+            return null;
+        });
+    }
+    
+    /**
+     * Shows how often each query template ran and whether its plan was warmed
+     */
+    private void showPlanCacheStats() {
+        QueryPlanRegistry queryPlans = neo4jManager.getQueryPlans();
+        
+        StringBuilder html = new StringBuilder();
+        html.append("<h2>Query Plans</h2>");
+        html.append("<p>").append(queryPlans.getWarmedCount()).append(" of ").append(QueryTemplate.values().length)
+            .append(" templates warmed at connect.</p>");
+        html.append("<p>Neo4j does not report plan cache hits to clients, so no hit rate is shown. "
+            + "Templates always use the same query text, so each is planned once while it stays in the server's cache.</p>");
+        html.append("<table>");
+        html.append("<tr><th>Query</th><th>Executions</th><th>Distinct Texts</th><th>Warmed</th></tr>");
+        for (QueryPlanRegistry.PlanStats stats : queryPlans.getStats()) {
+            html.append("<tr>");
+            html.append("<td>").append(stats.name()).append("</td>");
+            html.append("<td>").append(stats.executions()).append("</td>");
+            html.append("<td>").append(stats.distinctTexts()).append("</td>");
+            html.append("<td>").append(stats.warmed() ? "yes" : "no").append("</td>");
+            html.append("</tr>");
         }
+        html.append("</table>");
+        
+        updateHTMLPreview(html.toString());
+        statusLabel.setText("Plan cache stats updated");
     }
     
     /**
-     * Loads all hosts from the database
+     * Runs the search box text against the full-text index of the selected scope
      */
-    public void loadAllHosts() {
-        if (!checkConnection()) return;
+    private void runSearch() {
+        String text = searchField.getText().trim();
+        long generation = searchGeneration.incrementAndGet();
+        if (text.length() < 2) return;
+        if (!neo4jManager.isConnected()) {
+            statusLabel.setText("Not connected to Neo4j");
+            return;
+        }
         
-        statusLabel.setText("Loading hosts...");
+        boolean parameters = searchScopeCombo.getSelectedIndex() == 0;
+        statusLabel.setText("Searching...");
         
-        new Thread(() -> {
+        runInBackground(PREVIEW_TASK, "Search for " + text, progress -> {
             try {
-                List<Record> hosts = neo4jManager.getAllHosts();
+                List<Record> results = parameters
+                    ? neo4jManager.searchParameters(text, SEARCH_LIMIT)
+                    : neo4jManager.searchEndpoints(text, SEARCH_LIMIT);
+                if (generation != searchGeneration.get()) return null;
                 
                 StringBuilder html = new StringBuilder();
-                html.append("<h2>Hosts in Database</h2>");
-                html.append("<p>Found ").append(hosts.size()).append(" hosts</p>");
+                html.append("<h2>").append(parameters ? "Parameters" : "Paths").append(" matching \"")
+                    .append(escapeHtml(text)).append("\"</h2>");
+                html.append("<p>Found ").append(results.size()).append(" results")
+                    .append(results.size() >= SEARCH_LIMIT ? " (showing the best " + SEARCH_LIMIT + ")" : "").append("</p>");
                 
-                if (!hosts.isEmpty()) {
-                    // Add visual representation of hosts
-                    html.append(createHostVisualization(hosts));
-                    
-                    // Add tabular data
-                    html.append("<h3>Host Details</h3>");
+                if (!results.isEmpty()) {
                     html.append("<table>");
-                    html.append("<tr><th>Host</th><th>Actions</th></tr>");
-                    
-                    for (Record record : hosts) {
-                        String hostName = record.get("host").asString();
-                        
+                    html.append(parameters
+                        ? "<tr><th>Parameter</th><th>Host</th><th>Method</th><th>Path</th></tr>"
+                        : "<tr><th>Host</th><th>Method</th><th>Path</th></tr>");
+                    for (Record record : results) {
                         html.append("<tr>");
-                        html.append("<td>").append(hostName).append("</td>");
-                        
-                        // Link to show endpoints
-                        String query = "MATCH (h:Host {name: '" + hostName + "'})-[:HAS_ENDPOINT]->(e:Endpoint) RETURN e.path AS path, e.method AS method ORDER BY path";
-                        String encodedQuery = java.net.URLEncoder.encode(query, java.nio.charset.StandardCharsets.UTF_8);
-                        html.append("<td><a href=\"http://localhost:7474/browser/?cmd=").append(encodedQuery).append("\">View Endpoints</a></td>");
-                        
+                        if (parameters) {
+                            html.append("<td>").append(escapeHtml(record.get("parameter").asString(""))).append("</td>");
+                        }
+                        html.append("<td>").append(escapeHtml(record.get("host").asString(""))).append("</td>");
+                        html.append("<td>").append(escapeHtml(record.get("method").asString(""))).append("</td>");
+                        html.append("<td>").append(escapeHtml(record.get("path").asString(""))).append("</td>");
                         html.append("</tr>");
                     }
-                    
                     html.append("</table>");
-                    
-                    // Add graph visualization hint
-                    String graphQuery = "MATCH (h:Host) RETURN h";
-                    String encodedGraphQuery = java.net.URLEncoder.encode(graphQuery, java.nio.charset.StandardCharsets.UTF_8);
-                    html.append("<p><a href=\"http://localhost:7474/browser/?cmd=").append(encodedGraphQuery).append("\">View Host Graph in Neo4j Browser</a></p>");
                 }
                 
-                updateHTMLPreview(html.toString());
-                updateStatus("Loaded " + hosts.size() + " hosts");
+                String preview = html.toString();
+                return () -> {
+                    updateHTMLPreview(preview);
+                    updateStatus("Found " + results.size() + " results for \"" + text + "\"");
+                };
             } catch (Exception e) {
                 updateStatus("Error: " + e.getMessage());
-                logError("Error loading hosts: " + e.getMessage(), e);
+                logError("Error searching: " + e.getMessage(), e);
+                return null;
             }
-        }).start();
+        });
     }
     
     /**
@@ -777,7 +1285,7 @@ public class GraphVisualizationPanel extends JPanel {
             // Create a node for each host with enhanced styling
             html.append("<div style=\"padding: 10px; background-color: #bbdefb; border-radius: 5px; " +
                     "border: 1px solid #90caf9; min-width: 100px; text-align: center; font-weight: bold;\">");
-            html.append(hostName);
+            html.append(escapeHtml(hostName));
             html.append("</div>");
         }
         
@@ -802,7 +1310,7 @@ public class GraphVisualizationPanel extends JPanel {
         
         statusLabel.setText("Finding similar endpoints...");
         
-        new Thread(() -> {
+        runInBackground(PREVIEW_TASK, "Find similar endpoints", progress -> {
             try {
                 List<Record> similarities = neo4jManager.findSimilarEndpointsByPath();
                 
@@ -841,13 +1349,17 @@ public class GraphVisualizationPanel extends JPanel {
                     html.append("<p><a href=\"http://localhost:7474/browser/?cmd=").append(encodedGraphQuery).append("\">View Similar Endpoints Graph in Neo4j Browser</a></p>");
                 }
                 
-                updateHTMLPreview(html.toString());
-                updateStatus("Found " + similarities.size() + " similar endpoints");
+                String preview = html.toString();
+                return () -> {
+                    updateHTMLPreview(preview);
+                    updateStatus("Found " + similarities.size() + " similar endpoints");
+                };
             } catch (Exception e) {
                 updateStatus("Error: " + e.getMessage());
                 logError("Error finding similar endpoints: " + e.getMessage(), e);
+                return null;
             }
-        }).start();
+        });
     }
     
     /**
@@ -858,7 +1370,7 @@ public class GraphVisualizationPanel extends JPanel {
         
         statusLabel.setText("Finding similar parameters...");
         
-        new Thread(() -> {
+        runInBackground(PREVIEW_TASK, "Find similar parameters", progress -> {
             try {
                 List<Record> similarities = neo4jManager.findSimilarParameters();
                 
@@ -896,13 +1408,17 @@ public class GraphVisualizationPanel extends JPanel {
                     html.append("<p><a href=\"http://localhost:7474/browser/?cmd=").append(encodedGraphQuery).append("\">View Parameter Relationships in Neo4j Browser</a></p>");
                 }
                 
-                updateHTMLPreview(html.toString());
-                updateStatus("Found " + similarities.size() + " similar parameters");
+                String preview = html.toString();
+                return () -> {
+                    updateHTMLPreview(preview);
+                    updateStatus("Found " + similarities.size() + " similar parameters");
+                };
             } catch (Exception e) {
                 updateStatus("Error: " + e.getMessage());
                 logError("Error finding similar parameters: " + e.getMessage(), e);
+                return null;
             }
-        }).start();
+        });
     }
     
     /**
@@ -913,7 +1429,7 @@ public class GraphVisualizationPanel extends JPanel {
         
         statusLabel.setText("Finding similar API patterns...");
         
-        new Thread(() -> {
+        runInBackground(PREVIEW_TASK, "Find similar API patterns", progress -> {
             try {
                 List<Record> similarities = neo4jManager.findSimilarAPIPatterns();
                 
@@ -966,13 +1482,17 @@ public class GraphVisualizationPanel extends JPanel {
                     html.append("<p><a href=\"http://localhost:7474/browser/?cmd=").append(encodedGraphQuery).append("\">View API Patterns in Neo4j Browser</a></p>");
                 }
                 
-                updateHTMLPreview(html.toString());
-                updateStatus("Found " + similarities.size() + " similar API patterns");
+                String preview = html.toString();
+                return () -> {
+                    updateHTMLPreview(preview);
+                    updateStatus("Found " + similarities.size() + " similar API patterns");
+                };
             } catch (Exception e) {
                 updateStatus("Error: " + e.getMessage());
                 logError("Error finding similar API patterns: " + e.getMessage(), e);
+                return null;
             }
-        }).start();
+        });
     }
     
     /**
@@ -1153,14 +1673,57 @@ public class GraphVisualizationPanel extends JPanel {
         dialog.setVisible(true);
     }
     
+    /**
+     * Clears the results table for a new query and shows it in place of the HTML preview.
+     * Must be called on the event dispatch thread.
+     */
+    private void showQueryResults(String query, String state) {
+        queryResultsPanel.start(query, state);
+        ((CardLayout) resultsCards.getLayout()).show(resultsCards, RESULTS_CARD);
+    }
+    
     // Utility methods
     private void updateHTMLPreview(final String html) {
         SwingUtilities.invokeLater(() -> {
+            ((CardLayout) resultsCards.getLayout()).show(resultsCards, HTML_CARD);
             htmlPreview.setText(html);
             htmlPreview.setCaretPosition(0);
         });
     }
     
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+    
+    /**
+     * Runs work on the UI task pool. The work returns the UI update to apply, which
+     * runs on the event dispatch thread unless a newer task with the same key
+     * superseded this one. Returning null applies nothing.
+     */
+    /**
+     * Starts the local graph server if needed and opens the interactive graph in the browser
+     */
+    private void openInteractiveGraph() {
+        runInBackground("interactive-graph", "Start graph server", progress -> {
+            try {
+                String url = graphServer.start();
+                Desktop.getDesktop().browse(new java.net.URI(url));
+                return () -> statusLabel.setText("Interactive graph opened at " + url);
+            } catch (Exception e) {
+                api.logging().logToError("Error opening interactive graph: " + e.getMessage());
+                return () -> statusLabel.setText("Error opening interactive graph: " + e.getMessage());
+            }
+        });
+    }
+    
+    private void runInBackground(String key, String description, UiTaskScheduler.Work<Runnable, Void> work) {
+        tasks.submit(key, description, work, render -> {
+            if (render != null) {
+                render.run();
+            }
+        });
+    }
+    
     private void updateStatus(final String status) {
         SwingUtilities.invokeLater(() -> {
             statusLabel.setText(status);
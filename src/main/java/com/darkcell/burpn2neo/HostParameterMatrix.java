@@ -0,0 +1,289 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory host x parameter matrix for host similarity.
+ * Every parameter name gets a dense int id and every host a compressed bitset of
+ * the parameters seen on its endpoints. The matrix is built from one streaming
+ * scan after connecting and kept current by ingestion, so top host pairs are
+ * computed from bitset intersections instead of expanding
+ * Host-Endpoint-Parameter-Endpoint-Host paths in the database.
+ */
+public class HostParameterMatrix {
+    private static final int SCAN_FETCH_SIZE = 2000;
+
+    /**
+     * Similarity measure for a pair of hosts
+     */
+    public enum Measure {
+        // Shared parameters divided by all parameters of both hosts
+        JACCARD("Jaccard"),
+        // Shared parameters divided by the parameters of the smaller host
+        OVERLAP("Overlap");
+
+        private final String label;
+
+        Measure(String label) {
+            this.label = label;
+        }
+
+        double score(int shared, int size1, int size2) {
+            if (shared == 0) return 0.0;
+            return this == JACCARD
+                ? (double) shared / (size1 + size2 - shared)
+                : (double) shared / Math.min(size1, size2);
+        }
+
+        /**
+         * Best score a pair of hosts with these sizes can reach, used to skip pairs early
+         */
+        double upperBound(int size1, int size2) {
+            if (size1 == 0 || size2 == 0) return 0.0;
+            return this == JACCARD ? (double) Math.min(size1, size2) / Math.max(size1, size2) : 1.0;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final Logging logging;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Matrix current = new Matrix();
+    // Matrix being rebuilt, receives ingested parameters too so none are lost on swap
+    private Matrix building;
+    private volatile boolean ready = false;
+    // Bumped by every rebuild and clear, an older rebuild stops when it sees a newer one
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    public HostParameterMatrix(Logging logging) {
+        this.logging = logging;
+    }
+
+    /**
+     * Rebuilds the matrix from the database with a single streaming scan.
+     * Queries keep using the previous matrix until the new one is complete.
+     * Starting another rebuild or clearing the matrix cancels this one.
+     */
+    public void rebuild(SessionFactory sessions) {
+        long start = System.currentTimeMillis();
+        long rebuild = rebuilds.incrementAndGet();
+        Matrix fresh = new Matrix();
+        lock.writeLock().lock();
+        try {
+            building = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        boolean completed = false;
+        try (Session session = sessions.read(SCAN_FETCH_SIZE)) {
+            Result result = session.run(QueryTemplate.HOST_PARAMETER_SCAN.cypher());
+            while (result.hasNext()) {
+                if (rebuilds.get() != rebuild) break;
+                Record record = result.next();
+                String host = record.get("host").asString(null);
+                String parameter = record.get("parameter").asString(null);
+                if (host == null || parameter == null) continue;
+
+                lock.writeLock().lock();
+                try {
+                    fresh.add(host, parameter);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            completed = rebuilds.get() == rebuild;
+        } catch (Exception e) {
+            if (rebuilds.get() == rebuild) {
+                logging.logToError("Error building host parameter matrix: " + e.getMessage());
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // A newer rebuild or clear has taken over, this one must not touch its state
+                completed = completed && rebuilds.get() == rebuild;
+                if (completed) {
+                    current = fresh;
+                    ready = true;
+                }
+                if (building == fresh) {
+                    building = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        if (completed) {
+            logging.logToOutput("Built host parameter matrix: " + fresh.hostCount() + " hosts, "
+                + fresh.parameterCount() + " parameters in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    /**
+     * Records that a parameter was seen on one of the host's endpoints
+     */
+    public void add(String host, String parameter) {
+        if (host == null || parameter == null) return;
+
+        lock.writeLock().lock();
+        try {
+            current.add(host, parameter);
+            if (building != null) {
+                building.add(host, parameter);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops all data, e.g. when connecting to another database
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rebuilds.incrementAndGet();
+            building = null;
+            current = new Matrix();
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the initial scan has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getHostCount() {
+        lock.readLock().lock();
+        try {
+            return current.hostCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Computes the k most similar host pairs, spreading the pairwise comparisons over all cores.
+     * Pairs without shared parameters are never returned.
+     */
+    public List<HostPair> topPairs(Measure measure, int k) {
+        if (k <= 0) return List.of();
+        // Compared on a copy, so ingestion can keep adding while the pairs are computed
+        Matrix matrix;
+        lock.readLock().lock();
+        try {
+            if (current.hostCount() < 2) return List.of();
+            matrix = current.copyRows();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Every worker keeps its own top k, the partial results are merged at the end
+        return IntStream.range(0, matrix.hostCount() - 1).parallel()
+            .mapToObj(i -> topPairsFor(matrix, i, measure, k))
+            .flatMap(List::stream)
+            .sorted(HostPair.BY_SCORE_DESC)
+            .limit(k)
+            .toList();
+    }
+
+    private static List<HostPair> topPairsFor(Matrix matrix, int i, Measure measure, int k) {
+        CompressedBitSet first = matrix.rows.get(i);
+        int size1 = first.cardinality();
+        if (size1 == 0) return List.of();
+
+        PriorityQueue<HostPair> best = new PriorityQueue<>(k + 1, HostPair.BY_SCORE_DESC.reversed());
+        for (int j = i + 1; j < matrix.hostCount(); j++) {
+            CompressedBitSet second = matrix.rows.get(j);
+            int size2 = second.cardinality();
+            if (best.size() == k && measure.upperBound(size1, size2) <= best.peek().score()) continue;
+
+            int shared = first.andCardinality(second);
+            if (shared == 0) continue;
+
+            double score = measure.score(shared, size1, size2);
+            if (best.size() < k) {
+                best.add(new HostPair(matrix.hosts.get(i), matrix.hosts.get(j), shared, score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new HostPair(matrix.hosts.get(i), matrix.hosts.get(j), shared, score));
+            }
+        }
+        return new ArrayList<>(best);
+    }
+
+    /**
+     * Two hosts and how similar their parameter sets are
+     */
+    public record HostPair(String host1, String host2, int sharedParameters, double score) {
+        static final Comparator<HostPair> BY_SCORE_DESC = Comparator
+            .comparingDouble(HostPair::score).reversed()
+            .thenComparing(Comparator.comparingInt(HostPair::sharedParameters).reversed());
+    }
+
+    /**
+     * Host and parameter dictionaries with one bitset row per host
+     */
+    private static final class Matrix {
+        private final Map<String, Integer> parameterIds = new HashMap<>();
+        private final Map<String, Integer> hostIds = new HashMap<>();
+        private final List<String> hosts = new ArrayList<>();
+        private final List<CompressedBitSet> rows = new ArrayList<>();
+
+        void add(String host, String parameter) {
+            Integer parameterId = parameterIds.computeIfAbsent(parameter, name -> parameterIds.size());
+            Integer hostId = hostIds.get(host);
+            if (hostId == null) {
+                hostId = hosts.size();
+                hostIds.put(host, hostId);
+                hosts.add(host);
+                rows.add(new CompressedBitSet());
+            }
+            rows.get(hostId).add(parameterId);
+        }
+
+        int hostCount() {
+            return hosts.size();
+        }
+
+        int parameterCount() {
+            return parameterIds.size();
+        }
+
+        /**
+         * Copy of the hosts and their rows, without the parameter ids, for comparing hosts
+         */
+        Matrix copyRows() {
+            Matrix copy = new Matrix();
+            copy.hosts.addAll(hosts);
+            for (CompressedBitSet row : rows) {
+                copy.rows.add(row.copy());
+            }
+            return copy;
+        }
+    }
+}
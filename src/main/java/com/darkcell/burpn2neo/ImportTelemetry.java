@@ -0,0 +1,133 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Collects the progress of an import without touching the UI.
+ * The import thread only updates counters, and the UI reads them with
+ * {@link #snapshot()} at its own refresh rate, so the event dispatch thread
+ * sees a few updates per second however fast items are imported.
+ * Errors are counted by stage and exception type, and only the first error of
+ * each type is logged.
+ */
+public class ImportTelemetry implements Neo4jManager.ProgressCallback {
+    // Weight of the latest sample in the smoothed rate, lower is steadier
+    private static final double RATE_SMOOTHING = 0.2;
+
+    /**
+     * State of the import at one point in time
+     * @param itemsPerSecond smoothed over the last few samples, 0 before the second sample
+     * @param batchMillis average write time per item since the previous sample,
+     *                    or since the start if no item was written in between
+     * @param maxBatchMillis slowest write of a single item so far
+     * @param etaSeconds estimated time until the import is done, -1 while unknown
+     * @param errors error counts by stage and exception type
+     */
+    public record Snapshot(long processed, long total, long elapsedMillis, double itemsPerSecond,
+                           double batchMillis, double maxBatchMillis, long etaSeconds, Map<String, Long> errors) {
+        public long errorCount() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public int percent() {
+            return total == 0 ? 100 : (int) (processed * 100 / total);
+        }
+    }
+
+    private final Logging logging;
+    private final BooleanSupplier cancelled;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final AtomicLong maxWriteNanos = new AtomicLong();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    // Sampling state, guarded by this
+    private long lastSampleNanos = 0;
+    private long lastSampleProcessed = 0;
+    private long lastSampleWrites = 0;
+    private long lastSampleWriteNanos = 0;
+    private double rate = 0;
+
+    /**
+     * @param cancelled checked before each item, the import stops once it returns true
+     */
+    public ImportTelemetry(Logging logging, BooleanSupplier cancelled) {
+        this.logging = logging;
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public void onProgress(int current, int totalItems) {
+        processed.set(current);
+        total.set(totalItems);
+    }
+
+    @Override
+    public void onItemWritten(long nanos) {
+        writes.increment();
+        writeNanos.add(nanos);
+        maxWriteNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public void onError(String stage, Exception e) {
+        String type = stage + ": " + e.getClass().getSimpleName();
+        LongAdder count = errors.computeIfAbsent(type, key -> {
+            logging.logToError("Error importing " + stage + ": " + e.getMessage()
+                + " (further " + key + " errors are only counted)");
+            return new LongAdder();
+        });
+        count.increment();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled.getAsBoolean();
+    }
+
+    /**
+     * Reads the counters and updates the smoothed rate, call it at a steady interval
+     */
+    public synchronized Snapshot snapshot() {
+        long now = System.nanoTime();
+        long done = processed.get();
+        long writeCount = writes.sum();
+        long writeTime = writeNanos.sum();
+
+        if (lastSampleNanos != 0 && now > lastSampleNanos) {
+            double sampleRate = (done - lastSampleProcessed) * 1e9 / (now - lastSampleNanos);
+            rate = rate == 0 ? sampleRate : RATE_SMOOTHING * sampleRate + (1 - RATE_SMOOTHING) * rate;
+        }
+
+        double batchMillis;
+        if (writeCount > lastSampleWrites) {
+            batchMillis = (writeTime - lastSampleWriteNanos) / 1e6 / (writeCount - lastSampleWrites);
+        } else {
+            batchMillis = writeCount == 0 ? 0 : writeTime / 1e6 / writeCount;
+        }
+
+        lastSampleNanos = now;
+        lastSampleProcessed = done;
+        lastSampleWrites = writeCount;
+        lastSampleWriteNanos = writeTime;
+
+        long remaining = Math.max(0, total.get() - done);
+        long eta = rate > 0 ? (long) Math.ceil(remaining / rate) : (remaining == 0 && done > 0 ? 0 : -1);
+
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+
+        return new Snapshot(done, total.get(), (now - startNanos) / 1_000_000, rate, batchMillis,
+            maxWriteNanos.get() / 1e6, eta, errorCounts);
+    }
+}
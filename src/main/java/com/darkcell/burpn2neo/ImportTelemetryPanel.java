@@ -0,0 +1,122 @@
+package com.darkcell.burpn2neo;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Shows the throughput, write time, errors and remaining time of a running import.
+ * A timer samples {@link ImportTelemetry} a few times per second, so the panel
+ * costs the same whether the import handles ten items per second or ten thousand.
+ * Use it from the event dispatch thread only.
+ */
+public class ImportTelemetryPanel extends JPanel {
+    private static final int REFRESH_MS = 250;
+
+    private final JLabel processedLabel = new JLabel("-");
+    private final JLabel rateLabel = new JLabel("-");
+    private final JLabel etaLabel = new JLabel("-");
+    private final JLabel writeLabel = new JLabel("-");
+    private final JLabel errorsLabel = new JLabel("-");
+    private final JTextArea errorsArea = new JTextArea(3, 40);
+    private final Timer timer;
+    private ImportTelemetry telemetry;
+    private boolean running = false;
+    private IntConsumer percentListener = percent -> {};
+
+    public ImportTelemetryPanel() {
+        super(new BorderLayout(5, 5));
+        setBorder(new EmptyBorder(5, 0, 5, 0));
+
+        JPanel stats = new JPanel(new GridLayout(0, 2, 10, 2));
+        stats.add(new JLabel("Processed:"));
+        stats.add(processedLabel);
+        stats.add(new JLabel("Items per second:"));
+        stats.add(rateLabel);
+        stats.add(new JLabel("Time remaining:"));
+        stats.add(etaLabel);
+        stats.add(new JLabel("Write time per item:"));
+        stats.add(writeLabel);
+        stats.add(new JLabel("Errors:"));
+        stats.add(errorsLabel);
+        add(stats, BorderLayout.NORTH);
+
+        errorsArea.setEditable(false);
+        errorsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        add(new JScrollPane(errorsArea), BorderLayout.CENTER);
+
+        timer = new Timer(REFRESH_MS, e -> refresh());
+    }
+
+    /**
+     * Starts showing an import
+     * @param percentListener called with the progress on every refresh
+     */
+    public void start(ImportTelemetry telemetry, IntConsumer percentListener) {
+        this.telemetry = telemetry;
+        this.percentListener = percentListener;
+        errorsArea.setText("");
+        refresh();
+        running = true;
+        if (isDisplayable()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Shows the final numbers and stops refreshing
+     * @return the final numbers, or null if no import was started
+     */
+    public ImportTelemetry.Snapshot stop() {
+        running = false;
+        timer.stop();
+        return refresh();
+    }
+
+    // Stops refreshing when the extension's tab is removed on unload, and resumes if it is shown again
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (running) {
+            timer.start();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    private ImportTelemetry.Snapshot refresh() {
+        if (telemetry == null) return null;
+
+        ImportTelemetry.Snapshot snapshot = telemetry.snapshot();
+        processedLabel.setText(snapshot.processed() + " / " + snapshot.total() + " (" + snapshot.percent() + "%)"
+            + " in " + formatDuration(snapshot.elapsedMillis() / 1000));
+        rateLabel.setText(String.format("%.1f", snapshot.itemsPerSecond()));
+        etaLabel.setText(snapshot.etaSeconds() < 0 ? "estimating..." : formatDuration(snapshot.etaSeconds()));
+        writeLabel.setText(String.format("%.1f ms (slowest %.1f ms)", snapshot.batchMillis(), snapshot.maxBatchMillis()));
+        errorsLabel.setText(Long.toString(snapshot.errorCount()));
+
+        StringBuilder errors = new StringBuilder();
+        for (Map.Entry<String, Long> entry : snapshot.errors().entrySet()) {
+            errors.append(entry.getValue()).append("  ").append(entry.getKey()).append('\n');
+        }
+        if (!errors.toString().equals(errorsArea.getText())) {
+            errorsArea.setText(errors.toString());
+        }
+
+        percentListener.accept(snapshot.percent());
+        return snapshot;
+    }
+
+    static String formatDuration(long seconds) {
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
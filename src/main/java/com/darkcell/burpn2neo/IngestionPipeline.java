@@ -0,0 +1,213 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.http.message.params.ParsedHttpParameter;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.logging.Logging;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes captured traffic to Neo4j off Burp's HTTP threads.
+ * The HTTP handler only extracts host, path, method and parameters and queues
+ * them. When the queue is full the request is shed instead of blocking Burp.
+ * A single writer thread drains the queue in batches. Every step is measured
+ * in the {@link MetricsRegistry} under "capture.", and nothing is logged per request.
+ * Sampled requests are also timed stage by stage by a {@link StageTracer}.
+ */
+public class IngestionPipeline implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 200;
+    private static final long POLL_TIMEOUT_MS = 500;
+
+    /**
+     * What is stored of one captured request
+     * @param capturedAt System.nanoTime() right before it was queued
+     * @param trace the stage times if the request is sampled, null otherwise
+     */
+    public record CapturedRequest(String host, String path, String method, List<Parameter> parameters,
+                                  long capturedAt, StageTracer.Trace trace) {
+    }
+
+    public record Parameter(String name, String value) {
+    }
+
+    private final Logging logging;
+    private final LogBuffer log;
+    private final Neo4jManager neo4jManager;
+    private final BlockingQueue<CapturedRequest> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final StageTracer tracer;
+    private final MetricsRegistry.Counter received;
+    private final MetricsRegistry.Counter written;
+    private final MetricsRegistry.Counter shed;
+    private final MetricsRegistry.Counter dropped;
+    private final MetricsRegistry.Counter failed;
+    private final MetricsRegistry.Histogram batchSizes;
+    private final MetricsRegistry.Histogram commitLatency;
+    private final MetricsRegistry.Histogram batchLatency;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public IngestionPipeline(Logging logging, LogBuffer log, Neo4jManager neo4jManager, MetricsRegistry metrics) {
+        this.logging = logging;
+        this.log = log;
+        this.neo4jManager = neo4jManager;
+        received = metrics.counter("capture.received");
+        written = metrics.counter("capture.written");
+        shed = metrics.counter("capture.shed");
+        dropped = metrics.counter("capture.dropped");
+        failed = metrics.counter("capture.failed");
+        batchSizes = metrics.histogram("capture.batchSize", "requests");
+        commitLatency = metrics.histogram("capture.commitLatency", "us");
+        batchLatency = metrics.histogram("capture.batchLatency", "us");
+        metrics.gauge("capture.queueDepth", queue::size);
+        metrics.gauge("capture.lagMillis", this::getLagMillis);
+        tracer = new StageTracer(metrics);
+
+        writer = new Thread(this::run, "NeoBurp-ingest");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a request for writing, returns false if it was shed because the queue is full
+     */
+    public boolean submit(HttpRequest request) {
+        return submit(request, tracer.start());
+    }
+
+    /**
+     * Queues a request whose trace was started by the caller
+     * @param trace from {@link StageTracer#start()}, null if the request is not sampled
+     */
+    public boolean submit(HttpRequest request, StageTracer.Trace trace) {
+        received.increment();
+        CapturedRequest captured = extract(request, trace);
+        // The writer owns the trace once it is queued, the enqueue stage ends at capturedAt
+        if (queue.offer(captured)) return true;
+        shed.increment();
+        return false;
+    }
+
+    public StageTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Number of requests waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * How long the oldest queued request has been waiting, 0 if none is waiting
+     */
+    public long getLagMillis() {
+        CapturedRequest oldest = queue.peek();
+        return oldest == null ? 0 : (System.nanoTime() - oldest.capturedAt()) / 1_000_000;
+    }
+
+    static CapturedRequest extract(HttpRequest request, StageTracer.Trace trace) {
+        String url = request.url();
+        String path;
+        try {
+            path = new URL(url).getPath();
+            if (path.isEmpty()) {
+                path = "/";
+            }
+        } catch (Exception e) {
+            path = url;
+        }
+        String host = request.httpService().host();
+        String method = request.method();
+        if (trace != null) {
+            trace.lap(StageTracer.Stage.URL_PARSE);
+        }
+
+        List<ParsedHttpParameter> parsed = request.parameters();
+        List<Parameter> parameters = new ArrayList<>(parsed.size());
+        for (ParsedHttpParameter parameter : parsed) {
+            parameters.add(new Parameter(parameter.name(), parameter.value()));
+        }
+        if (trace != null) {
+            trace.lap(StageTracer.Stage.PARAMETERS);
+        }
+        return new CapturedRequest(host, path, method, parameters, System.nanoTime(), trace);
+    }
+
+    private void run() {
+        List<CapturedRequest> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                CapturedRequest first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logging.logToError("Error writing captured requests: " + e.getMessage());
+                log.error("capture", "Error writing captured requests: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<CapturedRequest> batch) {
+        batchSizes.record(batch.size());
+        if (!neo4jManager.isConnected()) {
+            dropped.add(batch.size());
+            return;
+        }
+
+        long started = System.nanoTime();
+        Neo4jManager.BatchTimes times;
+        try {
+            // The whole batch is one transaction, it is written or fails as a whole
+            times = neo4jManager.writeRequests(batch);
+        } catch (Exception e) {
+            failed.add(batch.size());
+            // One line per batch, the counts are in the metrics
+            String message = "Error writing " + batch.size() + " captured requests: " + e.getMessage();
+            logging.logToError(message);
+            log.error("capture", message);
+            return;
+        } finally {
+            batchLatency.record((System.nanoTime() - started) / 1000);
+        }
+        commitLatency.record((times.committed() - times.parametersWritten()) / 1000);
+        written.add(batch.size());
+
+        // The statements are shared by the batch, so its traced requests get the same stage ends
+        for (CapturedRequest request : batch) {
+            StageTracer.Trace trace = request.trace();
+            if (trace == null) continue;
+            trace.lapAt(StageTracer.Stage.ENQUEUE, request.capturedAt());
+            trace.lapAt(StageTracer.Stage.QUEUE_WAIT, started);
+            trace.lapAt(StageTracer.Stage.HOST_WRITE, times.hostsWritten());
+            trace.lapAt(StageTracer.Stage.ENDPOINT_WRITE, times.endpointsWritten());
+            trace.lapAt(StageTracer.Stage.PARAMETER_WRITES, times.parametersWritten());
+            trace.lapAt(StageTracer.Stage.COMMIT, times.committed());
+            tracer.finish(trace, request.method(), request.host(), request.path(), request.parameters().size());
+        }
+    }
+
+    /**
+     * Stops the writer, requests still queued are not written
+     */
+    @Override
+    public void close() {
+        running = false;
+        writer.interrupt();
+        dropped.add(queue.size());
+        queue.clear();
+    }
+}
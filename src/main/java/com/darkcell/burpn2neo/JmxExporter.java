@@ -0,0 +1,161 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes every metric of a {@link MetricsRegistry} as a platform MBean, so
+ * headless Burp instances can be monitored with JConsole, VisualVM or any JMX
+ * agent. Metrics appear under com.darkcell.burpn2neo, grouped by the first part
+ * of their name, e.g. type=capture,name=queueDepth. Metrics created later are
+ * published when they are created.
+ */
+public class JmxExporter implements MetricsRegistry.Listener, AutoCloseable {
+    public static final String DOMAIN = "com.darkcell.burpn2neo";
+
+    /**
+     * One metric. Counters and gauges only have a value, histograms also the
+     * distribution of the recorded values.
+     */
+    public interface MetricMXBean {
+        String getKind();
+
+        String getUnit();
+
+        /**
+         * The count of counters and histograms, the current value of gauges
+         */
+        long getValue();
+
+        double getMean();
+
+        long getP50();
+
+        long getP90();
+
+        long getP99();
+
+        long getMax();
+    }
+
+    private static final class Metric implements MetricMXBean {
+        private final MetricsRegistry metrics;
+        private final String name;
+
+        Metric(MetricsRegistry metrics, String name) {
+            this.metrics = metrics;
+            this.name = name;
+        }
+
+        private MetricsRegistry.Sample sample() {
+            MetricsRegistry.Sample sample = metrics.sample(name);
+            if (sample == null) {
+                throw new IllegalStateException("Metric " + name + " no longer exists");
+            }
+            return sample;
+        }
+
+        private MetricsRegistry.HistogramSnapshot histogram() {
+            MetricsRegistry.HistogramSnapshot histogram = sample().histogram();
+            return histogram != null ? histogram : new MetricsRegistry.HistogramSnapshot(0, 0, 0, 0, 0, 0);
+        }
+
+        @Override
+        public String getKind() {
+            return sample().kind().name().toLowerCase();
+        }
+
+        @Override
+        public String getUnit() {
+            return sample().unit();
+        }
+
+        @Override
+        public long getValue() {
+            return sample().value();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram().mean();
+        }
+
+        @Override
+        public long getP50() {
+            return histogram().p50();
+        }
+
+        @Override
+        public long getP90() {
+            return histogram().p90();
+        }
+
+        @Override
+        public long getP99() {
+            return histogram().p99();
+        }
+
+        @Override
+        public long getMax() {
+            return histogram().max();
+        }
+    }
+
+    private final Logging logging;
+    private final MetricsRegistry metrics;
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final List<ObjectName> registered = new CopyOnWriteArrayList<>();
+
+    public JmxExporter(Logging logging, MetricsRegistry metrics) {
+        this.logging = logging;
+        this.metrics = metrics;
+        metrics.addListener(this);
+    }
+
+    @Override
+    public void metricAdded(String name, MetricsRegistry.Kind kind) {
+        try {
+            ObjectName objectName = objectName(name);
+            synchronized (this) {
+                // A previous instance of the extension may not have been unloaded cleanly
+                if (server.isRegistered(objectName)) {
+                    if (registered.contains(objectName)) return;
+                    server.unregisterMBean(objectName);
+                }
+                server.registerMBean(new Metric(metrics, name), objectName);
+                registered.add(objectName);
+            }
+        } catch (Exception e) {
+            logging.logToError("Error publishing metric " + name + " over JMX: " + e.getMessage());
+        }
+    }
+
+    static ObjectName objectName(String name) throws Exception {
+        int dot = name.indexOf('.');
+        String type = dot > 0 ? name.substring(0, dot) : "general";
+        String metric = dot > 0 ? name.substring(dot + 1) : name;
+        // Metric names only use letters, digits, dots and underscores, none of which need quoting
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + metric);
+    }
+
+    /**
+     * Removes all published MBeans, so the extension can be loaded again
+     */
+    @Override
+    public synchronized void close() {
+        metrics.removeListener(this);
+        for (ObjectName objectName : registered) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (Exception e) {
+                // Already gone
+            }
+        }
+        registered.clear();
+    }
+}
@@ -0,0 +1,218 @@
+package com.darkcell.burpn2neo;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Writes JSON straight to a {@link Writer} without building it in memory first.
+ * Strings are fully escaped, including backslashes, control characters and the
+ * line separators JavaScript does not allow in string literals. '<' is escaped
+ * as well, so the output can be embedded in an HTML script element.
+ * Wrap the target in a BufferedWriter, every token is written separately.
+ */
+public class JsonWriter implements Flushable, Closeable {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private enum Scope {
+        ARRAY,
+        OBJECT
+    }
+
+    private final Writer out;
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    // Whether the current array or object already has an element, i.e. needs a comma
+    private boolean hasElement = false;
+    // Whether a name was written and its value is due
+    private boolean afterName = false;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open(Scope.ARRAY, '[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(Scope.ARRAY, ']');
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open(Scope.OBJECT, '{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close(Scope.OBJECT, '}');
+    }
+
+    /**
+     * Writes the name of the next object member
+     */
+    public JsonWriter name(String name) throws IOException {
+        if (scopes.peek() != Scope.OBJECT || afterName) {
+            throw new IllegalStateException("Name outside of an object: " + name);
+        }
+        separate();
+        string(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        // NaN and infinity have no JSON form
+        if (Double.isNaN(value) || Double.isInfinite(value)) return nullValue();
+        beforeValue();
+        out.write(Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    /**
+     * Writes strings, numbers, booleans, maps and iterables, and any other object as its string form
+     */
+    public JsonWriter value(Object value) throws IOException {
+        if (value == null) return nullValue();
+        if (value instanceof String string) return value(string);
+        if (value instanceof Boolean bool) return value(bool.booleanValue());
+        if (value instanceof Double || value instanceof Float) return value(((Number) value).doubleValue());
+        if (value instanceof Number number) return value(number.longValue());
+        if (value instanceof Map<?, ?> map) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                name(String.valueOf(entry.getKey()));
+                value(entry.getValue());
+            }
+            return endObject();
+        }
+        if (value instanceof Iterable<?> iterable) {
+            beginArray();
+            for (Object item : iterable) {
+                value(item);
+            }
+            return endArray();
+        }
+        return value(value.toString());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the underlying writer, all arrays and objects must be complete
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+        if (!scopes.isEmpty()) {
+            throw new IllegalStateException("Unclosed " + scopes.peek().name().toLowerCase());
+        }
+    }
+
+    private JsonWriter open(Scope scope, char bracket) throws IOException {
+        beforeValue();
+        out.write(bracket);
+        scopes.push(scope);
+        hasElement = false;
+        return this;
+    }
+
+    private JsonWriter close(Scope scope, char bracket) throws IOException {
+        if (scopes.peek() != scope || afterName) {
+            throw new IllegalStateException("Cannot close " + scope.name().toLowerCase() + " here");
+        }
+        scopes.pop();
+        out.write(bracket);
+        // The closed array or object is an element of its parent
+        hasElement = true;
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (scopes.peek() == Scope.OBJECT) {
+            throw new IllegalStateException("Object members need a name");
+        }
+        separate();
+    }
+
+    private void separate() throws IOException {
+        if (hasElement) {
+            out.write(',');
+        }
+        hasElement = true;
+    }
+
+    private void string(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"') {
+                replacement = "\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\";
+            } else if (c == '\n') {
+                replacement = "\\n";
+            } else if (c == '\r') {
+                replacement = "\\r";
+            } else if (c == '\t') {
+                replacement = "\\t";
+            } else if (c < 0x20 || c == '<' || c == 0x2028 || c == 0x2029) {
+                replacement = unicodeEscape(c);
+            } else {
+                continue;
+            }
+            // Copy the run of characters that needed no escaping in one write
+            if (start < i) {
+                out.write(value, start, i - start);
+            }
+            out.write(replacement);
+            start = i + 1;
+        }
+        if (start < length) {
+            out.write(value, start, length - start);
+        }
+        out.write('"');
+    }
+
+    private static String unicodeEscape(char c) {
+        return new String(new char[]{'\\', 'u', HEX[(c >> 12) & 0xf], HEX[(c >> 8) & 0xf], HEX[(c >> 4) & 0xf], HEX[c & 0xf]});
+    }
+}
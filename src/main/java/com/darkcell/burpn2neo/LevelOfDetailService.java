@@ -0,0 +1,359 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the graph to the interactive view as nested clusters, so the view only
+ * ever draws a few hundred nodes however large the graph is.
+ * Hosts are clustered by domain, the endpoints of a host by path prefix and the
+ * parameters of an endpoint by classifier category. A cluster is expanded one
+ * level at a time when the user opens it, and a level with more than
+ * {@link #MAX_CHILDREN} entries ends in a "more" node that loads the next batch.
+ * The aggregations run on the server through the result cache. The domain
+ * clusters only depend on the host statistics, so they are kept until
+ * {@link Neo4jManager#getStatisticsVersion()} changes, not rebuilt on every write.
+ */
+public class LevelOfDetailService {
+    // Entries returned per expansion, including the "more" node
+    public static final int MAX_CHILDREN = 50;
+    // Prefixes with at most this many endpoints list them instead of splitting further
+    private static final int LIST_THRESHOLD = 30;
+    // Endpoints with at most this many parameters list them instead of grouping by category
+    private static final int PARAMETER_LIST_THRESHOLD = 12;
+    // Prefixes with a single sub-group are followed down at most this many segments
+    private static final int MAX_PREFIX_DEPTH = 16;
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final Pattern PORT = Pattern.compile(":\\d+$");
+    // Second-level labels that belong to the suffix, as in co.uk or com.au
+    private static final Set<String> SECOND_LEVEL = Set.of("co", "com", "net", "org", "gov", "edu", "ac");
+
+    public enum Kind {
+        DOMAIN,
+        HOST,
+        PREFIX,
+        ENDPOINT,
+        CATEGORY,
+        PARAMETER,
+        MORE
+    }
+
+    /**
+     * One node of an expansion
+     * @param size endpoints of domains, hosts and prefixes, parameters of endpoints
+     *             and categories, and values of parameters
+     * @param expand request parameters that expand the node, null for leaves
+     */
+    public record Node(String id, String label, Kind kind, long size, Map<String, String> expand) {
+    }
+
+    private record HostEntry(String name, long endpoints) {
+    }
+
+    private record Domain(String name, List<HostEntry> hosts, long endpoints) {
+    }
+
+    private record DomainIndex(String version, List<Domain> domains, Map<String, Domain> byName) {
+    }
+
+    private final Neo4jManager neo4jManager;
+    private DomainIndex index;
+
+    public LevelOfDetailService(Neo4jManager neo4jManager) {
+        this.neo4jManager = neo4jManager;
+    }
+
+    /**
+     * Returns the children of the node described by the request parameters.
+     * level is one of root, domain, host, prefix, endpoint and category, the
+     * remaining parameters are the ones in {@link Node#expand()}.
+     * @throws IllegalArgumentException for an unknown level or a missing parameter
+     */
+    public List<Node> expand(Map<String, String> request) {
+        String level = request.getOrDefault("level", "root");
+        int offset = offset(request);
+        return switch (level) {
+            case "root" -> domains(offset);
+            case "domain" -> hostsOfDomain(required(request, "domain"), offset);
+            case "host", "prefix" -> prefix(required(request, "host"), segments(request.getOrDefault("prefix", "")),
+                "list".equals(request.get("mode")), offset);
+            case "endpoint" -> parameterCategories(required(request, "host"), required(request, "path"),
+                required(request, "method"), offset);
+            case "category" -> parameters(required(request, "host"), required(request, "path"),
+                required(request, "method"), required(request, "category"), offset);
+            default -> throw new IllegalArgumentException("Unknown level: " + level);
+        };
+    }
+
+    /**
+     * Version of the data an expansion is built from, for the ETag of its response.
+     * Domains and their hosts come from the host statistics, deeper levels from
+     * the endpoints and parameters themselves.
+     */
+    public String getVersion(Map<String, String> request) {
+        String level = request.getOrDefault("level", "root");
+        if (level.equals("root") || level.equals("domain")) {
+            return "s" + neo4jManager.getStatisticsVersion();
+        }
+        return neo4jManager.getDataVersion();
+    }
+
+    /**
+     * Domains by endpoint count, a domain with a single host is shown as the host
+     */
+    private List<Node> domains(int offset) {
+        List<Domain> domains = domainIndex().domains();
+        List<Node> nodes = new ArrayList<>();
+        int end = Math.min(domains.size(), offset + MAX_CHILDREN - 1);
+        for (Domain domain : domains.subList(Math.min(offset, end), end)) {
+            if (domain.hosts().size() == 1) {
+                nodes.add(hostNode(domain.hosts().get(0)));
+            } else {
+                nodes.add(new Node("domain:" + domain.name(), domain.name() + " (" + domain.hosts().size() + " hosts)",
+                    Kind.DOMAIN, domain.endpoints(), Map.of("level", "domain", "domain", domain.name())));
+            }
+        }
+        if (end < domains.size()) {
+            nodes.add(moreNode("root", Map.of("level", "root"), end, domains.size() - end));
+        }
+        return nodes;
+    }
+
+    private List<Node> hostsOfDomain(String name, int offset) {
+        Domain domain = domainIndex().byName().get(name);
+        if (domain == null) return List.of();
+
+        List<HostEntry> hosts = domain.hosts();
+        List<Node> nodes = new ArrayList<>();
+        int end = Math.min(hosts.size(), offset + MAX_CHILDREN - 1);
+        for (HostEntry host : hosts.subList(Math.min(offset, end), end)) {
+            nodes.add(hostNode(host));
+        }
+        if (end < hosts.size()) {
+            nodes.add(moreNode("domain:" + name, Map.of("level", "domain", "domain", name), end, hosts.size() - end));
+        }
+        return nodes;
+    }
+
+    /**
+     * Endpoints below a path prefix. Small prefixes list their endpoints, larger
+     * ones are split by the next path segment. A prefix whose endpoints all share
+     * the next segment is followed down, so /api/v1 is one step, not two.
+     */
+    private List<Node> prefix(String host, List<String> prefix, boolean list, int offset) {
+        List<String> current = prefix;
+        if (!list && offset == 0) {
+            for (int depth = 0; depth < MAX_PREFIX_DEPTH; depth++) {
+                if (neo4jManager.countEndpointsUnderPrefix(host, current) <= LIST_THRESHOLD) {
+                    return endpoints(host, current, false, offset);
+                }
+                ResultPage groups = neo4jManager.getEndpointGroupsPage(host, current, 0, 2);
+                ResultPage exact = neo4jManager.getEndpointsUnderPrefixPage(host, current, true, 0, 1);
+                if (groups.getRecords().size() != 1 || !exact.isEmpty()) break;
+                current = append(current, groups.getRecords().get(0).get("segment").asString(""));
+            }
+        }
+        if (list) {
+            return endpoints(host, current, false, offset);
+        }
+
+        List<Node> nodes = new ArrayList<>();
+        // Endpoints on the prefix itself differ only in method, so there are few of them
+        if (offset == 0) {
+            for (Record record : neo4jManager.getEndpointsUnderPrefixPage(host, current, true, 0, MAX_CHILDREN / 2)
+                    .getRecords()) {
+                nodes.add(endpointNode(host, record));
+            }
+        }
+        int limit = MAX_CHILDREN - 1 - nodes.size();
+        ResultPage groups = neo4jManager.getEndpointGroupsPage(host, current, offset, limit);
+        for (Record record : groups.getRecords()) {
+            List<String> group = append(current, record.get("segment").asString(""));
+            String path = "/" + String.join("/", group);
+            nodes.add(new Node("prefix:" + host + path, path + "/*", Kind.PREFIX, record.get("endpoints").asLong(0),
+                Map.of("level", "prefix", "host", host, "prefix", String.join("/", group))));
+        }
+        if (groups.hasMore()) {
+            nodes.add(moreNode(prefixId(host, current),
+                Map.of("level", "prefix", "host", host, "prefix", String.join("/", current)), offset + limit, -1));
+        }
+        return nodes;
+    }
+
+    private List<Node> endpoints(String host, List<String> prefix, boolean exact, int offset) {
+        List<Node> nodes = new ArrayList<>();
+        ResultPage page = neo4jManager.getEndpointsUnderPrefixPage(host, prefix, exact, offset, MAX_CHILDREN - 1);
+        for (Record record : page.getRecords()) {
+            nodes.add(endpointNode(host, record));
+        }
+        if (page.hasMore()) {
+            nodes.add(moreNode(prefixId(host, prefix),
+                Map.of("level", "prefix", "host", host, "prefix", String.join("/", prefix), "mode", "list"),
+                offset + MAX_CHILDREN - 1, -1));
+        }
+        return nodes;
+    }
+
+    /**
+     * Parameters of an endpoint, rolled up by category when there are many
+     */
+    private List<Node> parameterCategories(String host, String path, String method, int offset) {
+        List<Record> categories = neo4jManager.getParameterCategories(host, path, method);
+        long total = categories.stream().mapToLong(record -> record.get("parameters").asLong(0)).sum();
+        if (total <= PARAMETER_LIST_THRESHOLD || categories.size() == 1) {
+            return parameters(host, path, method, "*", offset);
+        }
+
+        String endpointId = GraphJson.endpointId(host, path, method);
+        List<Node> nodes = new ArrayList<>();
+        for (Record record : categories) {
+            String category = record.get("category").asString("");
+            long count = record.get("parameters").asLong(0);
+            nodes.add(new Node("category:" + endpointId + ":" + category,
+                (category.isEmpty() ? "Unclassified" : category) + " (" + count + ")", Kind.CATEGORY, count,
+                Map.of("level", "category", "host", host, "path", path, "method", method, "category", category)));
+        }
+        return nodes;
+    }
+
+    private List<Node> parameters(String host, String path, String method, String category, int offset) {
+        String endpointId = GraphJson.endpointId(host, path, method);
+        List<Node> nodes = new ArrayList<>();
+        ResultPage page = neo4jManager.getParametersByCategoryPage(host, path, method, category, offset, MAX_CHILDREN - 1);
+        for (Record record : page.getRecords()) {
+            String name = record.get("name").asString("");
+            nodes.add(new Node("parameter:" + endpointId + ":" + name, name, Kind.PARAMETER,
+                record.get("valueCount").asLong(0), null));
+        }
+        if (page.hasMore()) {
+            String parentId = "*".equals(category) ? endpointId : "category:" + endpointId + ":" + category;
+            nodes.add(moreNode(parentId,
+                Map.of("level", "category", "host", host, "path", path, "method", method, "category", category),
+                offset + MAX_CHILDREN - 1, -1));
+        }
+        return nodes;
+    }
+
+    private static Node hostNode(HostEntry host) {
+        return new Node(GraphJson.hostId(host.name()), host.name(), Kind.HOST, host.endpoints(),
+            Map.of("level", "host", "host", host.name()));
+    }
+
+    private static Node endpointNode(String host, Record record) {
+        String path = record.get("path").asString("");
+        String method = record.get("method").asString("");
+        return new Node(GraphJson.endpointId(host, path, method), method + " " + path, Kind.ENDPOINT,
+            record.get("parameterCount").asLong(0),
+            Map.of("level", "endpoint", "host", host, "path", path, "method", method));
+    }
+
+    /**
+     * Node that loads the next batch of its parent's children
+     * @param remaining entries not shown yet, or -1 if unknown
+     */
+    private static Node moreNode(String parentId, Map<String, String> request, int offset, long remaining) {
+        Map<String, String> expand = new LinkedHashMap<>(request);
+        expand.put("offset", Integer.toString(offset));
+        return new Node(parentId + ":more:" + offset, remaining < 0 ? "More..." : remaining + " more",
+            Kind.MORE, Math.max(remaining, 0), expand);
+    }
+
+    private static String prefixId(String host, List<String> prefix) {
+        return prefix.isEmpty() ? GraphJson.hostId(host) : "prefix:" + host + "/" + String.join("/", prefix);
+    }
+
+    /**
+     * Hosts grouped by domain, rebuilt when the host statistics were flushed
+     */
+    private synchronized DomainIndex domainIndex() {
+        String version = neo4jManager.getStatisticsVersion();
+        if (index != null && index.version().equals(version)) return index;
+
+        Map<String, List<HostEntry>> hostsByDomain = new HashMap<>();
+        for (Record record : neo4jManager.getAllHostsWithStats()) {
+            String host = record.get("host").asString("");
+            hostsByDomain.computeIfAbsent(domainOf(host), key -> new ArrayList<>())
+                .add(new HostEntry(host, record.get("endpointCount").asLong(0)));
+        }
+
+        Comparator<HostEntry> hostOrder = Comparator.comparingLong(HostEntry::endpoints).reversed()
+            .thenComparing(HostEntry::name);
+        List<Domain> domains = new ArrayList<>();
+        Map<String, Domain> byName = new HashMap<>();
+        for (Map.Entry<String, List<HostEntry>> entry : hostsByDomain.entrySet()) {
+            List<HostEntry> hosts = entry.getValue();
+            hosts.sort(hostOrder);
+            Domain domain = new Domain(entry.getKey(), List.copyOf(hosts),
+                hosts.stream().mapToLong(HostEntry::endpoints).sum());
+            domains.add(domain);
+            byName.put(domain.name(), domain);
+        }
+        domains.sort(Comparator.comparingLong(Domain::endpoints).reversed().thenComparing(Domain::name));
+
+        index = new DomainIndex(version, domains, byName);
+        return index;
+    }
+
+    /**
+     * The registrable part of a host name, e.g. example.co.uk for api.example.co.uk.
+     * IPv4 addresses are grouped by their /24 network.
+     */
+    static String domainOf(String host) {
+        String name = PORT.matcher(host.toLowerCase()).replaceFirst("");
+        if (IPV4.matcher(name).matches()) {
+            return name.substring(0, name.lastIndexOf('.')) + ".*";
+        }
+        // IPv6 literals and single labels such as localhost are their own domain
+        if (name.indexOf(':') >= 0 || name.indexOf('.') < 0) return name;
+
+        String[] labels = name.split("\\.");
+        int keep = 2;
+        if (labels.length > 2 && labels[labels.length - 1].length() == 2
+                && SECOND_LEVEL.contains(labels[labels.length - 2])) {
+            keep = 3;
+        }
+        if (labels.length <= keep) return name;
+        return String.join(".", Arrays.copyOfRange(labels, labels.length - keep, labels.length));
+    }
+
+    private static List<String> segments(String prefix) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : prefix.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static List<String> append(List<String> prefix, String segment) {
+        List<String> segments = new ArrayList<>(prefix);
+        segments.add(segment);
+        return segments;
+    }
+
+    private static String required(Map<String, String> request, String name) {
+        String value = request.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value;
+    }
+
+    private static int offset(Map<String, String> request) {
+        try {
+            return Math.max(0, Integer.parseInt(request.getOrDefault("offset", "0")));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid offset");
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.darkcell.burpn2neo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The latest import and capture log messages, kept in a ring buffer of fixed
+ * capacity so memory stays the same however long Burp runs. Adding never
+ * touches Swing: a {@link LogPanel} polls {@link #getSequence()} and redraws
+ * at its own pace. Messages can also be written to a {@link RotatingFileLogSink}
+ * to keep more than fits in the buffer.
+ */
+public class LogBuffer implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 2000;
+
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR
+    }
+
+    /**
+     * One message
+     * @param timestamp milliseconds since the epoch
+     * @param source what logged it, e.g. "import" or "capture"
+     */
+    public record Entry(long timestamp, Level level, String source, String message) {
+    }
+
+    private final Entry[] entries;
+    private int next = 0;
+    private int size = 0;
+    // Changes whenever the content changes
+    private long sequence = 0;
+    private long overwritten = 0;
+    private RotatingFileLogSink sink;
+
+    public LogBuffer(int capacity) {
+        entries = new Entry[capacity];
+    }
+
+    public void info(String source, String message) {
+        add(Level.INFO, source, message);
+    }
+
+    public void warn(String source, String message) {
+        add(Level.WARN, source, message);
+    }
+
+    public void error(String source, String message) {
+        add(Level.ERROR, source, message);
+    }
+
+    public void add(Level level, String source, String message) {
+        Entry entry = new Entry(System.currentTimeMillis(), level, source, message);
+        RotatingFileLogSink currentSink;
+        synchronized (this) {
+            if (size == entries.length) {
+                overwritten++;
+            } else {
+                size++;
+            }
+            entries[next] = entry;
+            next = (next + 1) % entries.length;
+            sequence++;
+            currentSink = sink;
+        }
+        if (currentSink != null) {
+            currentSink.write(entry);
+        }
+    }
+
+    /**
+     * Changes whenever a message is added or the buffer is cleared
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Number of messages that no longer fit in the buffer
+     */
+    public synchronized long getOverwritten() {
+        return overwritten;
+    }
+
+    /**
+     * The messages in the buffer at or above a level, oldest first
+     */
+    public synchronized List<Entry> snapshot(Level minimum) {
+        List<Entry> result = new ArrayList<>(size);
+        int first = (next - size + entries.length) % entries.length;
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries[(first + i) % entries.length];
+            if (entry.level().compareTo(minimum) >= 0) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(entries, null);
+        next = 0;
+        size = 0;
+        overwritten = 0;
+        sequence++;
+    }
+
+    /**
+     * Also writes every message added from now on to a file, replacing and closing an earlier sink
+     * @param sink the file to write to, or null to stop writing
+     */
+    public void setSink(RotatingFileLogSink sink) {
+        RotatingFileLogSink previous;
+        synchronized (this) {
+            previous = this.sink;
+            this.sink = sink;
+        }
+        if (previous != null && previous != sink) {
+            previous.close();
+        }
+    }
+
+    public synchronized boolean hasSink() {
+        return sink != null;
+    }
+
+    /**
+     * Closes the file sink, if any
+     */
+    @Override
+    public void close() {
+        setSink(null);
+    }
+}
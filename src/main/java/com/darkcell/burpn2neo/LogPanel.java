@@ -0,0 +1,127 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+
+import javax.swing.*;
+import javax.swing.text.DefaultCaret;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Shows the messages of a {@link LogBuffer} at or above the selected level.
+ * A timer redraws the text a few times per second, and only when messages
+ * were added, so logging in a tight loop costs the event dispatch thread
+ * nothing. The view follows new messages only while scrolled to the bottom.
+ * Use it from the event dispatch thread only.
+ */
+public class LogPanel extends JPanel {
+    private static final int REFRESH_MS = 250;
+
+    private final Logging logging;
+    private final LogBuffer buffer;
+    private final JTextArea textArea = new JTextArea();
+    private final JScrollPane scrollPane = new JScrollPane(textArea);
+    private final JComboBox<LogBuffer.Level> levelSelector = new JComboBox<>(LogBuffer.Level.values());
+    private final JCheckBox fileCheckBox = new JCheckBox("Save to file");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final Timer timer;
+    // Sequence of the buffer when the text was last drawn
+    private long shownSequence = -1;
+
+    public LogPanel(Logging logging, LogBuffer buffer) {
+        super(new BorderLayout(5, 5));
+        this.logging = logging;
+        this.buffer = buffer;
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(new JLabel("Level:"));
+        levelSelector.setSelectedItem(LogBuffer.Level.INFO);
+        levelSelector.addActionListener(e -> {
+            shownSequence = -1;
+            refresh();
+        });
+        controls.add(levelSelector);
+        JButton clearButton = new JButton("Clear");
+        clearButton.addActionListener(e -> buffer.clear());
+        controls.add(clearButton);
+        fileCheckBox.addActionListener(e -> toggleFile());
+        controls.add(fileCheckBox);
+        controls.add(statusLabel);
+        add(controls, BorderLayout.NORTH);
+
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        // The caret would scroll to the end of every new text, refresh scrolls instead
+        ((DefaultCaret) textArea.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        add(scrollPane, BorderLayout.CENTER);
+
+        timer = new Timer(REFRESH_MS, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+    }
+
+    // The timer runs while the panel is in a window, so it stops when the extension's tab is removed on unload
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    private void refresh() {
+        long sequence = buffer.getSequence();
+        if (sequence == shownSequence) return;
+        shownSequence = sequence;
+
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+        int position = scrollBar.getValue();
+        boolean atBottom = position + scrollBar.getVisibleAmount() >= scrollBar.getMaximum() - 5;
+
+        List<LogBuffer.Entry> entries = buffer.snapshot((LogBuffer.Level) levelSelector.getSelectedItem());
+        StringBuilder text = new StringBuilder();
+        for (LogBuffer.Entry entry : entries) {
+            text.append(RotatingFileLogSink.format(entry)).append('\n');
+        }
+        // Replacing the whole text is cheaper than appending, as the buffer has a fixed size
+        textArea.setText(text.toString());
+        // The scroll bar follows the new text only after layout, so it is set afterwards
+        SwingUtilities.invokeLater(() -> scrollBar.setValue(atBottom ? scrollBar.getMaximum() : position));
+
+        long overwritten = buffer.getOverwritten();
+        statusLabel.setText(overwritten > 0 ? overwritten + " older messages no longer shown" : " ");
+    }
+
+    private void toggleFile() {
+        if (!fileCheckBox.isSelected()) {
+            buffer.setSink(null);
+            fileCheckBox.setToolTipText(null);
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("neoburp.log"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            fileCheckBox.setSelected(false);
+            return;
+        }
+        try {
+            RotatingFileLogSink sink = new RotatingFileLogSink(logging, chooser.getSelectedFile().toPath(),
+                RotatingFileLogSink.DEFAULT_MAX_BYTES, RotatingFileLogSink.DEFAULT_BACKUPS);
+            buffer.setSink(sink);
+            fileCheckBox.setToolTipText("Writing to " + sink.getFile());
+        } catch (IOException e) {
+            fileCheckBox.setSelected(false);
+            JOptionPane.showMessageDialog(this, "Could not open log file: " + e.getMessage(),
+                "Log File", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
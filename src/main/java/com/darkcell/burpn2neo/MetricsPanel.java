@@ -0,0 +1,168 @@
+package com.darkcell.burpn2neo;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shows the metrics of the capture path, refreshed once per second while visible.
+ * Counters are shown with their rate since the previous refresh, histograms with
+ * their mean, percentiles and maximum. The slowest traced messages of the
+ * {@link StageTracer} can be exported as CSV.
+ * Use it from the event dispatch thread only.
+ */
+public class MetricsPanel extends JPanel {
+    private static final int REFRESH_MS = 1000;
+    private static final String[] COLUMNS = {"Metric", "Value", "Per second", "Mean", "p50", "p90", "p99", "Max", "Unit"};
+
+    private final MetricsRegistry metrics;
+    private final StageTracer tracer;
+    private final MetricsTableModel model = new MetricsTableModel();
+    private final JLabel summaryLabel = new JLabel(" ");
+    private final Timer timer;
+    // Counter values and time of the previous refresh, for the rates
+    private final Map<String, Long> previousValues = new HashMap<>();
+    private long previousNanos = 0;
+
+    public MetricsPanel(MetricsRegistry metrics, StageTracer tracer) {
+        super(new BorderLayout(5, 5));
+        this.metrics = metrics;
+        this.tracer = tracer;
+        setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        summaryLabel.setFont(summaryLabel.getFont().deriveFont(Font.BOLD));
+        add(summaryLabel, BorderLayout.NORTH);
+
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(250);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton exportButton = new JButton("Export Slowest Messages...");
+        exportButton.addActionListener(e -> exportSlowest());
+        buttonPanel.add(exportButton);
+        JButton clearButton = new JButton("Clear Slowest Messages");
+        clearButton.addActionListener(e -> tracer.clearSlowest());
+        buttonPanel.add(clearButton);
+        buttonPanel.add(new JLabel("One in " + StageTracer.SAMPLE_EVERY + " captured requests is traced"));
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        timer = new Timer(REFRESH_MS, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+    }
+
+    // The timer runs while the panel is in a window, so it stops when the extension's tab is removed on unload
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    private void refresh() {
+        long now = System.nanoTime();
+        double seconds = previousNanos == 0 ? 0 : (now - previousNanos) / 1e9;
+        previousNanos = now;
+
+        List<MetricsRegistry.Sample> samples = metrics.snapshot();
+        Object[][] rows = new Object[samples.size()][];
+        Map<String, Double> rates = new HashMap<>();
+        for (int i = 0; i < rows.length; i++) {
+            MetricsRegistry.Sample sample = samples.get(i);
+            Object rate = "";
+            if (sample.kind() != MetricsRegistry.Kind.GAUGE) {
+                Long previous = previousValues.put(sample.name(), sample.value());
+                if (previous != null && seconds > 0) {
+                    double perSecond = (sample.value() - previous) / seconds;
+                    rates.put(sample.name(), perSecond);
+                    rate = String.format("%.1f", perSecond);
+                }
+            }
+
+            MetricsRegistry.HistogramSnapshot histogram = sample.histogram();
+            rows[i] = histogram == null
+                ? new Object[]{sample.name(), sample.value(), rate, "", "", "", "", "", sample.unit()}
+                : new Object[]{sample.name(), sample.value(), rate, String.format("%.1f", histogram.mean()),
+                    histogram.p50(), histogram.p90(), histogram.p99(), histogram.max(), sample.unit()};
+        }
+        model.setRows(rows);
+
+        summaryLabel.setText(String.format("In: %.1f/s   Out: %.1f/s   Queue: %s   Shed: %s   Dropped: %s",
+            rates.getOrDefault("capture.received", 0.0), rates.getOrDefault("capture.written", 0.0),
+            value(samples, "capture.queueDepth"), value(samples, "capture.shed"), value(samples, "capture.dropped")));
+    }
+
+    private void exportSlowest() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("neoburp-slowest-messages.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        // At most a few dozen rows, small enough to write right away
+        try (Writer out = Files.newBufferedWriter(chooser.getSelectedFile().toPath(), StandardCharsets.UTF_8)) {
+            tracer.writeCsv(out);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not export: " + e.getMessage(),
+                "Export Failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static String value(List<MetricsRegistry.Sample> samples, String name) {
+        for (MetricsRegistry.Sample sample : samples) {
+            if (sample.name().equals(name)) return Long.toString(sample.value());
+        }
+        return "-";
+    }
+
+    private static final class MetricsTableModel extends AbstractTableModel {
+        private Object[][] rows = new Object[0][];
+
+        void setRows(Object[][] newRows) {
+            boolean sameRows = newRows.length == rows.length;
+            rows = newRows;
+            // Keeps the selection and scroll position while only the values change
+            if (sameRows && rows.length > 0) {
+                fireTableRowsUpdated(0, rows.length - 1);
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows[row][column];
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.darkcell.burpn2neo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named counters, histograms and gauges of the capture path.
+ * Recording never locks or allocates, so metrics can be updated for every
+ * captured request. Readers such as the Metrics tab take a {@link #snapshot()}
+ * at their own pace, and listeners such as {@link JmxExporter} learn about new
+ * metrics as they are created.
+ */
+public class MetricsRegistry {
+    /**
+     * A value that only grows, e.g. messages received
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Distribution of non-negative values, e.g. latencies in microseconds.
+     * Values fall into buckets of eight per power of two, so percentiles are
+     * accurate to about 6% at any magnitude in a fixed amount of memory.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int SUB_BITS = 3;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            long v = Math.max(0, value);
+            buckets.incrementAndGet(bucket(v));
+            count.increment();
+            sum.add(v);
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        public HistogramSnapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            // A bucket's middle can lie above the largest value recorded in it
+            long largest = max.get();
+            return new HistogramSnapshot(total, total == 0 ? 0 : (double) sum.sum() / count.sum(),
+                Math.min(percentile(counts, total, 0.5), largest), Math.min(percentile(counts, total, 0.9), largest),
+                Math.min(percentile(counts, total, 0.99), largest), largest);
+        }
+
+        private static int bucket(long v) {
+            if (v < SUB_BUCKETS) return (int) v;
+            int octave = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) ((v >>> (octave - SUB_BITS)) & (SUB_BUCKETS - 1));
+            return (octave - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * Middle of the bucket holding the value at the given rank
+         */
+        private static long percentile(long[] counts, long total, double quantile) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    if (i < SUB_BUCKETS) return i;
+                    int octave = i / SUB_BUCKETS + SUB_BITS - 1;
+                    long width = 1L << (octave - SUB_BITS);
+                    long lower = (long) (SUB_BUCKETS + i % SUB_BUCKETS) << (octave - SUB_BITS);
+                    return lower + width / 2;
+                }
+            }
+            return 0;
+        }
+    }
+
+    public record HistogramSnapshot(long count, double mean, long p50, long p90, long p99, long max) {
+    }
+
+    public enum Kind {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM
+    }
+
+    /**
+     * One metric at the time of the snapshot
+     * @param value the count of counters and histograms, the current value of gauges
+     * @param histogram the distribution, null for counters and gauges
+     */
+    public record Sample(String name, Kind kind, String unit, long value, HistogramSnapshot histogram) {
+    }
+
+    /**
+     * Told about every metric once, including the ones that existed when it was added
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void metricAdded(String name, Kind kind);
+    }
+
+    private record Entry(Kind kind, String unit, Object metric) {
+    }
+
+    // Sorted, so related metrics with a common prefix are listed together
+    private final Map<String, Entry> metrics = new ConcurrentSkipListMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The counter with this name, created on first use
+     */
+    public Counter counter(String name) {
+        return (Counter) register(name, Kind.COUNTER, "", Counter::new).metric();
+    }
+
+    /**
+     * The histogram with this name, created on first use
+     * @param unit shown after the values, e.g. "us" or "requests"
+     */
+    public Histogram histogram(String name, String unit) {
+        return (Histogram) register(name, Kind.HISTOGRAM, unit, Histogram::new).metric();
+    }
+
+    /**
+     * Registers a value that is read when a snapshot is taken, replacing an earlier one of the same name
+     */
+    public void gauge(String name, LongSupplier value) {
+        if (metrics.put(name, new Entry(Kind.GAUGE, "", value)) == null) {
+            notifyAdded(name, Kind.GAUGE);
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        metrics.forEach((name, entry) -> listener.metricAdded(name, entry.kind()));
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Current value of one metric, or null if there is none of that name
+     */
+    public Sample sample(String name) {
+        Entry entry = metrics.get(name);
+        return entry == null ? null : toSample(name, entry);
+    }
+
+    /**
+     * Current values of all metrics, ordered by name
+     */
+    public List<Sample> snapshot() {
+        List<Sample> samples = new ArrayList<>(metrics.size());
+        for (Map.Entry<String, Entry> metric : metrics.entrySet()) {
+            samples.add(toSample(metric.getKey(), metric.getValue()));
+        }
+        return samples;
+    }
+
+    private static Sample toSample(String name, Entry entry) {
+        return switch (entry.kind()) {
+            case COUNTER -> new Sample(name, Kind.COUNTER, entry.unit(), ((Counter) entry.metric()).get(), null);
+            case GAUGE -> new Sample(name, Kind.GAUGE, entry.unit(), ((LongSupplier) entry.metric()).getAsLong(), null);
+            case HISTOGRAM -> {
+                HistogramSnapshot histogram = ((Histogram) entry.metric()).snapshot();
+                yield new Sample(name, Kind.HISTOGRAM, entry.unit(), histogram.count(), histogram);
+            }
+        };
+    }
+
+    private Entry register(String name, Kind kind, String unit, Supplier<Object> metric) {
+        Entry entry = metrics.get(name);
+        if (entry == null) {
+            boolean[] added = new boolean[1];
+            entry = metrics.computeIfAbsent(name, key -> {
+                added[0] = true;
+                return new Entry(kind, unit, metric.get());
+            });
+            if (added[0]) {
+                notifyAdded(name, kind);
+            }
+        }
+        if (entry.kind() != kind) {
+            throw new IllegalArgumentException(name + " is already registered as a " + entry.kind().name().toLowerCase());
+        }
+        return entry;
+    }
+
+    private void notifyAdded(String name, Kind kind) {
+        for (Listener listener : listeners) {
+            listener.metricAdded(name, kind);
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package com.darkcell.burpn2neo;
 
 import burp.api.montoya.MontoyaApi;
-import burp.api.montoya.http.message.HttpRequestResponse;
-import burp.api.montoya.http.message.requests.HttpRequest;
-import burp.api.montoya.http.message.responses.HttpResponse;
 import burp.api.montoya.logging.Logging;
 import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
+import org.neo4j.driver.ConnectionPoolMetrics;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
-import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.summary.SummaryCounters;
 
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 import static org.neo4j.driver.Values.parameters;
 
@@ -32,12 +44,55 @@ public class Neo4jManager implements AutoCloseable {
     private String neo4jUri = "bolt://localhost:7687";
     private String neo4jUsername = "neo4j";
     private String neo4jPassword = "password";
-    private boolean connected = false;
-    private Driver driver;
+    // Written by the connection thread, read by ingestion and UI threads
+    private volatile boolean connected = false;
+    private volatile Driver driver;
+    // Read and write sessions of the current driver, sharing one bookmark manager
+    private volatile SessionFactory sessions;
+    private volatile String connectionError;
+    // Bumped by every successful connect, a new connection may be a different database
+    private final AtomicLong connectionCount = new AtomicLong();
+    private final SimilarityMaintainer similarityMaintainer;
+    private final QueryResultCache queryCache = new QueryResultCache();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final QueryPlanRegistry queryPlans;
+    private final QueryExecutionManager queryExecution;
+    private final HostParameterMatrix hostParameterMatrix;
+    private final SchemaMigrator schemaMigrator;
+    private final ParameterClassifier parameterClassifier = new ParameterClassifier();
+    private final GraphStatistics graphStatistics;
+
+    // Parameters re-labelled per transaction by the classifier backfill
+    private static final int CLASSIFY_BATCH_SIZE = 1000;
+
+    // Maximum number of rows returned by the similarity analyses
+    private static final int ANALYSIS_LIMIT = 100;
+
+    // Records pulled per batch while streaming visualization data
+    private static final int STREAM_FETCH_SIZE = 500;
+    // Parameter values written per parameter node of the visualization
+    private static final int GRAPH_PARAMETER_VALUES = 20;
+
+    // Characters the standard analyzer splits indexed values on
+    private static final Pattern FULLTEXT_DELIMITERS = Pattern.compile("[^\\p{L}\\p{N}_.]+");
+    private static final Pattern EDGE_DOTS = Pattern.compile("^\\.+|\\.+$");
+
+    // Metric name of queries that are not templates
+    private static final String AD_HOC_QUERY = "adhoc";
+
+    // How long to wait for an unreachable server before giving up
+    private static final int CONNECTION_TIMEOUT_SECONDS = 10;
 
     public Neo4jManager(MontoyaApi api) {
         this.api = api;
         this.logging = api.logging();
+        this.queryPlans = new QueryPlanRegistry(logging);
+        this.queryExecution = new QueryExecutionManager(logging);
+        this.hostParameterMatrix = new HostParameterMatrix(logging);
+        this.schemaMigrator = new SchemaMigrator(logging);
+        this.similarityMaintainer = new SimilarityMaintainer(logging, queryCache::invalidate, queryPlans);
+        this.graphStatistics = new GraphStatistics(logging, queryCache::invalidate);
+        registerMetrics();
     }
 
     /**
@@ -57,42 +112,6 @@ public class Neo4jManager implements AutoCloseable {
         }
     }
 
-    /**
-     * Process HTTP request/response pairs to extract and store data in Neo4j.
-     * @param requestResponse The HTTP request/response pair to process
-     */
-    public void processRequestResponse(HttpRequestResponse requestResponse) {
-        if (!connected) {
-            logging.logToOutput("Not connected to Neo4j, skipping processing");
-            return;
-        }
-
-        try {
-            HttpRequest request = requestResponse.request();
-            HttpResponse response = requestResponse.response();
-            
-            if (response == null) {
-                // Skip requests with no response
-                return;
-            }
-
-            String url = request.url();
-            URI uri = new URI(url);
-            String host = uri.getHost();
-            String path = uri.getPath();
-            
-            // TODO: Extract parameters, headers, etc.
-            // TODO: Store data in Neo4j using appropriate Cypher queries
-            
-            logging.logToOutput("Processed: " + host + path);
-        } catch (URISyntaxException e) {
-            logging.logToError("Invalid URL in request: " + e.getMessage());
-        } catch (Exception e) {
-            logging.logToError("Error processing request/response: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
     /**
      * Closes Neo4j connection and performs cleanup.
      */
@@ -135,10 +154,18 @@ public class Neo4jManager implements AutoCloseable {
     }
 
     /**
-     * Connect to the Neo4j database
+     * Connect to the Neo4j database. This blocks until the server answered and the
+     * schema is migrated, so call it off the event dispatch thread, e.g. through
+     * {@link ConnectionManager}.
      */
-    public boolean connect(String uri, String username, String password) {
+    public synchronized boolean connect(String uri, String username, String password) {
+        connectionError = null;
+        // Nothing is written to the new database until its schema is migrated
+        this.connected = false;
         try {
+            similarityMaintainer.stop();
+            graphStatistics.stop();
+            queryExecution.cancelAll(driver);
             if (driver != null) {
                 driver.close();
             }
@@ -147,134 +174,453 @@ public class Neo4jManager implements AutoCloseable {
             this.neo4jUsername = username;
             this.neo4jPassword = password;
 
-            driver = GraphDatabase.driver(uri, AuthTokens.basic(username, password));
+            driver = GraphDatabase.driver(uri, AuthTokens.basic(username, password), Config.builder()
+                .withConnectionTimeout(CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                // Connection pool usage for the Metrics tab
+                .withDriverMetrics()
+                .build());
             // Test connection
             driver.verifyConnectivity();
+            sessions = new SessionFactory(driver);
+            connectionCount.incrementAndGet();
+
+            // Bring the schema up to date and give new indexes a moment to come online.
+            // A failed migration fails the connect, the error is shown with the connection status.
+            int schemaVersion = schemaMigrator.migrate(sessions);
+            logging.logToOutput("Schema version " + schemaVersion);
+            schemaMigrator.awaitIndexes(sessions, SchemaMigrator.CONNECT_INDEX_WAIT_SECONDS);
+            queryCache.clear();
             this.connected = true;
 
-            // Initialize database schema
-            initializeSchema();
+            // Plan all templates up front so the first analysis does not pay for planning
+            int warmedPlans = queryPlans.warm(sessions);
+            logging.logToOutput("Warmed " + warmedPlans + " query plans");
+
+            // Keep SIMILAR_TO relationships up to date in the background
+            similarityMaintainer.start(sessions);
+            // Flush host and graph counters collected during ingestion
+            graphStatistics.start(sessions);
+
+            // Load the host parameter matrix without holding up the connect. Clearing cancels
+            // a rebuild still running from an earlier connect, so only one fills the matrix.
+            hostParameterMatrix.clear();
+            SessionFactory scanSessions = sessions;
+            Thread matrixThread = new Thread(() -> hostParameterMatrix.rebuild(scanSessions), "NeoBurp-host-matrix");
+            matrixThread.setDaemon(true);
+            matrixThread.start();
+
+            // Label parameters stored before classification or by an older classifier
+            Thread classifierThread = new Thread(() -> classifyParameters(scanSessions), "NeoBurp-classifier");
+            classifierThread.setDaemon(true);
+            classifierThread.start();
 
             logging.logToOutput("Connected to Neo4j at " + uri);
             return true;
         } catch (Exception e) {
             logging.logToError("Failed to connect to Neo4j: " + e.getMessage());
+            connectionError = e.getMessage();
             this.connected = false;
+            if (driver != null) {
+                driver.close();
+                driver = null;
+            }
+            sessions = null;
             return false;
         }
     }
 
-    /**
-     * Initialize the Neo4j schema with constraints and indexes
-     */
-    private void initializeSchema() {
-        try (Session session = driver.session()) {
-            // Create constraint for Host nodes
-            session.run("CREATE CONSTRAINT host_name IF NOT EXISTS FOR (h:Host) REQUIRE h.name IS UNIQUE");
-            
-            // Create constraint for Endpoint nodes
-            session.run("CREATE CONSTRAINT endpoint_path IF NOT EXISTS FOR (e:Endpoint) REQUIRE (e.host, e.path, e.method) IS NODE KEY");
-            
-            // Create index for Parameter nodes
-            session.run("CREATE INDEX parameter_name IF NOT EXISTS FOR (p:Parameter) ON (p.name)");
-        } catch (Exception e) {
-            logging.logToError("Failed to initialize Neo4j schema: " + e.getMessage());
-        }
-    }
-
     /**
      * Add or update a host in the database
      */
     public void upsertHost(String hostName) {
         if (!connected || driver == null) return;
         
-        try (Session session = driver.session()) {
-            session.executeWrite(tx -> {
-                tx.run("MERGE (h:Host {name: $host}) " +
-                       "ON CREATE SET h.firstSeen = datetime() " +
-                       "ON MATCH SET h.lastSeen = datetime()",
-                       parameters("host", hostName));
-                return null;
-            });
+        try {
+            writeHost(hostName);
         } catch (Exception e) {
             logging.logToError("Error upserting host: " + e.getMessage());
         }
     }
 
     /**
-     * Add or update an endpoint in the database
+     * Upserts a host, throwing on failure. Used by the import and the capture pipeline.
+     */
+    void writeHost(String hostName) {
+        try (Session session = sessions.write()) {
+            boolean created = timed(QueryTemplate.UPSERT_HOST.name(), () -> session.executeWrite(tx -> {
+                queryPlans.recordExecution(QueryTemplate.UPSERT_HOST);
+                return tx.run(QueryTemplate.UPSERT_HOST.cypher(), parameters("host", hostName))
+                    .consume().counters().nodesCreated() > 0;
+            }));
+            queryCache.invalidate();
+            if (created) {
+                graphStatistics.hostCreated();
+            }
+        }
+    }
+
+    /**
+     * Add or update an endpoint in the database, counted as one request to the host
      */
     public void upsertEndpoint(String hostName, String path, String method) {
         if (!connected || driver == null) return;
         
-        try (Session session = driver.session()) {
-            session.executeWrite(tx -> {
-                tx.run("MATCH (h:Host {name: $host}) " +
-                       "MERGE (e:Endpoint {host: $host, path: $path, method: $method}) " +
-                       "MERGE (h)-[:HAS_ENDPOINT]->(e)",
-                       parameters("host", hostName, "path", path, "method", method));
-                return null;
-            });
+        try {
+            writeEndpoint(hostName, path, method);
         } catch (Exception e) {
             logging.logToError("Error upserting endpoint: " + e.getMessage());
         }
     }
 
+    void writeEndpoint(String hostName, String path, String method) {
+        try (Session session = sessions.write()) {
+            boolean created = timed(QueryTemplate.UPSERT_ENDPOINT.name(), () -> session.executeWrite(tx -> {
+                queryPlans.recordExecution(QueryTemplate.UPSERT_ENDPOINT);
+                return tx.run(QueryTemplate.UPSERT_ENDPOINT.cypher(),
+                       parameters("host", hostName, "path", path, "method", method,
+                                  "prefix", GraphStatistics.prefixOf(path)))
+                    .consume().counters().nodesCreated() > 0;
+            }));
+            queryCache.invalidate();
+            graphStatistics.requestSeen(hostName, path, method, created);
+            similarityMaintainer.endpointChanged(hostName, path);
+        }
+    }
+
     /**
      * Add or update a parameter in the database
      */
     public void upsertParameter(String hostName, String path, String paramName, String paramValue) {
         if (!connected || driver == null) return;
         
-        try (Session session = driver.session()) {
-            session.executeWrite(tx -> {
-                tx.run("MATCH (e:Endpoint {host: $host, path: $path}) " +
-                       "MERGE (p:Parameter {name: $name}) " +
-                       "ON CREATE SET p.values = [$value] " +
-                       "ON MATCH SET p.values = p.values + $value " +
-                       "MERGE (e)-[:HAS_PARAMETER]->(p)",
-                       parameters("host", hostName, "path", path, 
-                                 "name", paramName, "value", paramValue));
-                return null;
-            });
+        try {
+            writeParameter(hostName, path, paramName, paramValue);
         } catch (Exception e) {
             logging.logToError("Error upserting parameter: " + e.getMessage());
         }
     }
 
+    void writeParameter(String hostName, String path, String paramName, String paramValue) {
+        try (Session session = sessions.write()) {
+            // No updates means the endpoint does not exist and nothing was linked
+            SummaryCounters counters = timed(QueryTemplate.UPSERT_PARAMETER.name(), () -> session.executeWrite(tx -> {
+                queryPlans.recordExecution(QueryTemplate.UPSERT_PARAMETER);
+                return tx.run(QueryTemplate.UPSERT_PARAMETER.cypher(),
+                       parameters("host", hostName, "path", path,
+                                 "name", paramName, "value", paramValue,
+                                 "labels", parameterClassifier.labels(paramName),
+                                 "classifierVersion", ParameterClassifier.VERSION))
+                    .consume().counters();
+            }));
+            queryCache.invalidate();
+            similarityMaintainer.endpointChanged(hostName, path);
+            graphStatistics.parametersLinked(hostName, path, counters.relationshipsCreated(), counters.nodesCreated() > 0);
+            if (counters.containsUpdates()) {
+                hostParameterMatrix.add(hostName, paramName);
+            }
+        }
+    }
+
+    /**
+     * When each statement of a capture batch finished, in System.nanoTime()
+     */
+    public record BatchTimes(long hostsWritten, long endpointsWritten, long parametersWritten, long committed) {
+    }
+
+    private record BatchResult(List<Record> hosts, List<Record> endpoints, List<Record> parameters,
+                               long hostsWritten, long endpointsWritten, long parametersWritten) {
+    }
+
+    /**
+     * Upserts the hosts, endpoints and parameters of captured requests in one
+     * transaction, one UNWIND statement each, throwing on failure. Statistics,
+     * similarity and the host-parameter matrix are updated as by the single upserts.
+     */
+    BatchTimes writeRequests(List<IngestionPipeline.CapturedRequest> requests) {
+        List<String> hosts = new ArrayList<>();
+        List<Map<String, Object>> endpointRows = new ArrayList<>();
+        List<Map<String, Object>> parameterRows = new ArrayList<>();
+        Map<String, Integer> endpointIndex = new HashMap<>();
+        for (IngestionPipeline.CapturedRequest request : requests) {
+            if (!hosts.contains(request.host())) {
+                hosts.add(request.host());
+            }
+            String endpoint = request.host() + '\n' + request.path() + '\n' + request.method();
+            if (!endpointIndex.containsKey(endpoint)) {
+                endpointIndex.put(endpoint, endpointRows.size());
+                endpointRows.add(Map.of("index", endpointRows.size(), "host", request.host(),
+                    "path", request.path(), "method", request.method(),
+                    "prefix", GraphStatistics.prefixOf(request.path())));
+            }
+            for (IngestionPipeline.Parameter parameter : request.parameters()) {
+                parameterRows.add(Map.of("index", parameterRows.size(), "host", request.host(),
+                    "path", request.path(), "name", parameter.name(), "value", parameter.value(),
+                    "labels", parameterClassifier.labels(parameter.name())));
+            }
+        }
+
+        BatchResult result;
+        try (Session session = sessions.write()) {
+            result = session.executeWrite(tx -> {
+                queryPlans.recordExecution(QueryTemplate.UPSERT_HOSTS);
+                List<Record> hostRecords = timed(QueryTemplate.UPSERT_HOSTS.name(), () ->
+                    tx.run(QueryTemplate.UPSERT_HOSTS.cypher(), parameters("hosts", hosts)).list());
+                long hostsWritten = System.nanoTime();
+                queryPlans.recordExecution(QueryTemplate.UPSERT_ENDPOINTS);
+                List<Record> endpointRecords = timed(QueryTemplate.UPSERT_ENDPOINTS.name(), () ->
+                    tx.run(QueryTemplate.UPSERT_ENDPOINTS.cypher(), parameters("rows", endpointRows)).list());
+                long endpointsWritten = System.nanoTime();
+                List<Record> parameterRecords = List.of();
+                if (!parameterRows.isEmpty()) {
+                    queryPlans.recordExecution(QueryTemplate.UPSERT_PARAMETERS);
+                    parameterRecords = timed(QueryTemplate.UPSERT_PARAMETERS.name(), () ->
+                        tx.run(QueryTemplate.UPSERT_PARAMETERS.cypher(), parameters("rows", parameterRows,
+                            "classifierVersion", ParameterClassifier.VERSION)).list());
+                }
+                return new BatchResult(hostRecords, endpointRecords, parameterRecords,
+                    hostsWritten, endpointsWritten, System.nanoTime());
+            });
+        }
+        long committed = System.nanoTime();
+        queryCache.invalidate();
+
+        // Only the first request of a duplicate endpoint or parameter link counts as creating it
+        for (Record record : result.hosts()) {
+            if (record.get("created").asBoolean(false)) {
+                graphStatistics.hostCreated();
+            }
+        }
+        boolean[] endpointCreated = new boolean[endpointRows.size()];
+        for (Record record : result.endpoints()) {
+            endpointCreated[record.get("index").asInt()] = record.get("created").asBoolean(false);
+        }
+        Set<String> changedEndpoints = new HashSet<>();
+        for (IngestionPipeline.CapturedRequest request : requests) {
+            int index = endpointIndex.get(request.host() + '\n' + request.path() + '\n' + request.method());
+            graphStatistics.requestSeen(request.host(), request.path(), request.method(), endpointCreated[index]);
+            endpointCreated[index] = false;
+            if (changedEndpoints.add(request.host() + '\n' + request.path())) {
+                similarityMaintainer.endpointChanged(request.host(), request.path());
+            }
+        }
+
+        Record[] parameterRecords = new Record[parameterRows.size()];
+        for (Record record : result.parameters()) {
+            parameterRecords[record.get("index").asInt()] = record;
+        }
+        Set<String> links = new HashSet<>();
+        Set<String> createdNames = new HashSet<>();
+        for (int i = 0; i < parameterRecords.length; i++) {
+            // No record means the endpoint does not exist and nothing was linked
+            if (parameterRecords[i] == null) continue;
+            Map<String, Object> row = parameterRows.get(i);
+            String host = (String) row.get("host");
+            String path = (String) row.get("path");
+            String name = (String) row.get("name");
+            boolean firstLink = links.add(host + '\n' + path + '\n' + name);
+            boolean created = parameterRecords[i].get("created").asBoolean(false) && createdNames.add(name);
+            graphStatistics.parametersLinked(host, path, firstLink ? parameterRecords[i].get("links").asInt(0) : 0, created);
+            hostParameterMatrix.add(host, name);
+        }
+        return new BatchTimes(result.hostsWritten(), result.endpointsWritten(), result.parametersWritten(), committed);
+    }
+
+    /**
+     * Applies the current classifier to every parameter that was classified by
+     * another version or not at all, in batches
+     */
+    private void classifyParameters(SessionFactory sessions) {
+        int classified = 0;
+        try (Session readSession = sessions.read(CLASSIFY_BATCH_SIZE);
+             Session writeSession = sessions.write()) {
+            Result result = readSession.run(QueryTemplate.PARAMETERS_TO_CLASSIFY.cypher(),
+                parameters("classifierVersion", ParameterClassifier.VERSION));
+
+            List<Map<String, Object>> rows = new ArrayList<>(CLASSIFY_BATCH_SIZE);
+            while (result.hasNext()) {
+                String name = result.next().get("name").asString(null);
+                if (name == null) continue;
+                rows.add(Map.of("name", name, "labels", parameterClassifier.labels(name)));
+                if (rows.size() == CLASSIFY_BATCH_SIZE) {
+                    classified += writeClassifications(writeSession, rows);
+                    rows = new ArrayList<>(CLASSIFY_BATCH_SIZE);
+                }
+            }
+            classified += writeClassifications(writeSession, rows);
+        } catch (Exception e) {
+            logging.logToError("Error classifying parameters: " + e.getMessage());
+        }
+
+        if (classified > 0) {
+            queryCache.invalidate();
+            logging.logToOutput("Classified " + classified + " parameters");
+        }
+    }
+
+    private int writeClassifications(Session session, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) return 0;
+        session.executeWrite(tx -> {
+            queryPlans.recordExecution(QueryTemplate.CLASSIFY_PARAMETERS);
+            return tx.run(QueryTemplate.CLASSIFY_PARAMETERS.cypher(),
+                parameters("rows", rows, "classifierVersion", ParameterClassifier.VERSION)).consume();
+        });
+        return rows.size();
+    }
+
+    /**
+     * Find endpoints with parameters whose name contains all words of the search text.
+     * Uses the parameter_name_fulltext index instead of scanning every parameter.
+     */
+    public List<Record> searchParameters(String text, int limit) {
+        if (!connected || driver == null) return List.of();
+        String query = toFulltextQuery(text);
+        if (query.isEmpty()) return List.of();
+
+        try {
+            return cachedRead(QueryTemplate.SEARCH_PARAMETERS, parameters("query", query, "limit", limit));
+        } catch (Exception e) {
+            logging.logToError("Error searching parameters: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Find endpoints whose path contains all words of the search text.
+     * Uses the endpoint_path_fulltext index instead of scanning every endpoint.
+     */
+    public List<Record> searchEndpoints(String text, int limit) {
+        if (!connected || driver == null) return List.of();
+        String query = toFulltextQuery(text);
+        if (query.isEmpty()) return List.of();
+
+        try {
+            return cachedRead(QueryTemplate.SEARCH_ENDPOINTS, parameters("query", query, "limit", limit));
+        } catch (Exception e) {
+            logging.logToError("Error searching endpoints: " + e.getMessage());
+            return List.of();
+        }
+    }
+
     /**
-     * Find similar endpoints across different hosts
+     * Turns free text into a Lucene query that matches every word as a substring,
+     * e.g. "api key" becomes "*api* AND *key*". The text is split like the standard
+     * analyzer splits indexed values, on everything but letters, digits, "_" and
+     * inner dots, so "user-id" becomes "*user* AND *id*" and matches the tokens
+     * that were indexed. No Lucene syntax survives the split.
+     */
+    static String toFulltextQuery(String text) {
+        if (text == null) return "";
+        StringBuilder query = new StringBuilder();
+        for (String word : FULLTEXT_DELIMITERS.split(text.trim().toLowerCase())) {
+            // The analyzer only keeps dots between letters or digits, e.g. in example.com
+            word = EDGE_DOTS.matcher(word).replaceAll("");
+            if (word.isEmpty()) continue;
+            if (query.length() > 0) query.append(" AND ");
+            query.append('*').append(word).append('*');
+        }
+        return query.toString();
+    }
+
+    /**
+     * Find the k host pairs with the most similar parameter sets.
+     * Computed in memory from the host parameter matrix, see {@link HostParameterMatrix}.
+     */
+    public List<HostParameterMatrix.HostPair> findSimilarHosts(HostParameterMatrix.Measure measure, int k) {
+        if (!connected || driver == null) return List.of();
+
+        try {
+            return hostParameterMatrix.topPairs(measure, k);
+        } catch (Exception e) {
+            logging.logToError("Error finding similar hosts: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    public HostParameterMatrix getHostParameterMatrix() {
+        return hostParameterMatrix;
+    }
+
+    /**
+     * Schema version of the connected database
+     */
+    public int getSchemaVersion() {
+        return schemaMigrator.getVersion();
+    }
+
+    /**
+     * Find similar endpoints across different hosts.
+     * Reads the SIMILAR_TO relationships maintained by {@link SimilarityMaintainer}.
      */
     public List<Record> findSimilarEndpoints() {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run(
-                "MATCH (e1:Endpoint)-[:HAS_PARAMETER]->(p:Parameter)<-[:HAS_PARAMETER]-(e2:Endpoint) " +
-                "WHERE e1.host <> e2.host " +
-                "RETURN e1.host as host1, e1.path as path1, " +
-                "       e2.host as host2, e2.path as path2, " +
-                "       p.name as parameter " +
-                "ORDER BY parameter " +
-                "LIMIT 100"
-            );
-            
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.SIMILAR_ENDPOINTS, parameters("limit", ANALYSIS_LIMIT));
         } catch (Exception e) {
             logging.logToError("Error finding similar endpoints: " + e.getMessage());
             return List.of();
         }
     }
 
+    /**
+     * Columns the similar endpoint pages can be sorted by
+     */
+    public static final List<String> SIMILAR_ENDPOINT_COLUMNS = List.of("host1", "path1", "host2", "path2", "parameter");
+
+    // Sorts after every sort key, to start a descending page from the top
+    private static final String LAST_SORT_KEY = new String(Character.toChars(Character.MAX_CODE_POINT));
+
+    /**
+     * One page of similar endpoint rows, for tables that load rows as they are scrolled into view.
+     * Each row also has its "sortKey", pass the last one of a page to read the page after it.
+     * Failures are thrown, so the table does not mistake them for an empty page.
+     * @param after sort key of the row before the page, or null to start from the first row
+     * @param skip rows to skip after that, to jump past pages that were not read
+     * @param sortColumn one of {@link #SIMILAR_ENDPOINT_COLUMNS}
+     * @param filter only rows with a column containing this text, ignoring case; empty for all rows
+     */
+    public List<Record> getSimilarEndpointsPage(String after, long skip, int limit, String sortColumn,
+                                                boolean ascending, String filter) {
+        if (!connected || driver == null) {
+            throw new IllegalStateException("Not connected to Neo4j");
+        }
+
+        QueryTemplate template = switch (sortColumn) {
+            case "host1" -> ascending ? QueryTemplate.SIMILAR_ENDPOINTS_BY_HOST1_ASC : QueryTemplate.SIMILAR_ENDPOINTS_BY_HOST1_DESC;
+            case "path1" -> ascending ? QueryTemplate.SIMILAR_ENDPOINTS_BY_PATH1_ASC : QueryTemplate.SIMILAR_ENDPOINTS_BY_PATH1_DESC;
+            case "host2" -> ascending ? QueryTemplate.SIMILAR_ENDPOINTS_BY_HOST2_ASC : QueryTemplate.SIMILAR_ENDPOINTS_BY_HOST2_DESC;
+            case "path2" -> ascending ? QueryTemplate.SIMILAR_ENDPOINTS_BY_PATH2_ASC : QueryTemplate.SIMILAR_ENDPOINTS_BY_PATH2_DESC;
+            case "parameter" -> ascending ? QueryTemplate.SIMILAR_ENDPOINTS_BY_PARAMETER_ASC : QueryTemplate.SIMILAR_ENDPOINTS_BY_PARAMETER_DESC;
+            default -> throw new IllegalArgumentException("Cannot sort similar endpoints by " + sortColumn);
+        };
+        return cachedRead(template, parameters(
+            "filter", filter.toLowerCase(),
+            "after", after != null ? after : ascending ? "" : LAST_SORT_KEY,
+            "skip", skip,
+            "limit", limit));
+    }
+
+    /**
+     * Number of similar endpoint rows matching the filter of {@link #getSimilarEndpointsPage}
+     */
+    public long countSimilarEndpoints(String filter) {
+        if (!connected || driver == null) {
+            throw new IllegalStateException("Not connected to Neo4j");
+        }
+
+        List<Record> records = cachedRead(QueryTemplate.SIMILAR_ENDPOINTS_COUNT,
+            parameters("filter", filter.toLowerCase()));
+        return records.isEmpty() ? 0 : records.get(0).get("total").asLong();
+    }
+
     /**
      * Get all hosts in the database
      */
     public List<Record> getAllHosts() {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run("MATCH (h:Host) RETURN h.name as host ORDER BY host");
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.ALL_HOSTS, parameters());
         } catch (Exception e) {
             logging.logToError("Error getting hosts: " + e.getMessage());
             return List.of();
@@ -287,14 +633,8 @@ public class Neo4jManager implements AutoCloseable {
     public List<Record> getEndpointsForHost(String hostName) {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run(
-                "MATCH (h:Host {name: $host})-[:HAS_ENDPOINT]->(e:Endpoint) " +
-                "RETURN e.path as path, e.method as method " +
-                "ORDER BY path",
-                parameters("host", hostName)
-            );
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.HOST_ENDPOINTS, parameters("host", hostName));
         } catch (Exception e) {
             logging.logToError("Error getting endpoints: " + e.getMessage());
             return List.of();
@@ -307,30 +647,573 @@ public class Neo4jManager implements AutoCloseable {
     public List<Record> getParametersForEndpoint(String hostName, String path) {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run(
-                "MATCH (e:Endpoint {host: $host, path: $path})-[:HAS_PARAMETER]->(p:Parameter) " +
-                "RETURN p.name as name, p.values as values " +
-                "ORDER BY name",
-                parameters("host", hostName, "path", path)
-            );
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.ENDPOINT_PARAMETERS, parameters("host", hostName, "path", path));
         } catch (Exception e) {
             logging.logToError("Error getting parameters: " + e.getMessage());
             return List.of();
         }
     }
 
+    /**
+     * Get one page of hosts ordered by name, starting after the given host
+     * @param afterHost name of the last host of the previous page, or null for the first page
+     * @param pageSize maximum number of hosts to return
+     */
+    public ResultPage getHostsPage(String afterHost, int pageSize) {
+        return readPage(
+            QueryTemplate.HOSTS_PAGE,
+            parameters("after", afterHost == null ? "" : afterHost, "limit", pageSize + 1).asMap(),
+            pageSize, "hosts");
+    }
+
+    /**
+     * Get one page of hosts with endpoint statistics, starting after the given host
+     */
+    public ResultPage getHostsWithStatsPage(String afterHost, int pageSize) {
+        return readPage(
+            QueryTemplate.HOSTS_WITH_STATS_PAGE,
+            parameters("after", afterHost == null ? "" : afterHost, "limit", pageSize + 1).asMap(),
+            pageSize, "hosts with stats");
+    }
+
+    /**
+     * Get the hosts, endpoints and parameter links created after a bookmark, oldest first.
+     * The next page starts at {@link ChangeBookmark#advance} of this page's records.
+     */
+    public ResultPage getChangesSince(ChangeBookmark bookmark, int pageSize) {
+        return readPage(
+            QueryTemplate.CHANGES_SINCE,
+            parameters("from", bookmark.from(), "seen", List.copyOf(bookmark.seen()), "limit", pageSize + 1).asMap(),
+            pageSize, "changes");
+    }
+
+    /**
+     * Get one page of endpoints for a host ordered by path and method
+     * @param afterPath path of the last endpoint of the previous page, or null for the first page
+     * @param afterMethod method of the last endpoint of the previous page
+     */
+    public ResultPage getEndpointsForHostPage(String hostName, String afterPath, String afterMethod, int pageSize) {
+        return readPage(
+            QueryTemplate.HOST_ENDPOINTS_PAGE,
+            parameters("host", hostName,
+                       "afterPath", afterPath == null ? "" : afterPath,
+                       "afterMethod", afterMethod == null ? "" : afterMethod,
+                       "limit", pageSize + 1).asMap(),
+            pageSize, "endpoints");
+    }
+
+    /**
+     * Get one page of parameters for an endpoint ordered by name
+     */
+    public ResultPage getParametersForEndpointPage(String hostName, String path, String afterName, int pageSize) {
+        return readPage(
+            QueryTemplate.ENDPOINT_PARAMETERS_PAGE,
+            parameters("host", hostName, "path", path,
+                       "after", afterName == null ? "" : afterName,
+                       "limit", pageSize + 1).asMap(),
+            pageSize, "parameters");
+    }
+
+    /**
+     * Counts the endpoints of a host whose path starts with the given segments
+     */
+    public long countEndpointsUnderPrefix(String hostName, List<String> prefix) {
+        if (!connected || driver == null) return 0;
+
+        try {
+            List<Record> records = cachedRead(QueryTemplate.LOD_PREFIX_COUNT,
+                parameters("host", hostName, "prefix", String.join("/", prefix)));
+            return records.isEmpty() ? 0 : records.get(0).get("endpoints").asLong(0);
+        } catch (Exception e) {
+            logging.logToError("Error counting endpoints: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Get the endpoints below a path prefix grouped by their next path segment, largest groups first
+     */
+    public ResultPage getEndpointGroupsPage(String hostName, List<String> prefix, long skip, int pageSize) {
+        return readPage(
+            QueryTemplate.LOD_PREFIX_GROUPS,
+            parameters("host", hostName, "prefix", String.join("/", prefix),
+                       "skip", skip, "limit", pageSize + 1).asMap(),
+            pageSize, "endpoint groups");
+    }
+
+    /**
+     * Get the endpoints below a path prefix ordered by path and method
+     * @param exact only endpoints whose path is the prefix itself
+     */
+    public ResultPage getEndpointsUnderPrefixPage(String hostName, List<String> prefix, boolean exact,
+                                                  long skip, int pageSize) {
+        String key = String.join("/", prefix);
+        return readPage(
+            QueryTemplate.LOD_PREFIX_ENDPOINTS,
+            parameters("host", hostName, "prefix", key, "below", key.isEmpty() ? "" : key + "/",
+                       "exact", exact, "skip", skip, "limit", pageSize + 1).asMap(),
+            pageSize, "endpoints");
+    }
+
+    /**
+     * Counts the parameters of an endpoint per classifier label, with '' for unclassified parameters
+     */
+    public List<Record> getParameterCategories(String hostName, String path, String method) {
+        if (!connected || driver == null) return List.of();
+
+        try {
+            return cachedRead(QueryTemplate.LOD_PARAMETER_CATEGORIES,
+                parameters("host", hostName, "path", path, "method", method, "categories", categoryLabels()));
+        } catch (Exception e) {
+            logging.logToError("Error getting parameter categories: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Get the parameters of an endpoint in one category, most values first
+     * @param category a classifier label, '' for unclassified or '*' for all parameters
+     */
+    public ResultPage getParametersByCategoryPage(String hostName, String path, String method, String category,
+                                                  long skip, int pageSize) {
+        return readPage(
+            QueryTemplate.LOD_PARAMETERS,
+            parameters("host", hostName, "path", path, "method", method, "categories", categoryLabels(),
+                       "category", category, "skip", skip, "limit", pageSize + 1).asMap(),
+            pageSize, "parameters");
+    }
+
+    private static List<String> categoryLabels() {
+        List<String> labels = new ArrayList<>();
+        for (ParameterClassifier.Category category : ParameterClassifier.Category.values()) {
+            labels.add(category.label());
+        }
+        return labels;
+    }
+
+    private ResultPage readPage(QueryTemplate template, Map<String, Object> params, int pageSize, String description) {
+        if (!connected || driver == null) return ResultPage.empty();
+
+        try {
+            return ResultPage.of(cachedRead(template, params), pageSize);
+        } catch (Exception e) {
+            logging.logToError("Error getting page of " + description + ": " + e.getMessage());
+            return ResultPage.empty();
+        }
+    }
+
+    /**
+     * Runs a read template through the result cache
+     */
+    private List<Record> cachedRead(QueryTemplate template, Value params) {
+        return cachedRead(template, params.asMap());
+    }
+
+    private List<Record> cachedRead(QueryTemplate template, Map<String, Object> params) {
+        return queryCache.get(template.cypher(), params, () -> {
+            queryPlans.recordExecution(template);
+            try (Session session = sessions.read()) {
+                return timed(template.name(), () -> session.executeRead(tx -> tx.run(template.cypher(), params).list()));
+            }
+        });
+    }
+
+    /**
+     * Runs an ad-hoc read query through the result cache, bounded by the default query timeout
+     */
+    private List<Record> cachedRead(String query, Map<String, Object> params) {
+        return queryCache.get(query, params, () -> {
+            queryPlans.recordAdHocExecution(query);
+            TransactionConfig config = TransactionConfig.builder()
+                .withTimeout(QueryExecutionManager.DEFAULT_TIMEOUT)
+                .build();
+            try (Session session = sessions.read()) {
+                return timed(AD_HOC_QUERY, () -> session.executeRead(tx -> tx.run(query, params).list(), config));
+            }
+        });
+    }
+
+    /**
+     * Writes all hosts as visualization JSON, see {@link GraphJson#writeHosts}
+     */
+    public void writeHostsJson(JsonWriter json) throws IOException {
+        streamJson(QueryTemplate.ALL_HOSTS_WITH_STATS, Map.of(), json, GraphJson::writeHosts);
+    }
+
+    /**
+     * Writes the hosts after the given name as visualization JSON
+     */
+    public StreamedRows writeHostsPageJson(String afterHost, int limit, JsonWriter json) throws IOException {
+        return streamJson(QueryTemplate.HOSTS_WITH_STATS_PAGE, Map.of("after", afterHost, "limit", limit),
+            json, GraphJson::writeHosts);
+    }
+
+    /**
+     * Writes the endpoints of a host as visualization JSON, see {@link GraphJson#writeEndpoints}
+     */
+    public void writeEndpointsJson(String host, JsonWriter json) throws IOException {
+        streamJson(QueryTemplate.HOST_ENDPOINTS_WITH_STATS, Map.of("host", host), json, GraphJson::writeEndpoints);
+    }
+
+    /**
+     * Writes the endpoints of a host after the given path and method as visualization JSON
+     */
+    public StreamedRows writeEndpointsPageJson(String host, String afterPath, String afterMethod, int limit,
+                                         JsonWriter json) throws IOException {
+        return streamJson(QueryTemplate.HOST_ENDPOINTS_PAGE,
+            Map.of("host", host, "afterPath", afterPath, "afterMethod", afterMethod, "limit", limit),
+            json, GraphJson::writeEndpoints);
+    }
+
+    /**
+     * Writes the parameters of an endpoint as visualization JSON, see {@link GraphJson#writeParameters}
+     */
+    public void writeParametersJson(String host, String path, JsonWriter json) throws IOException {
+        streamJson(QueryTemplate.GRAPH_ENDPOINT_PARAMETERS,
+            Map.of("host", host, "path", path, "maxValues", GRAPH_PARAMETER_VALUES), json, GraphJson::writeParameters);
+    }
+
+    /**
+     * Writes the strongest SIMILAR_TO relationships as visualization JSON, see {@link GraphJson#writeSimilarEndpoints}
+     */
+    public void writeSimilarEndpointsJson(int limit, JsonWriter json) throws IOException {
+        streamJson(QueryTemplate.GRAPH_SIMILAR_ENDPOINTS, Map.of("limit", limit), json, GraphJson::writeSimilarEndpoints);
+    }
+
+    /**
+     * What a streamed page contained, the last record is the position for the next page
+     * @param last null if the page was empty
+     */
+    public record StreamedRows(int count, Record last) {
+    }
+
+    @FunctionalInterface
+    private interface RecordsWriter {
+        void write(Iterator<Record> records, JsonWriter json) throws IOException;
+    }
+
+    /**
+     * Writes records as they arrive from the server, bypassing the result cache so
+     * memory does not grow with the result. Runs in an auto-commit transaction,
+     * because a retried transaction would write the records it already wrote again.
+     * Writes an empty array when not connected.
+     */
+    private StreamedRows streamJson(QueryTemplate template, Map<String, Object> params, JsonWriter json,
+                              RecordsWriter writer) throws IOException {
+        SessionFactory current = sessions;
+        if (!connected || current == null) {
+            json.beginArray().endArray();
+            return new StreamedRows(0, null);
+        }
+
+        queryPlans.recordExecution(template);
+        long started = System.nanoTime();
+        try (Session session = current.read(STREAM_FETCH_SIZE)) {
+            Result result = session.run(template.cypher(), params);
+            // Remember the last record for the paging position
+            Record[] last = new Record[1];
+            int[] count = new int[1];
+            writer.write(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return result.hasNext();
+                }
+
+                @Override
+                public Record next() {
+                    last[0] = result.next();
+                    count[0]++;
+                    return last[0];
+                }
+            }, json);
+            return new StreamedRows(count[0], last[0]);
+        } catch (IOException | RuntimeException e) {
+            metrics.counter("query.failures").increment();
+            metrics.counter("query." + template.name() + ".failures").increment();
+            throw e;
+        } finally {
+            // Includes the time the client took to read the response
+            metrics.histogram("query." + template.name(), "us").record((System.nanoTime() - started) / 1000);
+        }
+    }
+
+    /**
+     * Connections of the driver's pools, summed over all servers
+     * @param timedOut acquisitions that gave up waiting for a free connection
+     */
+    public record PoolUsage(int inUse, int idle, int acquiring, long timedOut) {
+    }
+
+    /**
+     * Current connection pool usage, all zero when not connected
+     */
+    public PoolUsage getPoolUsage() {
+        Driver current = driver;
+        if (!connected || current == null) return new PoolUsage(0, 0, 0, 0);
+
+        int inUse = 0, idle = 0, acquiring = 0;
+        long timedOut = 0;
+        try {
+            for (ConnectionPoolMetrics pool : current.metrics().connectionPoolMetrics()) {
+                inUse += pool.inUse();
+                idle += pool.idle();
+                acquiring += pool.acquiring();
+                timedOut += pool.timedOutToAcquire();
+            }
+        } catch (Exception e) {
+            // The driver was closed while reading
+        }
+        return new PoolUsage(inUse, idle, acquiring, timedOut);
+    }
+
+    /**
+     * Runs a query and records its time under query.NAME in microseconds,
+     * and its failures under query.NAME.failures and query.failures
+     */
+    private <T> T timed(String name, Supplier<T> query) {
+        long started = System.nanoTime();
+        try {
+            return query.get();
+        } catch (RuntimeException e) {
+            metrics.counter("query.failures").increment();
+            metrics.counter("query." + name + ".failures").increment();
+            throw e;
+        } finally {
+            metrics.histogram("query." + name, "us").record((System.nanoTime() - started) / 1000);
+        }
+    }
+
+    /**
+     * Metrics of the query layer, shared with the capture pipeline and exported over JMX
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Adds gauges for the result cache and the connection pool
+     */
+    private void registerMetrics() {
+        metrics.gauge("cache.results.hits", queryCache::getHitCount);
+        metrics.gauge("cache.results.misses", queryCache::getMissCount);
+        metrics.gauge("cache.results.hitRatioPercent", () -> {
+            long hits = queryCache.getHitCount();
+            long total = hits + queryCache.getMissCount();
+            return total == 0 ? 0 : hits * 100 / total;
+        });
+        metrics.gauge("driver.pool.inUse", () -> getPoolUsage().inUse());
+        metrics.gauge("driver.pool.idle", () -> getPoolUsage().idle());
+        metrics.gauge("driver.pool.acquiring", () -> getPoolUsage().acquiring());
+        metrics.gauge("driver.pool.timedOutToAcquire", () -> getPoolUsage().timedOut());
+    }
+
+    /**
+     * Changes whenever the graph may have changed, through writes or a new connection.
+     * Lets clients such as {@link GraphServer} tell whether a result they hold is still current.
+     */
+    public String getDataVersion() {
+        return connectionCount.get() + "-" + queryCache.getWriteEpoch();
+    }
+
+    /**
+     * Changes whenever the host and graph statistics may have changed, through a flush
+     * of the counters, a recompute or a new connection. It stays the same while
+     * captured requests only touch endpoints and parameters between flushes.
+     */
+    public String getStatisticsVersion() {
+        return connectionCount.get() + "-" + graphStatistics.getGeneration();
+    }
+
+    /**
+     * Plan cache statistics of the query templates
+     */
+    public QueryPlanRegistry getQueryPlans() {
+        return queryPlans;
+    }
+
+    /**
+     * Result cache shared by all read methods
+     */
+    public QueryResultCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Interactive queries that are currently streaming
+     */
+    public QueryExecutionManager getQueryExecution() {
+        return queryExecution;
+    }
+
+    /**
+     * Opens a streaming cursor for a custom Cypher query.
+     * The caller owns the cursor and must close it.
+     */
+    public QueryCursor openCursor(String query) {
+        return openCursor(query, Map.of(), QueryCursor.DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Opens a streaming cursor that pulls records in chunks of the given fetch size
+     */
+    public QueryCursor openCursor(String query, Map<String, Object> params, int fetchSize) {
+        return openCursor(query, params, fetchSize,
+            QueryExecutionManager.DEFAULT_TIMEOUT, QueryExecutionManager.DEFAULT_ROW_LIMIT);
+    }
+
+    /**
+     * Opens a streaming cursor for an interactive query.
+     * The query runs in a transaction that the server aborts after the timeout, and
+     * the cursor stops after rowLimit records. Until the cursor is closed the query
+     * is listed by {@link #getQueryExecution()} and can be cancelled.
+     */
+    public QueryCursor openCursor(String query, Map<String, Object> params, int fetchSize,
+                                  Duration timeout, int rowLimit) {
+        if (!connected || driver == null) {
+            throw new IllegalStateException("Not connected to Neo4j");
+        }
+
+        try {
+            boolean readOnly = QueryResultCache.isReadOnly(query);
+            if (readOnly) {
+                // Replay a cached result without taking a query slot
+                List<Record> cached = queryCache.getIfPresent(query, params);
+                if (cached != null) {
+                    return QueryCursor.ofRecords(cached, rowLimit);
+                }
+            }
+
+            QueryExecutionManager.RunningQuery runningQuery = queryExecution.begin(query, timeout);
+            try {
+                queryPlans.recordAdHocExecution(query);
+                TransactionConfig config = queryExecution.transactionConfig(runningQuery);
+                QueryCursor cursor;
+                if (readOnly) {
+                    // Record the result for the next run
+                    long epoch = queryCache.getWriteEpoch();
+                    cursor = new QueryCursor(sessions, query, params, fetchSize, config, rowLimit,
+                        QueryResultCache.MAX_CACHED_RECORDS,
+                        records -> queryCache.put(query, params, records, epoch),
+                        () -> queryExecution.finish(runningQuery));
+                } else {
+                    // An auto-commit write only commits once its result is consumed or closed, so
+                    // the cache is invalidated when the cursor closes. A read between run and commit
+                    // would otherwise cache the old data under the new epoch.
+                    try {
+                        cursor = new QueryCursor(sessions, query, params, fetchSize, config, rowLimit,
+                            0, null, () -> {
+                                queryCache.invalidate();
+                                queryExecution.finish(runningQuery);
+                            });
+                    } catch (RuntimeException e) {
+                        queryCache.invalidate();
+                        throw e;
+                    }
+                }
+                runningQuery.attach(cursor);
+                return cursor;
+            } catch (RuntimeException e) {
+                queryExecution.finish(runningQuery);
+                throw e;
+            }
+        } catch (Exception e) {
+            logging.logToError("Error executing custom query: " + e.getMessage());
+            throw new RuntimeException("Query execution failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs a custom query with EXPLAIN or PROFILE and returns its plan.
+     * EXPLAIN only plans the query. PROFILE executes it, including any writes, and
+     * reports rows and db hits per operator; at most rowLimit records are kept.
+     * The run is listed as a running query and can be cancelled like any other.
+     */
+    public QueryProfile inspectQuery(String query, Map<String, Object> params, boolean profile,
+                                     Duration timeout, int rowLimit) {
+        if (!connected || driver == null) {
+            throw new IllegalStateException("Not connected to Neo4j");
+        }
+
+        String statement = (profile ? "PROFILE " : "EXPLAIN ") + stripPlanPrefix(query);
+        QueryExecutionManager.RunningQuery runningQuery = queryExecution.begin(statement, timeout);
+        try (Session session = sessions.forQuery(query, QueryCursor.DEFAULT_FETCH_SIZE)) {
+            queryPlans.recordAdHocExecution(query);
+            Result result = session.run(statement, params, queryExecution.transactionConfig(runningQuery));
+
+            List<Record> records = new ArrayList<>();
+            while (records.size() < rowLimit && result.hasNext()) {
+                records.add(result.next());
+            }
+            boolean truncated = result.hasNext();
+            return new QueryProfile(records, truncated, result.consume());
+        } catch (Exception e) {
+            logging.logToError("Error inspecting query: " + e.getMessage());
+            throw new RuntimeException("Query inspection failed: " + e.getMessage(), e);
+        } finally {
+            queryExecution.finish(runningQuery);
+            if (profile && !QueryResultCache.isReadOnly(query)) {
+                queryCache.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Removes a leading EXPLAIN or PROFILE so the inspector can add its own
+     */
+    private static String stripPlanPrefix(String query) {
+        String trimmed = query.trim();
+        String upper = trimmed.toUpperCase();
+        for (String prefix : new String[]{"EXPLAIN", "PROFILE"}) {
+            if (upper.startsWith(prefix) && trimmed.length() > prefix.length()
+                    && Character.isWhitespace(trimmed.charAt(prefix.length()))) {
+                return trimmed.substring(prefix.length()).trim();
+            }
+        }
+        return trimmed;
+    }
+
+    /**
+     * Terminates the interactive query streaming into the given cursor
+     * @return true if the query was still running
+     */
+    public boolean cancelQuery(QueryCursor cursor) {
+        QueryExecutionManager.RunningQuery runningQuery = queryExecution.findByCursor(cursor);
+        if (runningQuery == null) {
+            cursor.close();
+            return false;
+        }
+        return queryExecution.cancel(driver, runningQuery.getId());
+    }
+
+    /**
+     * Terminates an interactive query by its id
+     * @return true if the query was still running
+     */
+    public boolean cancelQuery(String queryId) {
+        return queryExecution.cancel(driver, queryId);
+    }
+
     /**
      * Import proxy history into the database
      */
     public void importProxyHistory(List<Object> history, ProgressCallback callback) {
         if (!connected || driver == null) return;
         
+        // Upserts without their indexes would scan every endpoint
+        if (!schemaMigrator.awaitIndexes(sessions, SchemaMigrator.INGEST_INDEX_WAIT_SECONDS)) {
+            logging.logToError("Importing before all indexes are online, the import may be slow");
+        }
+        
         int total = history.size();
         int count = 0;
         
         for (Object item : history) {
+            if (callback != null && callback.isCancelled()) {
+                logging.logToOutput("Import cancelled after " + count + " of " + total + " items");
+                return;
+            }
+            count++;
             try {
                 // Handle the item based on its actual type
                 // This is a generic handler to work with multiple Burp API versions
@@ -363,7 +1246,7 @@ public class Neo4jManager implements AutoCloseable {
                         parameters = (List<?>) request.getClass().getMethod("parameters").invoke(request);
                     }
                 } catch (Exception e) {
-                    logging.logToError("Error extracting data: " + e.getMessage());
+                    importError(callback, "extract", e);
                     continue;
                 }
                 
@@ -376,51 +1259,60 @@ public class Neo4jManager implements AutoCloseable {
                     path = url;
                 }
                 
-                // Add to database
-                final String finalHost = host;
-                final String finalMethod = method;
-                final String finalPath = path;
-                
-                upsertHost(finalHost);
-                upsertEndpoint(finalHost, finalPath, finalMethod);
+                // The writes of one item are timed together
+                long started = System.nanoTime();
+                try {
+                    writeHost(host);
+                    writeEndpoint(host, path, method);
+                } catch (Exception e) {
+                    importError(callback, "endpoint", e);
+                    continue;
+                }
                 
                 // Process parameters
                 for (Object param : parameters) {
                     try {
                         String name = (String) param.getClass().getMethod("name").invoke(param);
                         String value = (String) param.getClass().getMethod("value").invoke(param);
-                        upsertParameter(finalHost, finalPath, name, value);
+                        writeParameter(host, path, name, value);
                     } catch (Exception e) {
-                        logging.logToError("Error processing parameter: " + e.getMessage());
+                        importError(callback, "parameter", e);
                     }
                 }
                 
-                count++;
                 if (callback != null) {
-                    callback.onProgress(count, total);
+                    callback.onItemWritten(System.nanoTime() - started);
                 }
-                
             } catch (Exception e) {
-                logging.logToError("Error processing history item: " + e.getMessage());
+                importError(callback, "item", e);
+            } finally {
+                // Failed items count as processed too, so the progress reaches the total
+                if (callback != null) {
+                    callback.onProgress(count, total);
+                }
             }
         }
     }
 
+    /**
+     * Hands an import error to the callback, which counts it, or logs it if there is none
+     */
+    private void importError(ProgressCallback callback, String stage, Exception e) {
+        if (callback != null) {
+            callback.onError(stage, e);
+        } else {
+            logging.logToError("Error importing " + stage + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Get all hosts with endpoint statistics 
      */
     public List<Record> getAllHostsWithStats() {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run(
-                "MATCH (h:Host) " +
-                "OPTIONAL MATCH (h)-[:HAS_ENDPOINT]->(e:Endpoint) " +
-                "WITH h, COUNT(e) as endpointCount " +
-                "RETURN h.name as host, endpointCount " +
-                "ORDER BY host"
-            );
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.ALL_HOSTS_WITH_STATS, parameters());
         } catch (Exception e) {
             logging.logToError("Error getting hosts with stats: " + e.getMessage());
             return List.of();
@@ -433,16 +1325,8 @@ public class Neo4jManager implements AutoCloseable {
     public List<Record> getEndpointsForHostWithStats(String hostName) {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run(
-                "MATCH (h:Host {name: $host})-[:HAS_ENDPOINT]->(e:Endpoint) " +
-                "OPTIONAL MATCH (e)-[:HAS_PARAMETER]->(p:Parameter) " +
-                "WITH e, COUNT(p) as parameterCount " +
-                "RETURN e.path as path, e.method as method, parameterCount " +
-                "ORDER BY path",
-                parameters("host", hostName)
-            );
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.HOST_ENDPOINTS_WITH_STATS, parameters("host", hostName));
         } catch (Exception e) {
             logging.logToError("Error getting endpoints with stats: " + e.getMessage());
             return List.of();
@@ -455,16 +1339,8 @@ public class Neo4jManager implements AutoCloseable {
     public List<Record> findSimilarEndpointsByPath() {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run(
-                "MATCH (e1:Endpoint), (e2:Endpoint) " +
-                "WHERE e1.host <> e2.host AND e1.path = e2.path " +
-                "RETURN e1.host as host1, e1.path as path1, e1.method as method1, " +
-                "       e2.host as host2, e2.path as path2, e2.method as method2 " +
-                "ORDER BY path1 " +
-                "LIMIT 100"
-            );
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.SIMILAR_ENDPOINTS_BY_PATH, parameters("limit", ANALYSIS_LIMIT));
         } catch (Exception e) {
             logging.logToError("Error finding similar endpoints by path: " + e.getMessage());
             return List.of();
@@ -480,9 +1356,19 @@ public class Neo4jManager implements AutoCloseable {
     public List<Record> executeQuery(String query) {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run(query);
-            return result.list();
+        try {
+            if (QueryResultCache.isReadOnly(query)) {
+                return cachedRead(query, Map.of());
+            }
+            queryPlans.recordAdHocExecution(query);
+            TransactionConfig config = TransactionConfig.builder()
+                .withTimeout(QueryExecutionManager.DEFAULT_TIMEOUT)
+                .build();
+            try (Session session = sessions.write()) {
+                return session.run(query, config).list();
+            } finally {
+                queryCache.invalidate();
+            }
         } catch (Exception e) {
             logging.logToError("Error executing custom query: " + e.getMessage());
             throw new RuntimeException("Query execution failed: " + e.getMessage(), e);
@@ -495,18 +1381,8 @@ public class Neo4jManager implements AutoCloseable {
     public List<Record> findSimilarParameters() {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            Result result = session.run(
-                "MATCH (e1:Endpoint)-[:HAS_PARAMETER]->(p1:Parameter), " +
-                "      (e2:Endpoint)-[:HAS_PARAMETER]->(p2:Parameter) " +
-                "WHERE e1.host <> e2.host AND p1.name = p2.name " +
-                "RETURN e1.host as host1, e1.path as path1, " +
-                "       e2.host as host2, e2.path as path2, " +
-                "       p1.name as parameter " +
-                "ORDER BY parameter " +
-                "LIMIT 100"
-            );
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.SIMILAR_ENDPOINTS, parameters("limit", ANALYSIS_LIMIT));
         } catch (Exception e) {
             logging.logToError("Error finding similar parameters: " + e.getMessage());
             return List.of();
@@ -514,53 +1390,65 @@ public class Neo4jManager implements AutoCloseable {
     }
 
     /**
-     * Find endpoints with similar API patterns (path structure) across different hosts
+     * Find endpoints with similar API patterns (path structure) across different hosts.
+     * The path similarity is computed at ingest time, so APOC is not required.
      */
     public List<Record> findSimilarAPIPatterns() {
         if (!connected || driver == null) return List.of();
         
-        try (Session session = driver.session()) {
-            // Find similar API patterns using path structure similarity
-            // This example looks for common path segments
-            Result result = session.run(
-                "MATCH (e1:Endpoint), (e2:Endpoint) " +
-                "WHERE e1.host <> e2.host " +
-                "AND e1.path CONTAINS '/api/' AND e2.path CONTAINS '/api/' " +
-                "AND apoc.text.levenshteinSimilarity(e1.path, e2.path) > 0.6 " +
-                "AND e1.path <> e2.path " +
-                "RETURN e1.host as host1, e1.path as path1, e1.method as method1, " +
-                "       e2.host as host2, e2.path as path2, e2.method as method2, " +
-                "       apoc.text.levenshteinSimilarity(e1.path, e2.path) as similarity " +
-                "ORDER BY similarity DESC " +
-                "LIMIT 100"
-            );
-            return result.list();
+        try {
+            return cachedRead(QueryTemplate.SIMILAR_API_PATTERNS, parameters("threshold", SimilarityMaintainer.API_SIMILARITY_THRESHOLD, "limit", ANALYSIS_LIMIT));
         } catch (Exception e) {
-            // If APOC extension is not available, try a simpler match
-            try (Session session = driver.session()) {
-                Result result = session.run(
-                    "MATCH (e1:Endpoint), (e2:Endpoint) " +
-                    "WHERE e1.host <> e2.host " +
-                    "AND e1.path CONTAINS '/api/' AND e2.path CONTAINS '/api/' " +
-                    "AND e1.method = e2.method " +
-                    "AND e1.path <> e2.path " +
-                    "RETURN e1.host as host1, e1.path as path1, e1.method as method1, " +
-                    "       e2.host as host2, e2.path as path2, e2.method as method2 " +
-                    "LIMIT 100"
-                );
-                return result.list();
-            } catch (Exception ex) {
-                logging.logToError("Error finding similar API patterns: " + ex.getMessage());
-                return List.of();
+            logging.logToError("Error finding similar API patterns: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Get the precomputed totals of the whole graph
+     */
+    public List<Record> getGraphStatistics() {
+        if (!connected || driver == null) return List.of();
+        
+        try {
+            return cachedRead(QueryTemplate.GRAPH_STATISTICS, parameters());
+        } catch (Exception e) {
+            logging.logToError("Error getting graph statistics: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Recomputes all statistics from the graph, e.g. after custom queries deleted data
+     * @return true if the statistics were recomputed
+     */
+    public boolean recomputeGraphStatistics() {
+        if (!connected || driver == null) return false;
+        
+        // Write pending counters first so they are not added on top of the recomputed values
+        graphStatistics.flush();
+        try (Session session = sessions.write()) {
+            for (String statement : GraphStatistics.RECOMPUTE_STATEMENTS) {
+                session.run(statement).consume();
             }
+            graphStatistics.recomputed();
+            queryCache.invalidate();
+            return true;
+        } catch (Exception e) {
+            logging.logToError("Error recomputing graph statistics: " + e.getMessage());
+            return false;
         }
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
+        similarityMaintainer.stop();
+        graphStatistics.stop();
+        queryExecution.cancelAll(driver);
         if (driver != null) {
             driver.close();
             driver = null;
+            sessions = null;
             connected = false;
         }
     }
@@ -573,6 +1461,13 @@ public class Neo4jManager implements AutoCloseable {
         return neo4jUri;
     }
 
+    /**
+     * Why the last connection attempt failed, or null if it succeeded
+     */
+    public String getConnectionError() {
+        return connectionError;
+    }
+
     public String getUsername() {
         return neo4jUsername;
     }
@@ -581,6 +1476,29 @@ public class Neo4jManager implements AutoCloseable {
      * Callback interface for tracking import progress
      */
     public interface ProgressCallback {
+        /**
+         * Called after every item, whether it could be imported or not
+         */
         void onProgress(int current, int total);
+
+        /**
+         * Called after the writes of an item succeeded, with how long they took together
+         */
+        default void onItemWritten(long nanos) {
+        }
+
+        /**
+         * Called instead of logging when an item or one of its parameters could not be imported
+         * @param stage what failed: extract, endpoint, parameter or item
+         */
+        default void onError(String stage, Exception e) {
+        }
+
+        /**
+         * Checked before each item, the import stops once this returns true
+         */
+        default boolean isCancelled() {
+            return false;
+        }
     }
 }
\ No newline at end of file
@@ -1,25 +1,23 @@
 package com.darkcell.burpn2neo;
 
 import burp.api.montoya.MontoyaApi;
-import burp.api.montoya.http.message.params.ParsedHttpParameter;
 import burp.api.montoya.proxy.http.InterceptedRequest;
 import burp.api.montoya.proxy.http.ProxyRequestHandler;
 import burp.api.montoya.proxy.http.ProxyRequestReceivedAction;
 import burp.api.montoya.proxy.http.ProxyRequestToBeSentAction;
 
-import java.net.URL;
-import java.util.List;
-
 /**
- * Handles Burp proxy requests and logs them to Neo4j
+ * Handles Burp proxy requests and queues them for writing to Neo4j
  */
 public class Neo4jProxyRequestHandler implements ProxyRequestHandler {
     private final Neo4jManager neo4jManager;
     private final MontoyaApi api;
+    private final IngestionPipeline pipeline;
 
-    public Neo4jProxyRequestHandler(MontoyaApi api, Neo4jManager neo4jManager) {
+    public Neo4jProxyRequestHandler(MontoyaApi api, Neo4jManager neo4jManager, IngestionPipeline pipeline) {
         this.api = api;
         this.neo4jManager = neo4jManager;
+        this.pipeline = pipeline;
     }
 
     @Override
@@ -36,32 +34,8 @@ public class Neo4jProxyRequestHandler implements ProxyRequestHandler {
         }
 
         try {
-            // Extract information
-            String hostName = interceptedRequest.httpService().host();
-            
-            // Extract URL path
-            String urlString = interceptedRequest.url();
-            String path;
-            try {
-                path = new URL(urlString).getPath();
-                if (path.isEmpty()) {
-                    path = "/";
-                }
-            } catch (Exception e) {
-                path = urlString;
-            }
-            
-            String method = interceptedRequest.method();
-            
-            // Add to Neo4j database
-            neo4jManager.upsertHost(hostName);
-            neo4jManager.upsertEndpoint(hostName, path, method);
-            
-            // Process parameters
-            List<ParsedHttpParameter> params = interceptedRequest.parameters();
-            for (ParsedHttpParameter param : params) {
-                neo4jManager.upsertParameter(hostName, path, param.name(), param.value());
-            }
+            // The pipeline writes in the background, the proxy never waits for Neo4j
+            pipeline.submit(interceptedRequest);
         } catch (Exception e) {
             api.logging().logToError("Error processing request: " + e.getMessage());
         }
@@ -0,0 +1,235 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+/**
+ * Table model that loads its rows from Neo4j a page at a time.
+ * Only the row count is known up front. A page is queried when one of its rows
+ * is first painted, and the most recently used pages are kept in memory.
+ * Sorting and filtering are part of the query, so the server does that work and
+ * the table never holds more than a few thousand rows, whatever the result size.
+ * A page after one already read starts from the sort key of its last row, so
+ * the server seeks to it in an index instead of skipping all rows before it.
+ * Not thread safe, use it from the event dispatch thread only.
+ */
+public class PagedTableModel extends AbstractTableModel {
+    public static final int PAGE_SIZE = 200;
+    private static final int CACHED_PAGES = 25;
+    // Pages share this many task keys, so when the user scrolls quickly a page
+    // that is still queued is dropped in favour of a newer one
+    private static final int LOAD_SLOTS = 3;
+    private static final String LOADING = "Loading...";
+
+    /**
+     * Reads one page of rows. Each row has a unique {@link #SORT_KEY} in the order of the rows.
+     * @param after sort key of the row before the page, or null to start from the first row
+     * @param skip rows to skip after that
+     * @param sortColumn key of the column to sort by
+     * @param filter text the rows should contain, empty for all rows
+     */
+    @FunctionalInterface
+    public interface PageSource {
+        List<Record> fetch(String after, long skip, int limit, String sortColumn, boolean ascending, String filter)
+            throws Exception;
+    }
+
+    public static final String SORT_KEY = "sortKey";
+
+    /**
+     * Counts the rows matching a filter
+     */
+    @FunctionalInterface
+    public interface RowCounter {
+        long count(String filter) throws Exception;
+    }
+
+    private final String[] columnNames;
+    private final String[] columnKeys;
+    private final PageSource source;
+    private final RowCounter counter;
+    private final UiTaskScheduler tasks;
+    private final String taskKey;
+
+    private final Map<Long, Object[][]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Object[][]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private final Map<Long, Future<?>> loading = new HashMap<>();
+    // Sort key of the last row of each page read, kept when the page itself is dropped
+    private final TreeMap<Long, String> pageEnds = new TreeMap<>();
+
+    private int rowCount = 0;
+    private int sortColumn = 0;
+    private boolean ascending = true;
+    private String filter = "";
+    // Bumped whenever the rows change, so pages loaded for an older query are dropped
+    private long generation = 0;
+    private LongConsumer rowCountListener = count -> {};
+
+    /**
+     * @param columnNames column headers
+     * @param columnKeys record keys of the columns, also passed to the source for sorting
+     * @param taskKey prefix of the background task keys
+     */
+    public PagedTableModel(String[] columnNames, String[] columnKeys, PageSource source, RowCounter counter,
+                           UiTaskScheduler tasks, String taskKey) {
+        this.columnNames = columnNames;
+        this.columnKeys = columnKeys;
+        this.source = source;
+        this.counter = counter;
+        this.tasks = tasks;
+        this.taskKey = taskKey;
+    }
+
+    /**
+     * Called with the total number of rows whenever it was counted
+     */
+    public void setRowCountListener(LongConsumer rowCountListener) {
+        this.rowCountListener = rowCountListener;
+    }
+
+    /**
+     * Drops all loaded rows and counts the rows again
+     */
+    public void reload() {
+        generation++;
+        long reloadGeneration = generation;
+        String reloadFilter = filter;
+        pages.clear();
+        loading.clear();
+        pageEnds.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+
+        tasks.submit(taskKey + "-count", "Count rows", progress -> counter.count(reloadFilter), total -> {
+            if (reloadGeneration != generation) return;
+            rowCount = (int) Math.min(total, Integer.MAX_VALUE);
+            fireTableDataChanged();
+            rowCountListener.accept(total);
+        });
+    }
+
+    /**
+     * Sorts by the column, or reverses the order if it is already sorted by it
+     */
+    public void sortBy(int column) {
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = true;
+        }
+        // The header shows the sort order
+        fireTableStructureChanged();
+        reload();
+    }
+
+    /**
+     * Keeps only rows with a column containing the text, ignoring case.
+     * Takes effect on the next {@link #reload()}.
+     */
+    public void setFilter(String filter) {
+        this.filter = filter == null ? "" : filter.trim();
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column != sortColumn) return columnNames[column];
+        return columnNames[column] + (ascending ? " ▲" : " ▼");
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        long page = row / PAGE_SIZE;
+        Object[][] rows = pages.get(page);
+        if (rows == null) {
+            loadPage(page);
+            return column == 0 ? LOADING : "";
+        }
+
+        int offset = row % PAGE_SIZE;
+        // The graph may have shrunk since the rows were counted
+        if (offset >= rows.length) return "";
+        return rows[offset][column];
+    }
+
+    private void loadPage(long page) {
+        Future<?> pending = loading.get(page);
+        if (pending != null && !pending.isDone()) return;
+
+        long pageGeneration = generation;
+        String pageSort = columnKeys[sortColumn];
+        boolean pageAscending = ascending;
+        String pageFilter = filter;
+        // Starts after the nearest page read before this one
+        Map.Entry<Long, String> anchor = pageEnds.floorEntry(page - 1);
+        String after = anchor == null ? null : anchor.getValue();
+        long skip = (anchor == null ? page : page - anchor.getKey() - 1) * PAGE_SIZE;
+
+        Future<?> task = tasks.<List<Record>, Void>submit(taskKey + "-page-" + (page % LOAD_SLOTS),
+            "Load rows from " + (page * PAGE_SIZE + 1),
+            progress -> source.fetch(after, skip, PAGE_SIZE, pageSort, pageAscending, pageFilter),
+            null,
+            records -> {
+                if (pageGeneration != generation) return;
+                loading.remove(page);
+                Object[][] rows = toRows(records);
+                pages.put(page, rows);
+                if (!records.isEmpty()) {
+                    pageEnds.put(page, records.get(records.size() - 1).get(SORT_KEY).asString());
+                }
+
+                int first = (int) (page * PAGE_SIZE);
+                int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+                if (first <= last) {
+                    fireTableRowsUpdated(first, last);
+                }
+            },
+            e -> {
+                if (pageGeneration == generation) {
+                    loading.remove(page);
+                }
+            });
+        loading.put(page, task);
+    }
+
+    private Object[][] toRows(List<Record> records) {
+        Object[][] rows = new Object[records.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            Record record = records.get(i);
+            Object[] row = new Object[columnKeys.length];
+            for (int column = 0; column < columnKeys.length; column++) {
+                Value value = record.get(columnKeys[column]);
+                row[column] = value.isNull() ? "" : value.asObject();
+            }
+            rows[i] = row;
+        }
+        return rows;
+    }
+}
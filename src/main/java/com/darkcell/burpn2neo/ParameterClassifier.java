@@ -0,0 +1,160 @@
+package com.darkcell.burpn2neo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Classifies parameter names into security categories at ingest time.
+ * All keywords of all categories are compiled once into an Aho-Corasick automaton,
+ * so a name is classified in a single pass over its characters no matter how many
+ * keywords there are. Matching is case-insensitive and finds keywords anywhere in
+ * the name, like the (?i).*keyword.* regexes it replaces.
+ */
+public class ParameterClassifier {
+    /**
+     * Bump when keywords change, so parameters classified by an older version are
+     * re-labelled on the next connect
+     */
+    public static final int VERSION = 1;
+
+    // Only ASCII is matched, any other character resets the automaton
+    private static final int ALPHABET = 128;
+
+    /**
+     * Categories and the node label each one adds to a Parameter
+     */
+    public enum Category {
+        AUTH("AuthParam", List.of("auth", "token", "apikey", "api_key", "api-key", "secret",
+            "password", "passwd", "session", "jwt"), Set.of()),
+        REDIRECT("RedirectParam", List.of("redir", "url", "link", "goto", "next", "target"), Set.of()),
+        FILE("FileParam", List.of("file", "path", "dir", "include", "require"), Set.of()),
+        // A bare "q" would match any name containing the letter, so it only counts as the whole name
+        SEARCH("SearchParam", List.of("query", "search", "find"), Set.of("q", "s", "kw", "keyword"));
+
+        private final String label;
+        private final List<String> keywords;
+        private final Set<String> exactNames;
+
+        Category(String label, List<String> keywords, Set<String> exactNames) {
+            this.label = label;
+            this.keywords = keywords;
+            this.exactNames = exactNames;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    // Automaton: goto function, failure links and category bits per state
+    private final int[][] transitions;
+    private final int[] outputs;
+
+    public ParameterClassifier() {
+        List<int[]> gotoTable = new ArrayList<>();
+        List<Integer> outputTable = new ArrayList<>();
+        gotoTable.add(newState());
+        outputTable.add(0);
+
+        for (Category category : Category.values()) {
+            for (String keyword : category.keywords) {
+                int state = 0;
+                for (char c : keyword.toLowerCase(Locale.ROOT).toCharArray()) {
+                    int next = gotoTable.get(state)[c];
+                    if (next < 0) {
+                        next = gotoTable.size();
+                        gotoTable.add(newState());
+                        outputTable.add(0);
+                        gotoTable.get(state)[c] = next;
+                    }
+                    state = next;
+                }
+                outputTable.set(state, outputTable.get(state) | category.bit());
+            }
+        }
+
+        transitions = gotoTable.toArray(new int[0][]);
+        outputs = outputTable.stream().mapToInt(Integer::intValue).toArray();
+
+        // Breadth-first pass turns the trie into a full automaton: missing transitions
+        // follow the failure link, and each state inherits the outputs of its failure state
+        int[] failure = new int[transitions.length];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = transitions[0][c];
+            if (next < 0) {
+                transitions[0][c] = 0;
+            } else {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] |= outputs[failure[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions[state][c];
+                if (next < 0) {
+                    transitions[state][c] = transitions[failure[state]][c];
+                } else {
+                    failure[next] = transitions[failure[state]][c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    /**
+     * Category bits of a parameter name, see {@link Category#bit()}
+     */
+    public int classify(String name) {
+        if (name == null || name.isEmpty()) return 0;
+
+        int matches = 0;
+        int state = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            state = c < ALPHABET ? transitions[state][c] : 0;
+            matches |= outputs[state];
+        }
+
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (Category category : Category.values()) {
+            if (category.exactNames.contains(lower)) {
+                matches |= category.bit();
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Node labels for a parameter name, empty if it matches no category
+     */
+    public List<String> labels(String name) {
+        int matches = classify(name);
+        if (matches == 0) return List.of();
+
+        List<String> labels = new ArrayList<>(Category.values().length);
+        for (Category category : Category.values()) {
+            if ((matches & category.bit()) != 0) {
+                labels.add(category.label());
+            }
+        }
+        return labels;
+    }
+}
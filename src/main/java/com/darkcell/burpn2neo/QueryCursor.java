@@ -0,0 +1,203 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionConfig;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Streams the records of a query instead of materializing the whole result.
+ * Records are pulled from the server in fetch-size chunks as the caller iterates,
+ * so the session stays open until the cursor is closed or exhausted.
+ * A cursor can also replay a cached result without touching the database.
+ * With a row limit the cursor stops after that many records and reports the
+ * result as truncated.
+ */
+public class QueryCursor implements Iterator<Record>, AutoCloseable {
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private final Session session;
+    private final Result result;
+    private final Iterator<Record> cached;
+    private final List<String> keys;
+    private final int rowLimit;
+    private final Runnable onClose;
+
+    // Records seen so far, handed to the completion callback when the stream ends
+    private List<Record> recorded;
+    private final int maxRecorded;
+    private final Consumer<List<Record>> onComplete;
+
+    private volatile int consumed = 0;
+    private boolean closed = false;
+    private boolean truncated = false;
+
+    QueryCursor(SessionFactory sessions, String query, Map<String, Object> parameters, int fetchSize) {
+        this(sessions, query, parameters, fetchSize, TransactionConfig.empty(), 0, 0, null, null);
+    }
+
+    /**
+     * Opens a streaming cursor that reports the complete result to the callback
+     * once exhausted, as long as it has no more than maxRecorded records
+     */
+    QueryCursor(SessionFactory sessions, String query, Map<String, Object> parameters, int fetchSize,
+                int maxRecorded, Consumer<List<Record>> onComplete) {
+        this(sessions, query, parameters, fetchSize, TransactionConfig.empty(), 0, maxRecorded, onComplete, null);
+    }
+
+    /**
+     * Opens a streaming cursor in a transaction with the given settings.
+     * Read-only queries run in a read session, so a cluster can serve them from a follower.
+     * @param rowLimit maximum number of records handed out, or 0 for no limit
+     * @param onClose invoked once when the cursor is closed, may be null
+     */
+    QueryCursor(SessionFactory sessions, String query, Map<String, Object> parameters, int fetchSize,
+                TransactionConfig config, int rowLimit, int maxRecorded,
+                Consumer<List<Record>> onComplete, Runnable onClose) {
+        this.session = sessions.forQuery(query, fetchSize);
+        try {
+            this.result = session.run(query, parameters, config);
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+        this.cached = null;
+        this.keys = result.keys();
+        this.rowLimit = rowLimit;
+        this.maxRecorded = maxRecorded;
+        this.onComplete = onComplete;
+        this.onClose = onClose;
+        this.recorded = onComplete != null ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Creates a cursor over an already materialized result
+     */
+    static QueryCursor ofRecords(List<Record> records) {
+        return ofRecords(records, 0);
+    }
+
+    /**
+     * Creates a cursor over an already materialized result that stops after rowLimit records
+     */
+    static QueryCursor ofRecords(List<Record> records, int rowLimit) {
+        return new QueryCursor(records, rowLimit);
+    }
+
+    private QueryCursor(List<Record> records, int rowLimit) {
+        this.session = null;
+        this.result = null;
+        this.cached = records.iterator();
+        this.keys = records.isEmpty() ? List.of() : records.get(0).keys();
+        this.rowLimit = rowLimit;
+        this.maxRecorded = 0;
+        this.onComplete = null;
+        this.onClose = null;
+        this.recorded = null;
+    }
+
+    /**
+     * Column names of the result
+     */
+    public List<String> keys() {
+        return keys;
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        if (closed) return false;
+        boolean hasNext;
+        try {
+            hasNext = cached != null ? cached.hasNext() : result.hasNext();
+        } catch (RuntimeException e) {
+            // Timed out, terminated or failed on the server, the stream cannot continue
+            close();
+            throw e;
+        }
+        if (hasNext && rowLimit > 0 && consumed >= rowLimit) {
+            truncated = true;
+            // A truncated result is incomplete, so it must not be reported
+            recorded = null;
+            hasNext = false;
+        }
+        if (!hasNext) {
+            if (recorded != null) {
+                onComplete.accept(recorded);
+                recorded = null;
+            }
+            // Release the connection as soon as the stream is exhausted
+            close();
+        }
+        return hasNext;
+    }
+
+    @Override
+    public synchronized Record next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        consumed++;
+        Record record = cached != null ? cached.next() : result.next();
+        if (recorded != null) {
+            if (recorded.size() < maxRecorded) {
+                recorded.add(record);
+            } else {
+                recorded = null;
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Pulls up to the given number of records from the stream
+     */
+    public synchronized List<Record> nextPage(int size) {
+        List<Record> page = new ArrayList<>(Math.min(size, DEFAULT_FETCH_SIZE));
+        while (page.size() < size && hasNext()) {
+            page.add(next());
+        }
+        return page;
+    }
+
+    /**
+     * Number of records handed out so far
+     */
+    public int getConsumedCount() {
+        return consumed;
+    }
+
+    /**
+     * Whether the cursor stopped at its row limit although more records were available
+     */
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        // An abandoned stream is incomplete, so it must not be reported
+        recorded = null;
+        try {
+            if (session != null) {
+                session.close();
+            }
+        } finally {
+            if (onClose != null) {
+                onClose.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionConfig;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.neo4j.driver.Values.parameters;
+
+/**
+ * Keeps track of the interactive queries from the custom query console.
+ * Every query runs in a transaction with a timeout and is tagged with an id in the
+ * transaction metadata, so it can be found and terminated on the server. The number
+ * of concurrent interactive queries is capped, which leaves the rest of the driver's
+ * connection pool to ingestion and the background maintainers.
+ */
+public class QueryExecutionManager {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+    public static final int DEFAULT_ROW_LIMIT = 10_000;
+
+    // Interactive queries never hold more connections than this
+    static final int MAX_CONCURRENT_QUERIES = 2;
+    private static final long ACQUIRE_TIMEOUT_MS = 2000;
+
+    // Transaction metadata key used to find a query on the server
+    private static final String METADATA_KEY = "neoburpQueryId";
+
+    private final Logging logging;
+    private final Semaphore permits = new Semaphore(MAX_CONCURRENT_QUERIES);
+    private final Map<String, RunningQuery> running = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public QueryExecutionManager(Logging logging) {
+        this.logging = logging;
+    }
+
+    /**
+     * Registers a new interactive query.
+     * @throws IllegalStateException if too many interactive queries are already running
+     */
+    public RunningQuery begin(String query, Duration timeout) {
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Too many queries running (limit " + MAX_CONCURRENT_QUERIES
+                    + "), cancel one of them first");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a query slot", e);
+        }
+
+        RunningQuery runningQuery = new RunningQuery("q-" + nextId.getAndIncrement(), query, timeout);
+        running.put(runningQuery.getId(), runningQuery);
+        return runningQuery;
+    }
+
+    /**
+     * Unregisters a query once its cursor is closed. Safe to call more than once.
+     */
+    public void finish(RunningQuery runningQuery) {
+        if (running.remove(runningQuery.getId(), runningQuery)) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Transaction settings for a query: its timeout and the metadata used to find it again
+     */
+    public TransactionConfig transactionConfig(RunningQuery runningQuery) {
+        return TransactionConfig.builder()
+            .withTimeout(runningQuery.getTimeout())
+            .withMetadata(Map.of(METADATA_KEY, runningQuery.getId(), "app", "NeoBurp"))
+            .build();
+    }
+
+    /**
+     * Currently running queries, oldest first
+     */
+    public List<RunningQuery> getRunningQueries() {
+        List<RunningQuery> queries = new ArrayList<>(running.values());
+        queries.sort(Comparator.comparing(RunningQuery::getStartedAt));
+        return queries;
+    }
+
+    /**
+     * Finds the running query that streams into the given cursor
+     */
+    public RunningQuery findByCursor(QueryCursor cursor) {
+        for (RunningQuery runningQuery : running.values()) {
+            if (runningQuery.getCursor() == cursor) return runningQuery;
+        }
+        return null;
+    }
+
+    /**
+     * Terminates the query's transaction on the server and closes its cursor.
+     * Terminating first also unblocks a thread that is waiting for the next records.
+     * @return true if the query was still running
+     */
+    public boolean cancel(Driver driver, String id) {
+        RunningQuery runningQuery = running.get(id);
+        if (runningQuery == null) return false;
+
+        runningQuery.markCancelled();
+        if (driver != null) {
+            terminateOnServer(driver, id);
+        }
+
+        QueryCursor cursor = runningQuery.getCursor();
+        if (cursor != null) {
+            cursor.close();
+        }
+        finish(runningQuery);
+        logging.logToOutput("Cancelled query " + id);
+        return true;
+    }
+
+    /**
+     * Cancels every running interactive query
+     */
+    public void cancelAll(Driver driver) {
+        for (RunningQuery runningQuery : getRunningQueries()) {
+            cancel(driver, runningQuery.getId());
+        }
+    }
+
+    private void terminateOnServer(Driver driver, String id) {
+        try (Session session = driver.session()) {
+            List<Record> transactions = session.run(
+                "SHOW TRANSACTIONS YIELD transactionId, metaData " +
+                "WHERE metaData." + METADATA_KEY + " = $id " +
+                "RETURN transactionId",
+                parameters("id", id)).list();
+
+            List<String> transactionIds = new ArrayList<>();
+            for (Record record : transactions) {
+                transactionIds.add(record.get("transactionId").asString());
+            }
+            if (!transactionIds.isEmpty()) {
+                session.run("TERMINATE TRANSACTIONS $ids", parameters("ids", transactionIds)).consume();
+            }
+        } catch (Exception e) {
+            // The transaction timeout still ends the query eventually
+            logging.logToError("Error terminating query " + id + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * An interactive query that is streaming its result
+     */
+    public static class RunningQuery {
+        private final String id;
+        private final String query;
+        private final Duration timeout;
+        private final Instant startedAt = Instant.now();
+        private volatile QueryCursor cursor;
+        private volatile boolean cancelled = false;
+
+        RunningQuery(String id, String query, Duration timeout) {
+            this.id = id;
+            this.query = query;
+            this.timeout = timeout;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+
+        public Duration getElapsed() {
+            return Duration.between(startedAt, Instant.now());
+        }
+
+        /**
+         * Number of records pulled so far
+         */
+        public int getRowCount() {
+            QueryCursor current = cursor;
+            return current != null ? current.getConsumedCount() : 0;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        QueryCursor getCursor() {
+            return cursor;
+        }
+
+        void attach(QueryCursor cursor) {
+            this.cursor = cursor;
+        }
+
+        void markCancelled() {
+            cancelled = true;
+        }
+    }
+}
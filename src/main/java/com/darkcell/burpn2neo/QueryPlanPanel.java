@@ -0,0 +1,213 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Value;
+import org.neo4j.driver.summary.InputPosition;
+import org.neo4j.driver.summary.Notification;
+import org.neo4j.driver.summary.Plan;
+import org.neo4j.driver.summary.ProfiledPlan;
+import org.neo4j.driver.summary.ResultSummary;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.DefaultTreeModel;
+import java.awt.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows the operator tree of an EXPLAIN or PROFILE run with rows and db hits per
+ * operator, and the planner notifications such as cartesian product warnings.
+ * Operators that usually make a query slow on large graphs are highlighted.
+ */
+public class QueryPlanPanel extends JPanel {
+    // Operators that touch every node or multiply rows
+    private static final Set<String> EXPENSIVE_OPERATORS = Set.of(
+        "CartesianProduct", "AllNodesScan", "Eager", "EagerAggregation");
+
+    private final JLabel summaryLabel;
+    private final JTree planTree;
+    private final DefaultTreeModel treeModel;
+    private final JTextArea notificationsArea;
+
+    public QueryPlanPanel(Runnable onHide) {
+        super(new BorderLayout(5, 5));
+        setBorder(new EmptyBorder(0, 5, 0, 0));
+
+        JPanel header = new JPanel(new BorderLayout());
+        JLabel title = new JLabel("Query Plan");
+        title.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 14));
+        header.add(title, BorderLayout.WEST);
+        JButton hideButton = new JButton("Hide");
+        hideButton.addActionListener(e -> onHide.run());
+        header.add(hideButton, BorderLayout.EAST);
+
+        summaryLabel = new JLabel(" ");
+        summaryLabel.setBorder(new EmptyBorder(5, 0, 5, 0));
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(header, BorderLayout.NORTH);
+        top.add(summaryLabel, BorderLayout.SOUTH);
+        add(top, BorderLayout.NORTH);
+
+        treeModel = new DefaultTreeModel(new DefaultMutableTreeNode("No plan"));
+        planTree = new JTree(treeModel);
+        planTree.setCellRenderer(new OperatorRenderer());
+        planTree.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        notificationsArea = new JTextArea(5, 30);
+        notificationsArea.setEditable(false);
+        notificationsArea.setLineWrap(true);
+        notificationsArea.setWrapStyleWord(true);
+        notificationsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JPanel notificationsPanel = new JPanel(new BorderLayout());
+        notificationsPanel.add(new JLabel("Planner notifications"), BorderLayout.NORTH);
+        notificationsPanel.add(new JScrollPane(notificationsArea), BorderLayout.CENTER);
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(planTree), notificationsPanel);
+        split.setResizeWeight(0.75);
+        add(split, BorderLayout.CENTER);
+    }
+
+    /**
+     * Shows the plan and notifications of a profiled or explained query.
+     * Must be called on the event dispatch thread.
+     */
+    public void showProfile(QueryProfile profile) {
+        ResultSummary summary = profile.getSummary();
+        Plan plan = profile.getPlan();
+
+        StringBuilder text = new StringBuilder("<html>");
+        text.append(profile.isProfiled() ? "PROFILE" : "EXPLAIN");
+        if (plan != null) {
+            String planner = argument(plan, "planner");
+            String runtime = argument(plan, "runtime");
+            if (!planner.isEmpty()) text.append(" &middot; planner ").append(planner);
+            if (!runtime.isEmpty()) text.append(" &middot; runtime ").append(runtime);
+        }
+        if (profile.isProfiled()) {
+            text.append("<br>Total db hits: ").append(profile.getTotalDbHits())
+                .append(" &middot; rows returned: ").append(profile.getRecords().size())
+                .append(profile.isTruncated() ? "+" : "")
+                .append(" &middot; ").append(summary.resultAvailableAfter(TimeUnit.MILLISECONDS)
+                    + summary.resultConsumedAfter(TimeUnit.MILLISECONDS)).append(" ms");
+        }
+        text.append("</html>");
+        summaryLabel.setText(text.toString());
+
+        DefaultMutableTreeNode root = plan != null ? buildTree(plan) : new DefaultMutableTreeNode("No plan returned");
+        treeModel.setRoot(root);
+        for (int i = 0; i < planTree.getRowCount(); i++) {
+            planTree.expandRow(i);
+        }
+
+        List<Notification> notifications = summary.notifications();
+        if (notifications.isEmpty()) {
+            notificationsArea.setText("No warnings.");
+        } else {
+            StringBuilder notes = new StringBuilder();
+            for (Notification notification : notifications) {
+                notes.append("[").append(notification.rawSeverityLevel().orElse("INFO")).append("] ")
+                    .append(notification.title());
+                InputPosition position = notification.inputPosition().orElse(null);
+                if (position != null) {
+                    notes.append(" (line ").append(position.line()).append(", column ").append(position.column()).append(")");
+                }
+                notes.append("\n").append(notification.description()).append("\n\n");
+            }
+            notificationsArea.setText(notes.toString().trim());
+        }
+        notificationsArea.setCaretPosition(0);
+    }
+
+    /**
+     * Resets the panel, e.g. while a new plan is being fetched
+     */
+    public void clear(String message) {
+        summaryLabel.setText(message);
+        treeModel.setRoot(new DefaultMutableTreeNode("No plan"));
+        notificationsArea.setText("");
+    }
+
+    private static DefaultMutableTreeNode buildTree(Plan plan) {
+        DefaultMutableTreeNode node = new DefaultMutableTreeNode(new OperatorNode(plan));
+        for (Plan child : plan.children()) {
+            node.add(buildTree(child));
+        }
+        return node;
+    }
+
+    private static String argument(Plan plan, String name) {
+        Value value = plan.arguments().get(name);
+        if (value == null || value.isNull()) return "";
+        return value.asObject().toString();
+    }
+
+    /**
+     * Operator names carry a runtime suffix, e.g. "NodeByLabelScan@neo4j"
+     */
+    private static String operatorName(Plan plan) {
+        String type = plan.operatorType();
+        int suffix = type.indexOf('@');
+        return suffix >= 0 ? type.substring(0, suffix) : type;
+    }
+
+    /**
+     * Tree entry for one plan operator
+     */
+    private static class OperatorNode {
+        private final Plan plan;
+
+        OperatorNode(Plan plan) {
+            this.plan = plan;
+        }
+
+        boolean isExpensive() {
+            if (EXPENSIVE_OPERATORS.contains(operatorName(plan))) return true;
+            // Regex filters cannot use an index and run on every row
+            return argument(plan, "Details").contains("=~");
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(operatorName(plan));
+            if (plan instanceof ProfiledPlan profiled) {
+                text.append("  rows=").append(profiled.records())
+                    .append("  dbHits=").append(profiled.dbHits());
+                if (profiled.hasPageCacheStats()) {
+                    text.append("  cache=").append(profiled.pageCacheHits()).append("/")
+                        .append(profiled.pageCacheHits() + profiled.pageCacheMisses());
+                }
+            }
+            Map<String, Value> arguments = plan.arguments();
+            Value estimated = arguments.get("EstimatedRows");
+            if (estimated != null && !estimated.isNull()) {
+                text.append("  est=").append(Math.round(estimated.asDouble()));
+            }
+            String details = argument(plan, "Details");
+            if (!details.isEmpty()) {
+                text.append("  ").append(details.length() > 120 ? details.substring(0, 117) + "..." : details);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Highlights operators that are likely to be slow
+     */
+    private static class OperatorRenderer extends DefaultTreeCellRenderer {
+        @Override
+        public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded,
+                                                      boolean leaf, int row, boolean hasFocus) {
+            super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+            Object userObject = ((DefaultMutableTreeNode) value).getUserObject();
+            if (!selected && userObject instanceof OperatorNode operator && operator.isExpensive()) {
+                setForeground(new Color(183, 28, 28));
+            }
+            return this;
+        }
+    }
+}
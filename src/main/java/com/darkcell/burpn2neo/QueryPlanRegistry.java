@@ -0,0 +1,108 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+import org.neo4j.driver.Session;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks executions of the query templates and warms their plans.
+ * Neo4j does not report plan cache hits to clients, so no hit rate is shown;
+ * only what the client knows for certain: how often each template ran, whether
+ * it was warmed, and how many distinct ad-hoc query texts were run.
+ */
+public class QueryPlanRegistry {
+    // Bound on the number of distinct ad-hoc query texts that are remembered
+    private static final int MAX_TRACKED_AD_HOC_QUERIES = 1000;
+
+    private final Logging logging;
+    private final Map<QueryTemplate, LongAdder> executions = new EnumMap<>(QueryTemplate.class);
+    private final Set<QueryTemplate> warmed = ConcurrentHashMap.newKeySet();
+    private final Set<String> adHocQueries = ConcurrentHashMap.newKeySet();
+    private final LongAdder adHocExecutions = new LongAdder();
+    private final LongAdder adHocDistinct = new LongAdder();
+
+    public QueryPlanRegistry(Logging logging) {
+        this.logging = logging;
+        for (QueryTemplate template : QueryTemplate.values()) {
+            executions.put(template, new LongAdder());
+        }
+    }
+
+    /**
+     * Plans every template with EXPLAIN so the first real execution hits the plan cache.
+     * EXPLAIN does not execute the query, so write templates are safe to warm.
+     * Read templates are planned in a read session, so on a cluster they warm the
+     * servers that will run them.
+     * @return number of templates that were planned successfully
+     */
+    public int warm(SessionFactory sessions) {
+        warmed.clear();
+        int count = 0;
+
+        try (Session readSession = sessions.read();
+             Session writeSession = sessions.write()) {
+            for (QueryTemplate template : QueryTemplate.values()) {
+                Session session = QueryResultCache.isReadOnly(template.cypher()) ? readSession : writeSession;
+                try {
+                    session.run("EXPLAIN " + template.cypher(), template.sampleParameters()).consume();
+                    warmed.add(template);
+                    count++;
+                } catch (Exception e) {
+                    logging.logToError("Failed to warm query plan " + template.name() + ": " + e.getMessage());
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Records one execution of a template
+     */
+    public void recordExecution(QueryTemplate template) {
+        executions.get(template).increment();
+    }
+
+    /**
+     * Records one execution of a query that is not a template, e.g. from the custom query console
+     */
+    public void recordAdHocExecution(String query) {
+        adHocExecutions.increment();
+        String normalized = QueryResultCache.normalize(query);
+        if (adHocQueries.contains(normalized)) return;
+
+        adHocDistinct.increment();
+        if (adHocQueries.size() < MAX_TRACKED_AD_HOC_QUERIES) {
+            adHocQueries.add(normalized);
+        }
+    }
+
+    /**
+     * Executions per template and of ad-hoc queries
+     */
+    public List<PlanStats> getStats() {
+        List<PlanStats> stats = new ArrayList<>();
+        for (QueryTemplate template : QueryTemplate.values()) {
+            stats.add(new PlanStats(template.name(), executions.get(template).sum(), 1, warmed.contains(template)));
+        }
+        stats.add(new PlanStats("Ad-hoc queries", adHocExecutions.sum(), adHocDistinct.sum(), false));
+        return stats;
+    }
+
+    public int getWarmedCount() {
+        return warmed.size();
+    }
+
+    /**
+     * Executions of one template, or of all ad-hoc queries
+     * @param distinctTexts number of different query texts, always 1 for a template
+     */
+    public record PlanStats(String name, long executions, long distinctTexts, boolean warmed) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.summary.Plan;
+import org.neo4j.driver.summary.ProfiledPlan;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.util.List;
+
+/**
+ * Result of running a query with EXPLAIN or PROFILE.
+ * EXPLAIN only plans the query, so it has no records and no runtime statistics.
+ */
+public class QueryProfile {
+    private final List<Record> records;
+    private final boolean truncated;
+    private final ResultSummary summary;
+
+    public QueryProfile(List<Record> records, boolean truncated, ResultSummary summary) {
+        this.records = records;
+        this.truncated = truncated;
+        this.summary = summary;
+    }
+
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    /**
+     * Whether the row limit cut off the records
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public ResultSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Whether the query was executed and has runtime statistics per operator
+     */
+    public boolean isProfiled() {
+        return summary.hasProfile();
+    }
+
+    /**
+     * Root of the operator tree, a {@link ProfiledPlan} if the query was profiled
+     */
+    public Plan getPlan() {
+        if (summary.hasProfile()) return summary.profile();
+        return summary.hasPlan() ? summary.plan() : null;
+    }
+
+    /**
+     * Total database hits over all operators, or 0 if the query was not profiled
+     */
+    public long getTotalDbHits() {
+        return summary.hasProfile() ? totalDbHits(summary.profile()) : 0;
+    }
+
+    private static long totalDbHits(ProfiledPlan plan) {
+        long hits = plan.dbHits();
+        for (ProfiledPlan child : plan.children()) {
+            hits += totalDbHits(child);
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,255 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Record;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches results of read queries until the next write.
+ * Every write to the graph bumps a write epoch; entries created under an older
+ * epoch are treated as stale. Entries are additionally evicted by age and by a
+ * least-recently-used bound on the number of entries.
+ */
+public class QueryResultCache {
+    public static final int DEFAULT_MAX_ENTRIES = 128;
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+    // Results larger than this are streamed but never cached
+    public static final int MAX_CACHED_RECORDS = 10_000;
+
+    private static final Pattern WRITE_CLAUSE = Pattern.compile(
+        "\\b(CREATE|MERGE|DELETE|DETACH|SET|REMOVE|DROP|FOREACH|LOAD\\s+CSV|TERMINATE|ALTER|GRANT|DENY|REVOKE)\\b",
+        Pattern.CASE_INSENSITIVE);
+    // CALL followed by a name, not a subquery in braces
+    private static final Pattern PROCEDURE_CALL = Pattern.compile(
+        "\\bCALL\\s+([A-Za-z_`][A-Za-z0-9_.`]*)", Pattern.CASE_INSENSITIVE);
+    // Built-in procedures that only read the graph. Any other procedure, including
+    // db.* ones such as db.createLabel or db.clearQueryCaches, may write.
+    private static final Set<String> READ_ONLY_PROCEDURES = Set.of(
+        "db.labels",
+        "db.relationshiptypes",
+        "db.propertykeys",
+        "db.schema.visualization",
+        "db.schema.nodetypeproperties",
+        "db.schema.reltypeproperties",
+        "db.index.fulltext.querynodes",
+        "db.index.fulltext.queryrelationships");
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LinkedHashMap<CacheKey, CacheEntry> entries;
+
+    public QueryResultCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    public QueryResultCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                return size() > QueryResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for the query, loading and caching it on a miss.
+     * Exceptions thrown by the loader are propagated and nothing is cached.
+     */
+    public List<Record> get(String query, Map<String, Object> params, Supplier<List<Record>> loader) {
+        CacheKey key = new CacheKey(normalize(query), params);
+        List<Record> cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long epoch = writeEpoch.get();
+        List<Record> records = loader.get();
+        store(key, records, epoch);
+        return records;
+    }
+
+    /**
+     * Returns the cached result or null if there is no fresh entry
+     */
+    public List<Record> getIfPresent(String query, Map<String, Object> params) {
+        return lookup(new CacheKey(normalize(query), params));
+    }
+
+    /**
+     * Stores a result that was loaded while the given write epoch was current
+     */
+    public void put(String query, Map<String, Object> params, List<Record> records, long epoch) {
+        store(new CacheKey(normalize(query), params), records, epoch);
+    }
+
+    private List<Record> lookup(CacheKey key) {
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (isFresh(entry)) {
+                    hits.increment();
+                    return entry.records;
+                }
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void store(CacheKey key, List<Record> records, long epoch) {
+        if (records.size() > MAX_CACHED_RECORDS) return;
+
+        CacheEntry entry = new CacheEntry(List.copyOf(records), epoch, System.currentTimeMillis());
+        // A write that happened while the query ran makes the result stale right away
+        if (!isFresh(entry)) return;
+
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private boolean isFresh(CacheEntry entry) {
+        return entry.epoch == writeEpoch.get()
+            && System.currentTimeMillis() - entry.createdAt < ttlMillis;
+    }
+
+    /**
+     * Marks all cached results as stale. Called by every write to the graph.
+     */
+    public void invalidate() {
+        writeEpoch.incrementAndGet();
+    }
+
+    /**
+     * Drops all entries
+     */
+    public void clear() {
+        invalidate();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getWriteEpoch() {
+        return writeEpoch.get();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Collapses whitespace so that formatting differences map to the same entry.
+     * Whitespace inside string literals and backtick identifiers is part of the
+     * query's meaning and is kept as it is.
+     */
+    static String normalize(String query) {
+        StringBuilder builder = new StringBuilder(query.length());
+        char quote = 0;
+        boolean space = false;
+        String trimmed = query.trim();
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (quote != 0) {
+                builder.append(c);
+                if (c == '\\' && quote != '`' && i + 1 < trimmed.length()) {
+                    builder.append(trimmed.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space) {
+                    builder.append(' ');
+                    space = false;
+                }
+                if (c == '\'' || c == '"' || c == '`') {
+                    quote = c;
+                }
+                builder.append(c);
+            }
+        }
+        String normalized = builder.toString();
+        while (normalized.endsWith(";")) {
+            normalized = normalized.substring(0, normalized.length() - 1).trim();
+        }
+        return normalized;
+    }
+
+    /**
+     * Conservative check whether a query only reads. Queries that might write
+     * are never cached and invalidate the cache after they run.
+     */
+    public static boolean isReadOnly(String query) {
+        if (WRITE_CLAUSE.matcher(query).find()) return false;
+        Matcher call = PROCEDURE_CALL.matcher(query);
+        while (call.find()) {
+            String procedure = call.group(1).replace("`", "").toLowerCase(Locale.ROOT);
+            if (!READ_ONLY_PROCEDURES.contains(procedure)) return false;
+        }
+        return true;
+    }
+
+    private static final class CacheKey {
+        private final String query;
+        private final Map<String, Object> params;
+
+        CacheKey(String query, Map<String, Object> params) {
+            this.query = query;
+            this.params = params == null ? Map.of() : new HashMap<>(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return query.equals(other.query) && params.equals(other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, params);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final List<Record> records;
+        private final long epoch;
+        private final long createdAt;
+
+        CacheEntry(List<Record> records, long epoch, long createdAt) {
+            this.records = records;
+            this.epoch = epoch;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows the records of a custom query in a table.
+ * Records are appended in chunks while the query streams, and the table only
+ * paints the rows that are visible, so results of any size stay responsive.
+ * Cell text is prepared off the event dispatch thread with {@link #toRows(List)}.
+ * All other methods must be called on the event dispatch thread.
+ */
+public class QueryResultsPanel extends JPanel {
+    // Longer values are cut in the table, the Neo4j Browser shows them in full
+    private static final int MAX_CELL_LENGTH = 1000;
+
+    /**
+     * Rows of one streamed page, with the column names of the result
+     */
+    public record Chunk(List<String> columns, List<Object[]> rows) {
+    }
+
+    private final ResultTableModel model = new ResultTableModel();
+    private final JTable table;
+    private final JTextArea queryLabel;
+    private final JLabel summaryLabel;
+    private String query = "";
+    private String state = "";
+
+    /**
+     * @param browserUrl Neo4j Browser address the current query can be opened in
+     */
+    public QueryResultsPanel(String browserUrl, Logging logging) {
+        super(new BorderLayout(5, 5));
+        setBorder(new EmptyBorder(5, 5, 5, 5));
+
+        JPanel header = new JPanel(new BorderLayout(5, 5));
+        JLabel title = new JLabel("Query Results");
+        title.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 14));
+        header.add(title, BorderLayout.WEST);
+
+        JButton browserButton = new JButton("Open in Neo4j Browser");
+        browserButton.addActionListener(e -> {
+            try {
+                Desktop.getDesktop().browse(new URI(browserUrl + "?cmd="
+                    + URLEncoder.encode(query, StandardCharsets.UTF_8)));
+            } catch (Exception ex) {
+                logging.logToError("Error opening Neo4j Browser: " + ex.getMessage());
+            }
+        });
+        header.add(browserButton, BorderLayout.EAST);
+
+        queryLabel = new JTextArea(2, 40);
+        queryLabel.setEditable(false);
+        queryLabel.setLineWrap(true);
+        queryLabel.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        queryLabel.setBackground(new Color(0xf5, 0xf5, 0xf5));
+
+        summaryLabel = new JLabel(" ");
+
+        JPanel top = new JPanel(new BorderLayout(5, 5));
+        top.add(header, BorderLayout.NORTH);
+        top.add(queryLabel, BorderLayout.CENTER);
+        top.add(summaryLabel, BorderLayout.SOUTH);
+        add(top, BorderLayout.NORTH);
+
+        table = new JTable(model);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        table.setFillsViewportHeight(true);
+        // Rows have a fixed height, so the table never measures rows it does not paint
+        table.setRowHeight(table.getFontMetrics(table.getFont()).getHeight() + 4);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+    }
+
+    /**
+     * Turns records into cell text, call this off the event dispatch thread
+     */
+    public static List<Object[]> toRows(List<Record> records) {
+        List<Object[]> rows = new ArrayList<>(records.size());
+        for (Record record : records) {
+            Object[] row = new Object[record.size()];
+            for (int i = 0; i < row.length; i++) {
+                Value value = record.get(i);
+                String text = value.isNull() ? "null" : value.toString();
+                row[i] = text.length() > MAX_CELL_LENGTH ? text.substring(0, MAX_CELL_LENGTH - 3) + "..." : text;
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Clears the table for a new query
+     */
+    public void start(String query, String state) {
+        this.query = query;
+        queryLabel.setText(query);
+        queryLabel.setCaretPosition(0);
+        model.clear();
+        setState(state);
+    }
+
+    /**
+     * Appends streamed rows, setting the columns on the first chunk
+     */
+    public void append(List<Chunk> chunks) {
+        for (Chunk chunk : chunks) {
+            if (model.getColumnCount() == 0 && !chunk.columns().isEmpty()) {
+                model.setColumns(chunk.columns());
+                sizeColumns();
+            }
+            model.appendRows(chunk.rows());
+        }
+        updateSummary();
+    }
+
+    /**
+     * Shows how the query ended, e.g. complete, cancelled or row limit reached
+     */
+    public void setState(String state) {
+        this.state = state;
+        updateSummary();
+    }
+
+    public int getRowCount() {
+        return model.getRowCount();
+    }
+
+    private void updateSummary() {
+        summaryLabel.setText("Records: " + model.getRowCount() + (state.isEmpty() ? "" : " - " + state));
+    }
+
+    private void sizeColumns() {
+        int width = Math.max(150, getWidth() / Math.max(1, model.getColumnCount()));
+        for (int i = 0; i < table.getColumnModel().getColumnCount(); i++) {
+            table.getColumnModel().getColumn(i).setPreferredWidth(width);
+        }
+    }
+
+    /**
+     * Rows in arrival order, appends fire one insert event per chunk
+     */
+    private static final class ResultTableModel extends AbstractTableModel {
+        private List<String> columns = List.of();
+        private final List<Object[]> rows = new ArrayList<>();
+
+        void clear() {
+            columns = List.of();
+            rows.clear();
+            fireTableStructureChanged();
+        }
+
+        void setColumns(List<String> columns) {
+            this.columns = columns;
+            fireTableStructureChanged();
+        }
+
+        void appendRows(List<Object[]> newRows) {
+            if (newRows.isEmpty()) return;
+            int first = rows.size();
+            rows.addAll(newRows);
+            fireTableRowsInserted(first, rows.size() - 1);
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns.get(column);
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Object[] values = rows.get(row);
+            return column < values.length ? values[column] : "";
+        }
+    }
+}
@@ -0,0 +1,560 @@
+package com.darkcell.burpn2neo;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameterized Cypher queries used by the extension.
+ * Values are always passed as parameters so every template has exactly one query
+ * text, which keeps the Neo4j plan cache effective and avoids quoting problems
+ * with host names, paths and parameter names.
+ */
+public enum QueryTemplate {
+    // Ingestion
+    UPSERT_HOST(
+        "MERGE (h:Host {name: $host}) " +
+        "ON CREATE SET h.firstSeen = datetime() " +
+        "SET h.lastSeen = datetime()",
+        Map.of("host", "")),
+
+    UPSERT_ENDPOINT(
+        "MATCH (h:Host {name: $host}) " +
+        "MERGE (e:Endpoint {host: $host, path: $path, method: $method}) " +
+        "ON CREATE SET e.firstSeen = datetime() " +
+        "SET e.lastSeen = datetime(), e.prefix = $prefix " +
+        "MERGE (h)-[:HAS_ENDPOINT]->(e)",
+        Map.of("host", "", "path", "", "method", "", "prefix", "")),
+
+    UPSERT_PARAMETER(
+        "MATCH (e:Endpoint {host: $host, path: $path}) " +
+        "MERGE (p:Parameter {name: $name}) " +
+        "ON CREATE SET p.values = [$value], p.firstSeen = datetime() " +
+        "ON MATCH SET p.values = p.values + $value " +
+        "SET p.lastSeen = datetime() " +
+        "MERGE (e)-[r:HAS_PARAMETER]->(p) " +
+        "ON CREATE SET e.parameterCount = coalesce(e.parameterCount, 0) + 1, r.firstSeen = datetime() " +
+        "SET p.classifierVersion = $classifierVersion " +
+        classificationLabels("p", "$labels"),
+        Map.of("host", "", "path", "", "name", "", "value", "", "labels", List.of(), "classifierVersion", 0)),
+
+    // Batch variants of the upserts above for the capture pipeline, all run in one transaction.
+    // datetime() is fixed for a statement, so firstSeen equals it exactly for the entities
+    // the statement created. Hosts and endpoints are passed without duplicates.
+    UPSERT_HOSTS(
+        "UNWIND $hosts AS host " +
+        "MERGE (h:Host {name: host}) " +
+        "ON CREATE SET h.firstSeen = datetime() " +
+        "SET h.lastSeen = datetime() " +
+        "RETURN host, h.firstSeen = datetime() AS created",
+        Map.of("hosts", List.of())),
+
+    UPSERT_ENDPOINTS(
+        "UNWIND $rows AS row " +
+        "MATCH (h:Host {name: row.host}) " +
+        "MERGE (e:Endpoint {host: row.host, path: row.path, method: row.method}) " +
+        "ON CREATE SET e.firstSeen = datetime() " +
+        "SET e.lastSeen = datetime(), e.prefix = row.prefix " +
+        "MERGE (h)-[:HAS_ENDPOINT]->(e) " +
+        "RETURN row.index AS index, e.firstSeen = datetime() AS created",
+        Map.of("rows", List.of())),
+
+    // One row per parameter occurrence, so every value is appended as by UPSERT_PARAMETER
+    UPSERT_PARAMETERS(
+        "UNWIND $rows AS row " +
+        "MATCH (e:Endpoint {host: row.host, path: row.path}) " +
+        "MERGE (p:Parameter {name: row.name}) " +
+        "ON CREATE SET p.values = [row.value], p.firstSeen = datetime() " +
+        "ON MATCH SET p.values = p.values + row.value " +
+        "SET p.lastSeen = datetime() " +
+        "MERGE (e)-[r:HAS_PARAMETER]->(p) " +
+        "ON CREATE SET e.parameterCount = coalesce(e.parameterCount, 0) + 1, r.firstSeen = datetime() " +
+        "SET p.classifierVersion = $classifierVersion " +
+        classificationLabels("p", "row.labels") + " " +
+        "RETURN row.index AS index, count(CASE WHEN r.firstSeen = datetime() THEN 1 END) AS links, " +
+        "       count(CASE WHEN p.firstSeen = datetime() THEN 1 END) > 0 AS created",
+        Map.of("rows", List.of(), "classifierVersion", 0)),
+
+    // Re-labels parameters classified by an older classifier version
+    PARAMETERS_TO_CLASSIFY(
+        "MATCH (p:Parameter) " +
+        "WHERE p.classifierVersion IS NULL OR p.classifierVersion <> $classifierVersion " +
+        "RETURN p.name AS name",
+        Map.of("classifierVersion", 0)),
+
+    CLASSIFY_PARAMETERS(
+        "UNWIND $rows AS row " +
+        "MATCH (p:Parameter {name: row.name}) " +
+        "SET p.classifierVersion = $classifierVersion " +
+        classificationLabels("p", "row.labels"),
+        Map.of("rows", List.of(), "classifierVersion", 0)),
+
+    // Adds counters collected during ingestion, see GraphStatistics
+    FLUSH_HOST_STATISTICS(
+        "UNWIND $rows AS row " +
+        "MATCH (h:Host {name: row.host}) " +
+        "SET h.requestCount = coalesce(h.requestCount, 0) + row.requests, " +
+        "    h.endpointCount = coalesce(h.endpointCount, 0) + row.endpoints, " +
+        "    h.parameterCount = coalesce(h.parameterCount, 0) + row.parameters, " +
+        "    h.methods = [m IN coalesce(h.methods, []) WHERE NOT m IN row.methods] + row.methods",
+        Map.of("rows", List.of())),
+
+    FLUSH_GLOBAL_STATISTICS(
+        "MERGE (s:GraphStats {id: 'global'}) " +
+        "SET s.hostCount = coalesce(s.hostCount, 0) + $delta.hosts, " +
+        "    s.endpointCount = coalesce(s.endpointCount, 0) + $delta.endpoints, " +
+        "    s.parameterCount = coalesce(s.parameterCount, 0) + $delta.parameters, " +
+        "    s.parameterLinkCount = coalesce(s.parameterLinkCount, 0) + $delta.links, " +
+        "    s.requestCount = coalesce(s.requestCount, 0) + $delta.requests, " +
+        "    s.methods = [m IN coalesce(s.methods, []) WHERE NOT m IN $delta.methods] + $delta.methods, " +
+        "    s.updatedAt = datetime()",
+        Map.of("delta", Map.of("hosts", 0, "endpoints", 0, "parameters", 0, "links", 0,
+            "requests", 0, "methods", List.of()))),
+
+    // Adds endpoint and parameter link counts to every path prefix above the new entries
+    FLUSH_PREFIX_STATISTICS(
+        "UNWIND $rows AS row " +
+        "MERGE (x:PathPrefix {host: row.host, prefix: row.prefix}) " +
+        "ON CREATE SET x.parent = row.parent, x.segment = row.segment, x.endpointCount = 0, x.parameterCount = 0 " +
+        "SET x.endpointCount = x.endpointCount + row.endpoints, " +
+        "    x.parameterCount = x.parameterCount + row.parameters",
+        Map.of("rows", List.of())),
+
+    GRAPH_STATISTICS(
+        "OPTIONAL MATCH (s:GraphStats {id: 'global'}) " +
+        "RETURN coalesce(s.hostCount, 0) AS hosts, coalesce(s.endpointCount, 0) AS endpoints, " +
+        "       coalesce(s.parameterCount, 0) AS parameters, coalesce(s.parameterLinkCount, 0) AS parameterLinks, " +
+        "       coalesce(s.requestCount, 0) AS requests, coalesce(s.methods, []) AS methods, " +
+        "       s.updatedAt AS updatedAt",
+        Map.of()),
+
+    // Listings and drill-down
+    ALL_HOSTS(
+        "MATCH (h:Host) RETURN h.name as host ORDER BY host",
+        Map.of()),
+
+    HOSTS_PAGE(
+        "MATCH (h:Host) WHERE h.name > $after " +
+        "RETURN h.name as host ORDER BY host LIMIT $limit",
+        Map.of("after", "", "limit", 1)),
+
+    // Host statistics are precomputed, so these read one node per host
+    ALL_HOSTS_WITH_STATS(
+        "MATCH (h:Host) " +
+        "RETURN h.name as host, " + hostStatistics("h") + " " +
+        "ORDER BY host",
+        Map.of()),
+
+    HOSTS_WITH_STATS_PAGE(
+        "MATCH (h:Host) WHERE h.name > $after " +
+        "RETURN h.name as host, " + hostStatistics("h") + " " +
+        "ORDER BY host LIMIT $limit",
+        Map.of("after", "", "limit", 1)),
+
+    HOST_ENDPOINTS(
+        "MATCH (h:Host {name: $host})-[:HAS_ENDPOINT]->(e:Endpoint) " +
+        "RETURN e.path as path, e.method as method " +
+        "ORDER BY path",
+        Map.of("host", "")),
+
+    HOST_ENDPOINTS_WITH_STATS(
+        "MATCH (e:Endpoint {host: $host}) " +
+        "RETURN e.path as path, e.method as method, coalesce(e.parameterCount, 0) as parameterCount " +
+        "ORDER BY path",
+        Map.of("host", "")),
+
+    HOST_ENDPOINTS_PAGE(
+        "MATCH (e:Endpoint {host: $host}) " +
+        "WHERE e.path > $afterPath OR (e.path = $afterPath AND e.method > $afterMethod) " +
+        "RETURN e.path as path, e.method as method, coalesce(e.parameterCount, 0) as parameterCount " +
+        "ORDER BY path, method LIMIT $limit",
+        Map.of("host", "", "afterPath", "", "afterMethod", "", "limit", 1)),
+
+    ENDPOINT_PARAMETERS(
+        "MATCH (e:Endpoint {host: $host, path: $path})-[:HAS_PARAMETER]->(p:Parameter) " +
+        "RETURN p.name as name, p.values as values " +
+        "ORDER BY name",
+        Map.of("host", "", "path", "")),
+
+    ENDPOINT_PARAMETERS_PAGE(
+        "MATCH (e:Endpoint {host: $host, path: $path})-[:HAS_PARAMETER]->(p:Parameter) " +
+        "WHERE p.name > $after " +
+        "RETURN DISTINCT p.name as name, p.values as values " +
+        "ORDER BY name LIMIT $limit",
+        Map.of("host", "", "path", "", "after", "", "limit", 1)),
+
+    // Visualization data, see GraphJson
+    GRAPH_ENDPOINT_PARAMETERS(
+        "MATCH (e:Endpoint {host: $host, path: $path})-[:HAS_PARAMETER]->(p:Parameter) " +
+        "RETURN p.name as name, e.method as method, coalesce(p.values, [])[..$maxValues] as values " +
+        "ORDER BY name",
+        Map.of("host", "", "path", "", "maxValues", 1)),
+
+    GRAPH_SIMILAR_ENDPOINTS(
+        "MATCH (e1:Endpoint)-[s:SIMILAR_TO]->(e2:Endpoint) " +
+        "RETURN e1.host as host1, e1.path as path1, e1.method as method1, " +
+        "       e2.host as host2, e2.path as path2, e2.method as method2, " +
+        "       coalesce(s.parameterCount, 0) as weight " +
+        "ORDER BY weight DESC " +
+        "LIMIT $limit",
+        Map.of("limit", 1)),
+
+    // Level of detail for the interactive graph. A prefix is the non-empty segments of a
+    // path joined by '/', '' for the host itself, as kept in Endpoint.prefix. The counts
+    // below each prefix are maintained on PathPrefix nodes by GraphStatistics.
+    LOD_PREFIX_COUNT(
+        "OPTIONAL MATCH (x:PathPrefix {host: $host, prefix: $prefix}) " +
+        "RETURN coalesce(x.endpointCount, 0) as endpoints",
+        Map.of("host", "", "prefix", "")),
+
+    // Endpoints below a prefix grouped by their next segment, largest groups first
+    LOD_PREFIX_GROUPS(
+        "MATCH (x:PathPrefix {host: $host, parent: $prefix}) " +
+        "WHERE x.endpointCount > 0 " +
+        "RETURN x.segment as segment, x.endpointCount as endpoints, x.parameterCount as parameterCount " +
+        "ORDER BY endpoints DESC, segment SKIP $skip LIMIT $limit",
+        Map.of("host", "", "prefix", "", "skip", 0, "limit", 1)),
+
+    // Endpoints below a prefix, or with $exact only those whose path is the prefix itself.
+    // $below is the prefix followed by '/', or '' for the root, which is below everything.
+    LOD_PREFIX_ENDPOINTS(
+        "MATCH (e:Endpoint {host: $host}) " +
+        "WHERE e.prefix = $prefix OR (NOT $exact AND e.prefix STARTS WITH $below) " +
+        "RETURN e.path as path, e.method as method, coalesce(e.parameterCount, 0) as parameterCount " +
+        "ORDER BY path, method SKIP $skip LIMIT $limit",
+        Map.of("host", "", "prefix", "", "below", "", "exact", false, "skip", 0, "limit", 1)),
+
+    // Parameters of an endpoint counted by their first classifier label, '' for unclassified
+    LOD_PARAMETER_CATEGORIES(
+        "MATCH (e:Endpoint {host: $host, path: $path, method: $method})-[:HAS_PARAMETER]->(p:Parameter) " +
+        "WITH head([c IN $categories WHERE c IN labels(p)] + ['']) AS category " +
+        "RETURN category, count(*) AS parameters " +
+        "ORDER BY parameters DESC, category",
+        Map.of("host", "", "path", "", "method", "", "categories", List.of())),
+
+    // Parameters of an endpoint in one category, or all with $category = '*', most values first
+    LOD_PARAMETERS(
+        "MATCH (e:Endpoint {host: $host, path: $path, method: $method})-[:HAS_PARAMETER]->(p:Parameter) " +
+        "WITH p, head([c IN $categories WHERE c IN labels(p)] + ['']) AS category " +
+        "WHERE $category = '*' OR category = $category " +
+        "RETURN p.name as name, size(coalesce(p.values, [])) as valueCount " +
+        "ORDER BY valueCount DESC, name SKIP $skip LIMIT $limit",
+        Map.of("host", "", "path", "", "method", "", "categories", List.of(), "category", "*",
+            "skip", 0, "limit", 1)),
+
+    // Single pass over all host/parameter combinations, feeds the host parameter matrix
+    HOST_PARAMETER_SCAN(
+        "MATCH (h:Host)-[:HAS_ENDPOINT]->(:Endpoint)-[:HAS_PARAMETER]->(p:Parameter) " +
+        "RETURN DISTINCT h.name AS host, p.name AS parameter",
+        Map.of()),
+
+    // Hosts, endpoints and parameter links created after a bookmark, oldest first.
+    // $from lies an overlap before the bookmark, to catch transactions that committed
+    // late, and $seen holds the keys of that window that were already returned.
+    // A parameter counts as new on every endpoint it is first seen on, newName
+    // tells whether the name itself is new.
+    CHANGES_SINCE(
+        "CALL { " +
+        "  MATCH (h:Host) WHERE h.firstSeen >= $from " +
+        "  RETURN 'Host' AS type, h.name AS host, null AS path, null AS method, null AS parameter, " +
+        "         false AS newName, h.firstSeen AS firstSeen, 'h:' + elementId(h) AS key " +
+        "  UNION ALL " +
+        "  MATCH (e:Endpoint) WHERE e.firstSeen >= $from " +
+        "  RETURN 'Endpoint' AS type, e.host AS host, e.path AS path, e.method AS method, null AS parameter, " +
+        "         false AS newName, e.firstSeen AS firstSeen, 'e:' + elementId(e) AS key " +
+        "  UNION ALL " +
+        "  MATCH (e:Endpoint)-[r:HAS_PARAMETER]->(p:Parameter) WHERE r.firstSeen >= $from " +
+        "  RETURN 'Parameter' AS type, e.host AS host, e.path AS path, e.method AS method, p.name AS parameter, " +
+        "         p.firstSeen >= r.firstSeen AS newName, r.firstSeen AS firstSeen, 'r:' + elementId(r) AS key " +
+        "} " +
+        "WITH * WHERE NOT key IN $seen " +
+        "RETURN type, host, path, method, parameter, newName, firstSeen, key " +
+        "ORDER BY firstSeen, key LIMIT $limit",
+        Map.of("from", ZonedDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC), "seen", List.of(), "limit", 1)),
+
+    // Keyword search over the full-text indexes
+    SEARCH_PARAMETERS(
+        "CALL db.index.fulltext.queryNodes('parameter_name_fulltext', $query, {limit: $limit}) " +
+        "YIELD node AS p, score " +
+        "MATCH (e:Endpoint)-[:HAS_PARAMETER]->(p) " +
+        "RETURN p.name AS parameter, e.host AS host, e.path AS path, e.method AS method, score " +
+        "ORDER BY score DESC, parameter, host, path " +
+        "LIMIT $limit",
+        Map.of("query", "", "limit", 1)),
+
+    SEARCH_ENDPOINTS(
+        "CALL db.index.fulltext.queryNodes('endpoint_path_fulltext', $query, {limit: $limit}) " +
+        "YIELD node AS e, score " +
+        "RETURN e.host AS host, e.path AS path, e.method AS method, score " +
+        "ORDER BY score DESC, host, path",
+        Map.of("query", "", "limit", 1)),
+
+    // Analysis over the materialized SIMILAR_TO relationships
+    SIMILAR_ENDPOINTS(
+        "MATCH (e1:Endpoint)-[s:SIMILAR_TO]->(e2:Endpoint) " +
+        "WHERE s.parameterCount > 0 " +
+        "UNWIND s.sharedParameters AS parameter " +
+        "RETURN e1.host as host1, e1.path as path1, " +
+        "       e2.host as host2, e2.path as path2, " +
+        "       parameter " +
+        "ORDER BY parameter " +
+        "LIMIT $limit",
+        Map.of("limit", 1)),
+
+    // Pages of the Analysis table over the materialized SharedParameter rows, one
+    // template per sort column and direction, see sharedParameterPage
+    SIMILAR_ENDPOINTS_BY_HOST1_ASC(
+        sharedParameterPage("byHost1", "ASC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_HOST1_DESC(
+        sharedParameterPage("byHost1", "DESC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_PATH1_ASC(
+        sharedParameterPage("byPath1", "ASC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_PATH1_DESC(
+        sharedParameterPage("byPath1", "DESC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_HOST2_ASC(
+        sharedParameterPage("byHost2", "ASC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_HOST2_DESC(
+        sharedParameterPage("byHost2", "DESC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_PATH2_ASC(
+        sharedParameterPage("byPath2", "ASC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_PATH2_DESC(
+        sharedParameterPage("byPath2", "DESC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_PARAMETER_ASC(
+        sharedParameterPage("byParameter", "ASC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_BY_PARAMETER_DESC(
+        sharedParameterPage("byParameter", "DESC"),
+        Map.of("filter", "", "after", "", "skip", 0, "limit", 1)),
+
+    SIMILAR_ENDPOINTS_COUNT(
+        "MATCH (r:SharedParameter) " +
+        "WHERE " + sharedParameterFilter() + " " +
+        "RETURN count(r) as total",
+        Map.of("filter", "")),
+
+    SIMILAR_ENDPOINTS_BY_PATH(
+        "MATCH (e1:Endpoint)-[s:SIMILAR_TO]->(e2:Endpoint) " +
+        "WHERE s.samePath = true " +
+        "RETURN e1.host as host1, e1.path as path1, e1.method as method1, " +
+        "       e2.host as host2, e2.path as path2, e2.method as method2 " +
+        "ORDER BY path1 " +
+        "LIMIT $limit",
+        Map.of("limit", 1)),
+
+    SIMILAR_API_PATTERNS(
+        "MATCH (e1:Endpoint)-[s:SIMILAR_TO]->(e2:Endpoint) " +
+        "WHERE s.pathSimilarity > $threshold AND s.samePath = false " +
+        "AND e1.path CONTAINS '/api/' AND e2.path CONTAINS '/api/' " +
+        "RETURN e1.host as host1, e1.path as path1, e1.method as method1, " +
+        "       e2.host as host2, e2.path as path2, e2.method as method2, " +
+        "       s.pathSimilarity as similarity " +
+        "ORDER BY similarity DESC " +
+        "LIMIT $limit",
+        Map.of("threshold", 0.0, "limit", 1)),
+
+    // Similarity maintenance. Collects endpoints that share a parameter, a path or
+    // a similar API path with the changed endpoint. The length filter skips pairs
+    // that cannot reach the similarity threshold before the edit distance is computed.
+    // Parameters used by more than $maxParameterDegree endpoints (utm_source, _) say
+    // nothing about similarity and are skipped. API paths are only compared within
+    // the same prefix up to /api/. Each branch returns at most $maxCandidates
+    // endpoints, so the cost per changed endpoint does not grow with the graph.
+    SIMILARITY_CANDIDATES(
+        "UNWIND $endpoints AS key " +
+        "MATCH (e1:Endpoint {host: key.host, path: key.path}) " +
+        "CALL { " +
+        "  WITH e1 " +
+        "  MATCH (e1)-[:HAS_PARAMETER]->(p:Parameter) " +
+        "  WHERE COUNT { (p)<-[:HAS_PARAMETER]-() } <= $maxParameterDegree " +
+        "  MATCH (p)<-[:HAS_PARAMETER]-(c:Endpoint) " +
+        "  WHERE c.host <> e1.host " +
+        "  RETURN c LIMIT $maxCandidates " +
+        "  UNION " +
+        "  WITH e1 " +
+        "  MATCH (c:Endpoint {path: e1.path}) " +
+        "  WHERE c.host <> e1.host " +
+        "  RETURN c LIMIT $maxCandidates " +
+        "  UNION " +
+        "  WITH e1 " +
+        "  WITH e1, split(e1.path, '/api/')[0] + '/api/' AS apiPrefix " +
+        "  WHERE e1.path CONTAINS '/api/' " +
+        "  MATCH (c:Endpoint) " +
+        "  WHERE c.path STARTS WITH apiPrefix AND c.method = e1.method " +
+        "    AND c.host <> e1.host AND c.path <> e1.path " +
+        "    AND abs(size(c.path) - size(e1.path)) < $maxLengthRatio * " +
+        "        CASE WHEN size(c.path) > size(e1.path) THEN size(c.path) ELSE size(e1.path) END " +
+        "  RETURN c LIMIT $maxCandidates " +
+        "} " +
+        "WITH DISTINCT e1, c " +
+        "OPTIONAL MATCH (e1)-[:HAS_PARAMETER]->(p:Parameter)<-[:HAS_PARAMETER]-(c) " +
+        "WHERE COUNT { (p)<-[:HAS_PARAMETER]-() } <= $maxParameterDegree " +
+        "RETURN elementId(e1) AS id1, e1.path AS path1, " +
+        "       elementId(c) AS id2, c.path AS path2, " +
+        "       collect(DISTINCT p.name) AS shared",
+        Map.of("endpoints", List.of(), "maxLengthRatio", 0.0, "maxParameterDegree", 0, "maxCandidates", 0)),
+
+    SIMILARITY_MERGE(
+        "UNWIND $pairs AS pair " +
+        "MATCH (a:Endpoint) WHERE elementId(a) = pair.from " +
+        "MATCH (b:Endpoint) WHERE elementId(b) = pair.to " +
+        "MERGE (a)-[s:SIMILAR_TO]->(b) " +
+        "SET s.sharedParameters = pair.sharedParameters, " +
+        "    s.parameterCount = size(pair.sharedParameters), " +
+        "    s.samePath = pair.samePath, " +
+        "    s.pathSimilarity = pair.pathSimilarity, " +
+        "    s.weight = pair.weight, " +
+        "    s.updatedAt = datetime() " +
+        // One SharedParameter row per shared parameter, for the paged Analysis table
+        "WITH a, b, pair " +
+        "OPTIONAL MATCH (old:SharedParameter {from: pair.from, to: pair.to}) " +
+        "WHERE NOT old.parameter IN pair.sharedParameters " +
+        "DELETE old " +
+        "WITH DISTINCT a, b, pair " +
+        "UNWIND pair.sharedParameters AS parameter " +
+        "MERGE (r:SharedParameter {from: pair.from, to: pair.to, parameter: parameter}) " +
+        "SET " + sharedParameterProperties("r", "a", "b", "parameter", "pair.from", "pair.to"),
+        Map.of("pairs", List.of()));
+
+    // Sorts before any printable character, so a sort key orders like its columns
+    private static final String SORT_KEY_SEPARATOR = " + '\\u0001' + ";
+
+    private final String cypher;
+    private final Map<String, Object> sampleParameters;
+
+    /**
+     * Keeps the SharedParameter rows where any column contains the lower-case $filter
+     */
+    private static String sharedParameterFilter() {
+        return "($filter = '' OR toLower(r.host1) CONTAINS $filter OR toLower(r.path1) CONTAINS $filter " +
+            "OR toLower(r.host2) CONTAINS $filter OR toLower(r.path2) CONTAINS $filter " +
+            "OR toLower(r.parameter) CONTAINS $filter)";
+    }
+
+    /**
+     * Properties of a SharedParameter row between endpoints a and b. Besides the
+     * columns, each row has one sort key per column: that column, the other columns
+     * and the endpoint ids, so keys are unique and order like the columns.
+     */
+    static String sharedParameterProperties(String row, String a, String b, String parameter, String from, String to) {
+        String[][] columns = {
+            {"host1", a + ".host"}, {"path1", a + ".path"}, {"host2", b + ".host"},
+            {"path2", b + ".path"}, {"parameter", parameter}};
+        StringBuilder set = new StringBuilder();
+        for (String[] column : columns) {
+            set.append(row).append('.').append(column[0]).append(" = ").append(column[1]).append(", ");
+        }
+        for (String[] sorted : columns) {
+            StringBuilder key = new StringBuilder(sorted[1]);
+            for (String[] column : columns) {
+                if (column != sorted) {
+                    key.append(SORT_KEY_SEPARATOR).append(column[1]);
+                }
+            }
+            key.append(SORT_KEY_SEPARATOR).append(from).append(SORT_KEY_SEPARATOR).append(to);
+            set.append(row).append(".by").append(Character.toUpperCase(sorted[0].charAt(0)))
+                .append(sorted[0].substring(1)).append(" = ").append(key).append(", ");
+        }
+        return set.substring(0, set.length() - 2);
+    }
+
+    /**
+     * One page of SharedParameter rows after the sort key $after, in the order of
+     * the given sort key. The range index on the key returns the rows already in
+     * order, so a page costs the same wherever it is. $skip is only used to jump
+     * past pages that were never loaded.
+     */
+    private static String sharedParameterPage(String sortKey, String direction) {
+        return "MATCH (r:SharedParameter) " +
+            "WHERE r." + sortKey + (direction.equals("ASC") ? " > " : " < ") + "$after " +
+            "AND " + sharedParameterFilter() + " " +
+            "RETURN r.host1 as host1, r.path1 as path1, r.host2 as host2, r.path2 as path2, " +
+            "       r.parameter as parameter, r." + sortKey + " as sortKey " +
+            "ORDER BY r." + sortKey + " " + direction + " " +
+            "SKIP $skip LIMIT $limit";
+    }
+
+    /**
+     * Return items for the precomputed statistics of a host node
+     */
+    private static String hostStatistics(String host) {
+        return "coalesce(" + host + ".endpointCount, 0) as endpointCount, " +
+            "coalesce(" + host + ".parameterCount, 0) as parameterCount, " +
+            "coalesce(" + host + ".requestCount, 0) as requestCount, " +
+            "coalesce(" + host + ".methods, []) as methods";
+    }
+
+    /**
+     * Cypher cannot set labels from a parameter, so every classifier label gets a
+     * FOREACH that adds it when it is in the list and removes it otherwise
+     */
+    private static String classificationLabels(String node, String labels) {
+        StringBuilder cypher = new StringBuilder();
+        for (ParameterClassifier.Category category : ParameterClassifier.Category.values()) {
+            String label = category.label();
+            cypher.append("FOREACH (_ IN CASE WHEN '").append(label).append("' IN ").append(labels)
+                .append(" THEN [1] ELSE [] END | SET ").append(node).append(':').append(label).append(") ");
+            cypher.append("FOREACH (_ IN CASE WHEN NOT '").append(label).append("' IN ").append(labels)
+                .append(" THEN [1] ELSE [] END | REMOVE ").append(node).append(':').append(label).append(") ");
+        }
+        return cypher.toString().trim();
+    }
+
+    QueryTemplate(String cypher, Map<String, Object> sampleParameters) {
+        this.cypher = cypher;
+        this.sampleParameters = sampleParameters;
+    }
+
+    /**
+     * The parameterized query text
+     */
+    public String cypher() {
+        return cypher;
+    }
+
+    /**
+     * Parameters of the right types, used to plan the query with EXPLAIN at connect time
+     */
+    public Map<String, Object> sampleParameters() {
+        return sampleParameters;
+    }
+
+    /**
+     * Renders the query with the given values inlined as Cypher literals.
+     * Only meant for display, e.g. links into Neo4j Browser; execution always
+     * uses parameters.
+     */
+    public String inline(Map<String, Object> parameters) {
+        String text = cypher;
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            text = text.replaceAll("\\$" + entry.getKey() + "\\b",
+                java.util.regex.Matcher.quoteReplacement(toLiteral(entry.getValue())));
+        }
+        return text;
+    }
+
+    private static String toLiteral(Object value) {
+        if (value == null) return "null";
+        if (value instanceof Number || value instanceof Boolean) return value.toString();
+        String escaped = value.toString().replace("\\", "\\\\").replace("'", "\\'");
+        return "'" + escaped + "'";
+    }
+}
@@ -0,0 +1,49 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.Record;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ * The next page is requested with the sort key of {@link #lastRecord()}.
+ */
+public class ResultPage {
+    private final List<Record> records;
+    private final boolean hasMore;
+
+    public ResultPage(List<Record> records, boolean hasMore) {
+        this.records = records;
+        this.hasMore = hasMore;
+    }
+
+    public static ResultPage empty() {
+        return new ResultPage(List.of(), false);
+    }
+
+    /**
+     * Builds a page from a query that fetched one record more than the page size
+     */
+    static ResultPage of(List<Record> records, int pageSize) {
+        if (records.size() > pageSize) {
+            return new ResultPage(records.subList(0, pageSize), true);
+        }
+        return new ResultPage(records, false);
+    }
+
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    public Record lastRecord() {
+        return records.isEmpty() ? null : records.get(records.size() - 1);
+    }
+}
@@ -0,0 +1,111 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Appends log messages to a file. When the file reaches its maximum size it is
+ * renamed to file.1, the older ones to file.2 and so on, and the oldest is
+ * deleted, so the files never take more than (backups + 1) times the maximum size.
+ */
+public class RotatingFileLogSink implements AutoCloseable {
+    public static final long DEFAULT_MAX_BYTES = 5L * 1024 * 1024;
+    public static final int DEFAULT_BACKUPS = 3;
+
+    private static final DateTimeFormatter TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final Logging logging;
+    private final Path file;
+    private final long maxBytes;
+    private final int backups;
+    private Writer out;
+    private long written;
+    private boolean failed = false;
+
+    public RotatingFileLogSink(Logging logging, Path file, long maxBytes, int backups) throws IOException {
+        this.logging = logging;
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.backups = backups;
+        open();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized void write(LogBuffer.Entry entry) {
+        if (out == null) return;
+        try {
+            String line = format(entry) + System.lineSeparator();
+            long bytes = line.getBytes(StandardCharsets.UTF_8).length;
+            if (written > 0 && written + bytes > maxBytes) {
+                rotate();
+            }
+            out.write(line);
+            // Written right away, so the file is complete if Burp exits
+            out.flush();
+            written += bytes;
+        } catch (IOException e) {
+            // Reported once, the buffer keeps working without the file
+            if (!failed) {
+                failed = true;
+                logging.logToError("Error writing log file " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    static String format(LogBuffer.Entry entry) {
+        return TIMESTAMP.format(Instant.ofEpochMilli(entry.timestamp())) + " " + entry.level()
+            + " [" + entry.source() + "] " + entry.message();
+    }
+
+    private void open() throws IOException {
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        written = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        out = null;
+        Files.deleteIfExists(backup(backups));
+        for (int i = backups - 1; i >= 1; i--) {
+            if (Files.exists(backup(i))) {
+                Files.move(backup(i), backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (backups > 0) {
+            Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+    }
+
+    private Path backup(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            logging.logToError("Error closing log file " + file + ": " + e.getMessage());
+        }
+        out = null;
+    }
+}
@@ -0,0 +1,234 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+
+import java.util.List;
+
+import static org.neo4j.driver.Values.parameters;
+
+/**
+ * Versioned schema migrations for the NeoBurp graph.
+ * The applied version is stored on a single (:NeoBurpSchema {id: 'schema'}) node.
+ * On connect every migration newer than that version runs in order, so a database
+ * created by an older version of the extension is brought up to date exactly once.
+ * Migrations are append-only: never change a released one, add a new version instead.
+ * Besides schema commands a migration may backfill data, as long as its statements
+ * are safe to run again after a failure.
+ */
+public class SchemaMigrator {
+    // Seconds to wait for indexes to come online
+    static final int CONNECT_INDEX_WAIT_SECONDS = 30;
+    static final int INGEST_INDEX_WAIT_SECONDS = 300;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Baseline constraints and indexes", List.of(
+            "CREATE CONSTRAINT host_name IF NOT EXISTS FOR (h:Host) REQUIRE h.name IS UNIQUE",
+            "CREATE CONSTRAINT endpoint_path IF NOT EXISTS FOR (e:Endpoint) REQUIRE (e.host, e.path, e.method) IS NODE KEY",
+            "CREATE INDEX parameter_name IF NOT EXISTS FOR (p:Parameter) ON (p.name)"
+        )),
+        new Migration(2, "Indexes on the materialized SIMILAR_TO relationships", List.of(
+            "CREATE INDEX similar_to_parameter_count IF NOT EXISTS FOR ()-[s:SIMILAR_TO]-() ON (s.parameterCount)",
+            "CREATE INDEX similar_to_same_path IF NOT EXISTS FOR ()-[s:SIMILAR_TO]-() ON (s.samePath)",
+            "CREATE INDEX similar_to_path_similarity IF NOT EXISTS FOR ()-[s:SIMILAR_TO]-() ON (s.pathSimilarity)"
+        )),
+        // The analyzer keeps stop words so short names like "to" or "id" stay searchable
+        new Migration(3, "Full-text indexes on parameter names and paths", List.of(
+            "CREATE FULLTEXT INDEX parameter_name_fulltext IF NOT EXISTS FOR (p:Parameter) ON EACH [p.name] " +
+                "OPTIONS {indexConfig: {`fulltext.analyzer`: 'standard-no-stop-words'}}",
+            "CREATE FULLTEXT INDEX endpoint_path_fulltext IF NOT EXISTS FOR (e:Endpoint) ON EACH [e.path] " +
+                "OPTIONS {indexConfig: {`fulltext.analyzer`: 'standard-no-stop-words'}}"
+        )),
+        // upsertParameter and the similarity candidates look endpoints up by host and path
+        // without a method, the candidates also by path or method alone
+        new Migration(4, "Range indexes for endpoint lookups and similarity ranking", List.of(
+            "CREATE INDEX endpoint_host_path IF NOT EXISTS FOR (e:Endpoint) ON (e.host, e.path)",
+            "CREATE INDEX endpoint_path_lookup IF NOT EXISTS FOR (e:Endpoint) ON (e.path)",
+            "CREATE INDEX endpoint_method IF NOT EXISTS FOR (e:Endpoint) ON (e.method)",
+            "CREATE INDEX similar_to_weight IF NOT EXISTS FOR ()-[s:SIMILAR_TO]-() ON (s.weight)",
+            "CREATE CONSTRAINT neoburp_schema_id IF NOT EXISTS FOR (s:NeoBurpSchema) REQUIRE s.id IS UNIQUE"
+        )),
+        // A frozen copy of GraphStatistics.RECOMPUTE_STATEMENTS as released, later edits
+        // to the statistics must not change what this migration did
+        new Migration(5, "Precomputed host and graph statistics", List.of(
+            "CREATE CONSTRAINT graph_stats_id IF NOT EXISTS FOR (s:GraphStats) REQUIRE s.id IS UNIQUE",
+            "MATCH (e:Endpoint) " +
+            "CALL { WITH e " +
+            "  OPTIONAL MATCH (e)-[r:HAS_PARAMETER]->(:Parameter) " +
+            "  WITH e, count(r) AS links " +
+            "  SET e.parameterCount = links " +
+            "} IN TRANSACTIONS OF 1000 ROWS",
+            "MATCH (h:Host) " +
+            "CALL { WITH h " +
+            "  OPTIONAL MATCH (h)-[:HAS_ENDPOINT]->(e:Endpoint) " +
+            "  WITH h, count(e) AS endpoints, sum(coalesce(e.parameterCount, 0)) AS links, " +
+            "       collect(DISTINCT e.method) AS methods " +
+            "  SET h.endpointCount = endpoints, h.parameterCount = links, h.methods = methods, " +
+            "      h.requestCount = CASE WHEN coalesce(h.requestCount, 0) < endpoints " +
+            "                       THEN endpoints ELSE h.requestCount END " +
+            "} IN TRANSACTIONS OF 1000 ROWS",
+            "OPTIONAL MATCH (h:Host) " +
+            "WITH count(h) AS hosts, sum(coalesce(h.endpointCount, 0)) AS endpoints, " +
+            "     sum(coalesce(h.parameterCount, 0)) AS links, sum(coalesce(h.requestCount, 0)) AS requests, " +
+            "     collect(coalesce(h.methods, [])) AS methodLists " +
+            "CALL { OPTIONAL MATCH (p:Parameter) RETURN count(p) AS parameters } " +
+            "MERGE (s:GraphStats {id: 'global'}) " +
+            "SET s.hostCount = hosts, s.endpointCount = endpoints, s.parameterCount = parameters, " +
+            "    s.parameterLinkCount = links, s.requestCount = requests, " +
+            "    s.methods = reduce(merged = [], methods IN methodLists | merged + [m IN methods WHERE NOT m IN merged]), " +
+            "    s.updatedAt = datetime()"
+        )),
+        // Entities stored before the timestamps existed count as seen at migration time
+        new Migration(6, "First and last seen timestamps with range indexes", List.of(
+            "CREATE INDEX host_first_seen IF NOT EXISTS FOR (h:Host) ON (h.firstSeen)",
+            "CREATE INDEX host_last_seen IF NOT EXISTS FOR (h:Host) ON (h.lastSeen)",
+            "CREATE INDEX endpoint_first_seen IF NOT EXISTS FOR (e:Endpoint) ON (e.firstSeen)",
+            "CREATE INDEX endpoint_last_seen IF NOT EXISTS FOR (e:Endpoint) ON (e.lastSeen)",
+            "CREATE INDEX parameter_first_seen IF NOT EXISTS FOR (p:Parameter) ON (p.firstSeen)",
+            "CREATE INDEX parameter_last_seen IF NOT EXISTS FOR (p:Parameter) ON (p.lastSeen)",
+            "CREATE INDEX has_parameter_first_seen IF NOT EXISTS FOR ()-[r:HAS_PARAMETER]-() ON (r.firstSeen)",
+            "MATCH (h:Host) WHERE h.firstSeen IS NULL OR h.lastSeen IS NULL " +
+                "CALL { WITH h SET h.firstSeen = coalesce(h.firstSeen, datetime()), " +
+                "h.lastSeen = coalesce(h.lastSeen, datetime()) } IN TRANSACTIONS OF 1000 ROWS",
+            "MATCH (e:Endpoint) WHERE e.firstSeen IS NULL " +
+                "CALL { WITH e SET e.firstSeen = datetime(), e.lastSeen = datetime() } IN TRANSACTIONS OF 1000 ROWS",
+            "MATCH (p:Parameter) WHERE p.firstSeen IS NULL " +
+                "CALL { WITH p SET p.firstSeen = datetime(), p.lastSeen = datetime() } IN TRANSACTIONS OF 1000 ROWS",
+            "MATCH ()-[r:HAS_PARAMETER]->() WHERE r.firstSeen IS NULL " +
+                "CALL { WITH r SET r.firstSeen = datetime() } IN TRANSACTIONS OF 1000 ROWS"
+        )),
+        // The Analysis table pages over one row per shared parameter, seeking in the
+        // index of its sort column. Frozen copy of the rows SIMILARITY_MERGE writes.
+        new Migration(7, "Shared parameter rows with sort key indexes", List.of(
+            "CREATE INDEX shared_parameter_pair IF NOT EXISTS FOR (r:SharedParameter) ON (r.from, r.to, r.parameter)",
+            "CREATE INDEX shared_parameter_by_host1 IF NOT EXISTS FOR (r:SharedParameter) ON (r.byHost1)",
+            "CREATE INDEX shared_parameter_by_path1 IF NOT EXISTS FOR (r:SharedParameter) ON (r.byPath1)",
+            "CREATE INDEX shared_parameter_by_host2 IF NOT EXISTS FOR (r:SharedParameter) ON (r.byHost2)",
+            "CREATE INDEX shared_parameter_by_path2 IF NOT EXISTS FOR (r:SharedParameter) ON (r.byPath2)",
+            "CREATE INDEX shared_parameter_by_parameter IF NOT EXISTS FOR (r:SharedParameter) ON (r.byParameter)",
+            "MATCH (a:Endpoint)-[s:SIMILAR_TO]->(b:Endpoint) WHERE s.parameterCount > 0 " +
+                "CALL { WITH a, s, b " +
+                "  UNWIND s.sharedParameters AS parameter " +
+                "  MERGE (r:SharedParameter {from: elementId(a), to: elementId(b), parameter: parameter}) " +
+                "  SET r.host1 = a.host, " +
+                "      r.path1 = a.path, " +
+                "      r.host2 = b.host, " +
+                "      r.path2 = b.path, " +
+                "      r.parameter = parameter, " +
+                "      r.byHost1 = a.host + '\\u0001' + a.path + '\\u0001' + b.host + '\\u0001' + b.path + '\\u0001' + parameter + '\\u0001' + elementId(a) + '\\u0001' + elementId(b), " +
+                "      r.byPath1 = a.path + '\\u0001' + a.host + '\\u0001' + b.host + '\\u0001' + b.path + '\\u0001' + parameter + '\\u0001' + elementId(a) + '\\u0001' + elementId(b), " +
+                "      r.byHost2 = b.host + '\\u0001' + a.host + '\\u0001' + a.path + '\\u0001' + b.path + '\\u0001' + parameter + '\\u0001' + elementId(a) + '\\u0001' + elementId(b), " +
+                "      r.byPath2 = b.path + '\\u0001' + a.host + '\\u0001' + a.path + '\\u0001' + b.host + '\\u0001' + parameter + '\\u0001' + elementId(a) + '\\u0001' + elementId(b), " +
+                "      r.byParameter = parameter + '\\u0001' + a.host + '\\u0001' + a.path + '\\u0001' + b.host + '\\u0001' + b.path + '\\u0001' + elementId(a) + '\\u0001' + elementId(b) " +
+                "} IN TRANSACTIONS OF 1000 ROWS"
+        )),
+        // The level of detail view reads the counts below a path prefix from PathPrefix
+        // nodes and lists endpoints by prefix. Frozen copy of the prefix statements of
+        // GraphStatistics.RECOMPUTE_STATEMENTS as released.
+        new Migration(8, "Path prefix counts for the interactive graph", List.of(
+            "CREATE INDEX endpoint_prefix IF NOT EXISTS FOR (e:Endpoint) ON (e.host, e.prefix)",
+            "CREATE INDEX path_prefix_key IF NOT EXISTS FOR (x:PathPrefix) ON (x.host, x.prefix)",
+            "CREATE INDEX path_prefix_parent IF NOT EXISTS FOR (x:PathPrefix) ON (x.host, x.parent)",
+            "MATCH (e:Endpoint) WHERE e.prefix IS NULL " +
+                "CALL { WITH e " +
+                "  SET e.prefix = reduce(key = '', s IN [s IN split(e.path, '/') WHERE s <> ''] | " +
+                "      key + CASE key WHEN '' THEN '' ELSE '/' END + s) " +
+                "} IN TRANSACTIONS OF 1000 ROWS",
+            "MATCH (e:Endpoint) WHERE e.host IS NOT NULL AND e.prefix IS NOT NULL " +
+                "WITH e.host AS host, CASE e.prefix WHEN '' THEN [] ELSE split(e.prefix, '/') END AS segments, " +
+                "     coalesce(e.parameterCount, 0) AS links " +
+                "UNWIND range(0, size(segments)) AS depth " +
+                "WITH host, segments[0..depth] AS parts, count(*) AS endpoints, sum(links) AS parameterLinks " +
+                "WITH host, parts, endpoints, parameterLinks, " +
+                "     reduce(key = '', s IN parts | key + CASE key WHEN '' THEN '' ELSE '/' END + s) AS prefix, " +
+                "     reduce(key = '', s IN parts[0..-1] | key + CASE key WHEN '' THEN '' ELSE '/' END + s) AS parent " +
+                "CALL { WITH host, parts, endpoints, parameterLinks, prefix, parent " +
+                "  MERGE (x:PathPrefix {host: host, prefix: prefix}) " +
+                "  SET x.parent = CASE size(parts) WHEN 0 THEN null ELSE parent END, x.segment = parts[-1], " +
+                "      x.endpointCount = endpoints, x.parameterCount = parameterLinks " +
+                "} IN TRANSACTIONS OF 1000 ROWS"
+        ))
+    );
+
+    private final Logging logging;
+    private volatile int version = 0;
+
+    public SchemaMigrator(Logging logging) {
+        this.logging = logging;
+    }
+
+    /**
+     * Applies all pending migrations.
+     * A migration that fails stops the run, so the recorded version never skips one.
+     * @return the schema version of the database afterwards
+     * @throws IllegalStateException if a migration failed, the database is then not fit for writing
+     */
+    public int migrate(SessionFactory sessions) {
+        try (Session session = sessions.write()) {
+            int current = readVersion(session);
+            int latest = getLatestVersion();
+            if (current > latest) {
+                logging.logToError("Database schema version " + current + " is newer than this extension supports ("
+                    + latest + "), skipping migrations");
+                version = current;
+                return current;
+            }
+
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= current) continue;
+
+                // Schema commands cannot share a transaction with writes, so each runs on its own
+                for (String statement : migration.statements()) {
+                    session.run(statement).consume();
+                }
+                session.executeWrite(tx -> tx.run(
+                    "MERGE (s:NeoBurpSchema {id: 'schema'}) " +
+                    "SET s.version = $version, s.description = $description, s.migratedAt = datetime()",
+                    parameters("version", migration.version(), "description", migration.description())).consume());
+                current = migration.version();
+                logging.logToOutput("Migrated schema to version " + current + ": " + migration.description());
+            }
+
+            version = current;
+            return current;
+        } catch (Exception e) {
+            logging.logToError("Failed to migrate Neo4j schema: " + e.getMessage());
+            throw new IllegalStateException("Schema migration failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Blocks until all indexes are online or the timeout passes
+     * @return true if all indexes are online
+     */
+    public boolean awaitIndexes(SessionFactory sessions, int timeoutSeconds) {
+        try (Session session = sessions.write()) {
+            session.run("CALL db.awaitIndexes($timeout)", parameters("timeout", timeoutSeconds)).consume();
+            return true;
+        } catch (Exception e) {
+            logging.logToError("Indexes are not online yet: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Schema version of the connected database after the last migration
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    private static int readVersion(Session session) {
+        List<Record> records = session.run(
+            "MATCH (s:NeoBurpSchema {id: 'schema'}) RETURN s.version AS version").list();
+        return records.isEmpty() ? 0 : records.get(0).get("version").asInt(0);
+    }
+
+    private record Migration(int version, String description, List<String> statements) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.darkcell.burpn2neo;
+
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.BookmarkManager;
+import org.neo4j.driver.BookmarkManagerConfig;
+import org.neo4j.driver.BookmarkManagers;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+
+/**
+ * Opens sessions with the access mode a routing driver needs.
+ * On a cluster, read sessions go to followers and read replicas, write sessions
+ * to the leader. All sessions share one bookmark manager, so a read that follows
+ * an import or a capture write waits until the server it runs on has caught up
+ * with those writes instead of returning stale data.
+ * One factory belongs to one driver, create a new one after reconnecting.
+ */
+public class SessionFactory {
+    private final Driver driver;
+    private final BookmarkManager bookmarks = BookmarkManagers.defaultManager(BookmarkManagerConfig.builder().build());
+
+    public SessionFactory(Driver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Session for queries that only read, routed away from the leader when possible
+     */
+    public Session read() {
+        return driver.session(config(AccessMode.READ).build());
+    }
+
+    /**
+     * Read session that pulls records in batches of the given size
+     */
+    public Session read(long fetchSize) {
+        return driver.session(config(AccessMode.READ).withFetchSize(fetchSize).build());
+    }
+
+    /**
+     * Session for queries that write or change the schema, routed to the leader
+     */
+    public Session write() {
+        return driver.session(config(AccessMode.WRITE).build());
+    }
+
+    /**
+     * Session for an ad-hoc query, read or write depending on the query text
+     */
+    public Session forQuery(String query, long fetchSize) {
+        AccessMode mode = QueryResultCache.isReadOnly(query) ? AccessMode.READ : AccessMode.WRITE;
+        return driver.session(config(mode).withFetchSize(fetchSize).build());
+    }
+
+    public Driver getDriver() {
+        return driver;
+    }
+
+    private SessionConfig.Builder config(AccessMode mode) {
+        return SessionConfig.builder()
+            .withDefaultAccessMode(mode)
+            .withBookmarkManager(bookmarks);
+    }
+}
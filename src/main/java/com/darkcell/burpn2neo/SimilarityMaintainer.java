@@ -0,0 +1,257 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.neo4j.driver.Values.parameters;
+
+/**
+ * Maintains SIMILAR_TO relationships between endpoints on different hosts.
+ * Endpoints touched during ingestion are queued and re-evaluated in batches on a
+ * background thread, so the analysis views only have to read the materialized
+ * relationships instead of recomputing cross-host matches on every click.
+ */
+public class SimilarityMaintainer implements AutoCloseable {
+    private static final int BATCH_SIZE = 200;
+    private static final long FLUSH_INTERVAL_MS = 2000;
+    static final double API_SIMILARITY_THRESHOLD = 0.6;
+    // Parameters on more endpoints than this are too common to make endpoints similar
+    static final int MAX_PARAMETER_DEGREE = 200;
+    // Candidates per endpoint and kind of match
+    static final int MAX_CANDIDATES = 100;
+
+    private final Logging logging;
+    private final Runnable onWrite;
+    private final QueryPlanRegistry queryPlans;
+    private final Set<EndpointKey> pending = ConcurrentHashMap.newKeySet();
+    private volatile SessionFactory sessions;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param onWrite invoked after relationships were written, e.g. to invalidate cached results
+     */
+    public SimilarityMaintainer(Logging logging, Runnable onWrite, QueryPlanRegistry queryPlans) {
+        this.logging = logging;
+        this.onWrite = onWrite;
+        this.queryPlans = queryPlans;
+    }
+
+    /**
+     * Starts the background maintainer against the given database.
+     * Rebuilds all relationships when the graph has endpoints but no SIMILAR_TO
+     * relationships yet, e.g. for databases filled by an older version.
+     */
+    public synchronized void start(SessionFactory sessions) {
+        stop();
+        this.sessions = sessions;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "NeoBurp-similarity");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::backfillIfEmpty);
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background maintainer. Pending endpoints are kept and processed
+     * after the next start.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        sessions = null;
+    }
+
+    /**
+     * Marks an endpoint as changed so its similarity relationships are recomputed.
+     */
+    public void endpointChanged(String host, String path) {
+        if (host == null || path == null) return;
+        pending.add(new EndpointKey(host, path));
+    }
+
+    /**
+     * Number of endpoints waiting to be re-evaluated
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Queues every endpoint in the database for re-evaluation
+     */
+    public void requestRebuild() {
+        SessionFactory current = sessions;
+        if (current == null) return;
+
+        try (Session session = current.read()) {
+            Result result = session.run("MATCH (e:Endpoint) RETURN DISTINCT e.host AS host, e.path AS path");
+            while (result.hasNext()) {
+                Record record = result.next();
+                endpointChanged(record.get("host").asString(null), record.get("path").asString(null));
+            }
+        } catch (Exception e) {
+            logging.logToError("Error queueing similarity rebuild: " + e.getMessage());
+        }
+    }
+
+    private void backfillIfEmpty() {
+        SessionFactory current = sessions;
+        if (current == null) return;
+
+        try (Session session = current.read()) {
+            long relationships = session.run("MATCH ()-[s:SIMILAR_TO]->() RETURN count(s) AS count")
+                .single().get("count").asLong();
+            if (relationships == 0) {
+                requestRebuild();
+                if (!pending.isEmpty()) {
+                    logging.logToOutput("Building similarity relationships for " + pending.size() + " endpoints");
+                }
+            }
+        } catch (Exception e) {
+            logging.logToError("Error checking similarity relationships: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drains the pending endpoints in batches and materializes their relationships
+     */
+    private void flush() {
+        while (!pending.isEmpty() && sessions != null && !Thread.currentThread().isInterrupted()) {
+            List<EndpointKey> batch = takeBatch();
+            try {
+                processBatch(batch);
+            } catch (Exception e) {
+                logging.logToError("Error updating similarity relationships: " + e.getMessage());
+                // Keep the batch for the next run, the database may be temporarily unavailable
+                pending.addAll(batch);
+                return;
+            }
+        }
+    }
+
+    private List<EndpointKey> takeBatch() {
+        List<EndpointKey> batch = new ArrayList<>(BATCH_SIZE);
+        Iterator<EndpointKey> iterator = pending.iterator();
+        while (iterator.hasNext() && batch.size() < BATCH_SIZE) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void processBatch(List<EndpointKey> batch) {
+        SessionFactory current = sessions;
+        if (current == null || batch.isEmpty()) return;
+
+        List<Map<String, Object>> endpoints = new ArrayList<>(batch.size());
+        for (EndpointKey key : batch) {
+            endpoints.add(Map.of("host", key.host(), "path", key.path()));
+        }
+
+        // Candidates are read on a follower, only the merge goes to the leader.
+        // They are streamed, so only the pairs that qualify are held in memory.
+        Map<String, Map<String, Object>> pairs;
+        try (Session session = current.read()) {
+            queryPlans.recordExecution(QueryTemplate.SIMILARITY_CANDIDATES);
+            pairs = session.executeRead(tx -> toPairs(tx.run(QueryTemplate.SIMILARITY_CANDIDATES.cypher(),
+                parameters("endpoints", endpoints, "maxLengthRatio", 1.0 - API_SIMILARITY_THRESHOLD,
+                           "maxParameterDegree", MAX_PARAMETER_DEGREE, "maxCandidates", MAX_CANDIDATES))));
+        }
+
+        if (pairs.isEmpty()) return;
+
+        List<Map<String, Object>> rows = new ArrayList<>(pairs.values());
+        try (Session session = current.write()) {
+            session.executeWrite(tx -> {
+                queryPlans.recordExecution(QueryTemplate.SIMILARITY_MERGE);
+                tx.run(QueryTemplate.SIMILARITY_MERGE.cypher(), parameters("pairs", rows));
+                return null;
+            });
+        }
+        onWrite.run();
+    }
+
+    /**
+     * Keeps the candidates that are similar enough, keyed by their pair of element ids
+     */
+    private static Map<String, Map<String, Object>> toPairs(Result candidates) {
+        // Pairs are stored once, directed from the lower to the higher element id
+        Map<String, Map<String, Object>> pairs = new HashMap<>();
+        while (candidates.hasNext()) {
+            Record record = candidates.next();
+            String id1 = record.get("id1").asString();
+            String id2 = record.get("id2").asString();
+            String path1 = record.get("path1").asString("");
+            String path2 = record.get("path2").asString("");
+            List<Object> shared = record.get("shared").asList();
+
+            boolean samePath = path1.equals(path2);
+            double pathSimilarity = samePath ? 1.0 : pathSimilarity(path1, path2);
+            boolean similarApi = path1.contains("/api/") && path2.contains("/api/")
+                && pathSimilarity > API_SIMILARITY_THRESHOLD;
+            if (shared.isEmpty() && !samePath && !similarApi) continue;
+
+            boolean ordered = id1.compareTo(id2) < 0;
+            Map<String, Object> pair = new HashMap<>();
+            pair.put("from", ordered ? id1 : id2);
+            pair.put("to", ordered ? id2 : id1);
+            pair.put("sharedParameters", shared);
+            pair.put("samePath", samePath);
+            pair.put("pathSimilarity", pathSimilarity);
+            pair.put("weight", shared.size() + pathSimilarity);
+            pairs.put(pair.get("from") + "|" + pair.get("to"), pair);
+        }
+        return pairs;
+    }
+
+    /**
+     * Normalized Levenshtein similarity of two paths, between 0 and 1
+     */
+    static double pathSimilarity(String a, String b) {
+        int maxLength = Math.max(a.length(), b.length());
+        if (maxLength == 0) return 1.0;
+
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return 1.0 - (double) previous[b.length()] / maxLength;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private record EndpointKey(String host, String path) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.darkcell.burpn2neo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times the stages a captured message goes through, from Burp's HTTP handler
+ * to the commit of its batch. Only one message in {@link #SAMPLE_EVERY}
+ * is traced, the others pay for one counter increment. Stage times are
+ * recorded in the {@link MetricsRegistry} under "trace.", and the slowest
+ * traced messages are kept so they can be exported with {@link #writeCsv}.
+ */
+public class StageTracer {
+    public static final int SAMPLE_EVERY = 32;
+    private static final int MAX_SLOWEST = 50;
+
+    public enum Stage {
+        SCOPE_CHECK("scopeCheck"),
+        URL_PARSE("urlParse"),
+        PARAMETERS("parameters"),
+        // From its parameters to the queue, ended by the writer at the time the request was queued
+        ENQUEUE("enqueue"),
+        // From handing it to the queue to the start of its batch
+        QUEUE_WAIT("queueWait"),
+        // The statements of its batch, shared with the other messages of the batch
+        HOST_WRITE("hostWrite"),
+        ENDPOINT_WRITE("endpointWrite"),
+        PARAMETER_WRITES("parameterWrites"),
+        COMMIT("commit");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    /**
+     * The stage times of one message. Each lap ends a stage at the current time,
+     * so a trace is only used by one thread at a time: the HTTP handler until the
+     * message is queued, the writer after that. Stages the handler cannot end
+     * before queueing are ended by the writer with {@link #lapAt}.
+     */
+    public static final class Trace {
+        private final long started = System.nanoTime();
+        private final long[] nanos = new long[Stage.values().length];
+        private long mark = started;
+
+        public void lap(Stage stage) {
+            lapAt(stage, System.nanoTime());
+        }
+
+        /**
+         * Ends a stage at a time taken earlier, e.g. when its batch started
+         */
+        public void lapAt(Stage stage, long nanoTime) {
+            nanos[stage.ordinal()] += Math.max(0, nanoTime - mark);
+            mark = Math.max(mark, nanoTime);
+        }
+    }
+
+    /**
+     * One of the slowest messages, times in microseconds
+     * @param stageMicros indexed by {@link Stage#ordinal()}
+     */
+    public record TracedMessage(long finishedAt, String method, String host, String path, int parameters,
+                                long totalMicros, long[] stageMicros) {
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final MetricsRegistry.Counter sampled;
+    private final MetricsRegistry.Histogram[] stageLatency;
+    private final MetricsRegistry.Histogram totalLatency;
+    // Smallest total first, so the fastest of the kept messages is the one replaced
+    private final PriorityQueue<TracedMessage> slowest =
+        new PriorityQueue<>(Comparator.comparingLong(TracedMessage::totalMicros));
+
+    public StageTracer(MetricsRegistry metrics) {
+        sampled = metrics.counter("trace.sampled");
+        Stage[] stages = Stage.values();
+        stageLatency = new MetricsRegistry.Histogram[stages.length];
+        for (Stage stage : stages) {
+            stageLatency[stage.ordinal()] = metrics.histogram("trace." + stage.metricName(), "us");
+        }
+        totalLatency = metrics.histogram("trace.total", "us");
+    }
+
+    /**
+     * Starts a trace if this message is sampled
+     * @return the trace, or null if the message is not traced
+     */
+    public Trace start() {
+        return sequence.getAndIncrement() % SAMPLE_EVERY == 0 ? new Trace() : null;
+    }
+
+    /**
+     * Records the stage times of a message whose writes are done
+     */
+    public void finish(Trace trace, String method, String host, String path, int parameters) {
+        long[] micros = new long[trace.nanos.length];
+        for (int i = 0; i < micros.length; i++) {
+            micros[i] = trace.nanos[i] / 1000;
+            stageLatency[i].record(micros[i]);
+        }
+        long total = (System.nanoTime() - trace.started) / 1000;
+        totalLatency.record(total);
+        sampled.increment();
+
+        synchronized (slowest) {
+            if (slowest.size() < MAX_SLOWEST) {
+                slowest.add(new TracedMessage(System.currentTimeMillis(), method, host, path, parameters, total, micros));
+            } else if (total > slowest.peek().totalMicros()) {
+                slowest.poll();
+                slowest.add(new TracedMessage(System.currentTimeMillis(), method, host, path, parameters, total, micros));
+            }
+        }
+    }
+
+    /**
+     * The slowest traced messages, slowest first
+     */
+    public List<TracedMessage> getSlowest() {
+        List<TracedMessage> messages;
+        synchronized (slowest) {
+            messages = new ArrayList<>(slowest);
+        }
+        messages.sort(Comparator.comparingLong(TracedMessage::totalMicros).reversed());
+        return messages;
+    }
+
+    /**
+     * Forgets the slowest messages, e.g. after changing a setting. The histograms keep their values.
+     */
+    public void clearSlowest() {
+        synchronized (slowest) {
+            slowest.clear();
+        }
+    }
+
+    /**
+     * Writes the slowest messages as CSV, one row per message with a column per stage
+     */
+    public void writeCsv(Writer out) throws IOException {
+        StringBuilder header = new StringBuilder("finishedAt,method,host,path,parameters,totalMicros");
+        for (Stage stage : Stage.values()) {
+            header.append(',').append(stage.metricName()).append("Micros");
+        }
+        out.write(header.append('\n').toString());
+
+        for (TracedMessage message : getSlowest()) {
+            StringBuilder row = new StringBuilder();
+            row.append(message.finishedAt()).append(',')
+                .append(csv(message.method())).append(',')
+                .append(csv(message.host())).append(',')
+                .append(csv(message.path())).append(',')
+                .append(message.parameters()).append(',')
+                .append(message.totalMicros());
+            for (long micros : message.stageMicros()) {
+                row.append(',').append(micros);
+            }
+            out.write(row.append('\n').toString());
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,322 @@
+package com.darkcell.burpn2neo;
+
+import burp.api.montoya.logging.Logging;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs background work started from the UI on a small bounded pool.
+ * Every task has a key naming the action, e.g. "refresh-hosts". Submitting a task
+ * while another with the same key is queued or running supersedes the older one:
+ * it is cancelled and its results are never delivered, so rapid clicks cannot
+ * pile up work or overwrite newer results with older ones.
+ * Tasks are SwingWorkers, so chunks, progress and results reach the callbacks on
+ * the event dispatch thread. Cancelling does not interrupt running work, so a
+ * cancelled task stays listed until its work actually returns.
+ */
+public class UiTaskScheduler implements AutoCloseable {
+    private static final int POOL_SIZE = 4;
+    private static final int QUEUE_CAPACITY = 32;
+
+    private final Logging logging;
+    private final ThreadPoolExecutor executor;
+    // The current task of each key
+    private final Map<String, UiTask<?, ?>> tasks = new ConcurrentHashMap<>();
+    // Every task that is queued or whose work is still running, including cancelled ones
+    private final Set<UiTask<?, ?>> active = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextId = new AtomicLong();
+
+    public UiTaskScheduler(Logging logging) {
+        this.logging = logging;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                Thread thread = new Thread(r, "NeoBurp-ui-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Work done in the background. Long loops should check {@link Progress#isCancelled()}.
+     * @param <T> result handed to the success callback
+     * @param <V> chunks published while the work runs
+     */
+    @FunctionalInterface
+    public interface Work<T, V> {
+        T run(Progress<V> progress) throws Exception;
+    }
+
+    /**
+     * Lets running work report progress and partial results
+     */
+    public interface Progress<V> {
+        void publish(V chunk);
+
+        /**
+         * @param percent between 0 and 100
+         */
+        void reportProgress(int percent);
+
+        boolean isCancelled();
+    }
+
+    /**
+     * Runs work that only produces a final result
+     */
+    public <T> UiTask<T, Void> submit(String key, String description, Work<T, Void> work, Consumer<T> onSuccess) {
+        return submit(key, description, work, null, onSuccess, null);
+    }
+
+    /**
+     * Runs work, superseding any queued or running task with the same key
+     * @param onChunks receives published chunks, may be null
+     * @param onSuccess receives the result, may be null
+     * @param onError receives the failure, may be null to only log it
+     */
+    public <T, V> UiTask<T, V> submit(String key, String description, Work<T, V> work,
+                                      Consumer<List<V>> onChunks, Consumer<T> onSuccess,
+                                      Consumer<Exception> onError) {
+        UiTask<T, V> task = new UiTask<>(nextId.incrementAndGet(), key, description, work, onChunks, onSuccess, onError);
+        active.add(task);
+        UiTask<?, ?> previous = tasks.put(key, task);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            tasks.remove(key, task);
+            // Marks the task done, so callers waiting for it can submit again
+            task.cancel(false);
+            logging.logToError("Too many background tasks, dropped: " + description);
+            if (onError != null) {
+                onError.accept(e);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Cancels the task with the given key, if any
+     */
+    public void cancel(String key) {
+        UiTask<?, ?> task = tasks.get(key);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Snapshot of the queued and running tasks, oldest first. Includes cancelled
+     * tasks whose work has not returned yet.
+     */
+    public List<UiTask<?, ?>> getTasks() {
+        List<UiTask<?, ?>> snapshot = new ArrayList<>(active);
+        snapshot.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        return snapshot;
+    }
+
+    /**
+     * Opens a window listing the background tasks, refreshed every second
+     */
+    public void showTasksDialog(Component parent) {
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(parent), "Background Tasks", Dialog.ModalityType.MODELESS);
+        dialog.setLayout(new BorderLayout(5, 5));
+
+        javax.swing.table.DefaultTableModel model = new javax.swing.table.DefaultTableModel(
+            new String[]{"Key", "State", "Progress", "Elapsed (s)", "Task"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(4).setPreferredWidth(300);
+
+        // The listed tasks, so a selected row cancels that task and not a newer one of the same key
+        List<UiTask<?, ?>> shown = new ArrayList<>();
+        Runnable refresh = () -> {
+            model.setRowCount(0);
+            shown.clear();
+            for (UiTask<?, ?> task : getTasks()) {
+                shown.add(task);
+                model.addRow(new Object[]{
+                    task.getKey(),
+                    task.isCancelled() ? "Cancelling" : task.isStarted() ? "Running" : "Queued",
+                    task.getProgress() + "%",
+                    task.getElapsed().getSeconds(),
+                    task.getDescription()
+                });
+            }
+        };
+        refresh.run();
+        Timer refreshTimer = new Timer(1000, e -> refresh.run());
+        refreshTimer.start();
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton cancelButton = new JButton("Cancel Selected");
+        cancelButton.addActionListener(e -> {
+            int row = table.getSelectedRow();
+            if (row < 0 || row >= shown.size()) return;
+            shown.get(row).cancel(false);
+            refresh.run();
+        });
+        buttons.add(cancelButton);
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dialog.dispose());
+        buttons.add(closeButton);
+
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+
+        dialog.add(new JScrollPane(table), BorderLayout.CENTER);
+        dialog.add(buttons, BorderLayout.SOUTH);
+        dialog.setSize(700, 300);
+        dialog.setLocationRelativeTo(parent);
+        dialog.setVisible(true);
+    }
+
+    /**
+     * Cancels all tasks and stops the pool, e.g. when the extension is unloaded
+     */
+    @Override
+    public void close() {
+        for (UiTask<?, ?> task : active) {
+            task.cancel(false);
+        }
+        tasks.clear();
+        active.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * One submitted task. Callbacks run on the event dispatch thread and are
+     * skipped once the task was cancelled or superseded.
+     */
+    public final class UiTask<T, V> extends SwingWorker<T, V> implements Progress<V> {
+        private final long id;
+        private final String key;
+        private final String description;
+        private final Work<T, V> work;
+        private final Consumer<List<V>> onChunks;
+        private final Consumer<T> onSuccess;
+        private final Consumer<Exception> onError;
+        private final Instant submittedAt = Instant.now();
+        // Set once by whichever comes first: the work starting, or a cancel while queued
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile boolean started = false;
+
+        private UiTask(long id, String key, String description, Work<T, V> work,
+                       Consumer<List<V>> onChunks, Consumer<T> onSuccess, Consumer<Exception> onError) {
+            this.id = id;
+            this.key = key;
+            this.description = description;
+            this.work = work;
+            this.onChunks = onChunks;
+            this.onSuccess = onSuccess;
+            this.onError = onError;
+        }
+
+        @Override
+        protected T doInBackground() throws Exception {
+            if (!claimed.compareAndSet(false, true)) return null;
+            started = true;
+            try {
+                return work.run(this);
+            } finally {
+                active.remove(this);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void publish(V chunk) {
+            super.publish(chunk);
+        }
+
+        @Override
+        protected void process(List<V> chunks) {
+            if (!isCancelled() && onChunks != null) {
+                onChunks.accept(chunks);
+            }
+        }
+
+        @Override
+        public void reportProgress(int percent) {
+            setProgress(Math.max(0, Math.min(100, percent)));
+        }
+
+        @Override
+        protected void done() {
+            tasks.remove(key, this);
+            if (isCancelled()) {
+                // Cancelled while queued, the work never runs. Running work removes itself when it returns.
+                if (claimed.compareAndSet(false, true)) {
+                    active.remove(this);
+                }
+                return;
+            }
+
+            try {
+                T result = get();
+                if (onSuccess != null) {
+                    onSuccess.accept(result);
+                }
+            } catch (CancellationException | InterruptedException e) {
+                // Superseded or shut down, nothing to deliver
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                logging.logToError(description + " failed: " + cause.getMessage());
+                if (onError != null) {
+                    onError.accept(cause);
+                }
+            }
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        public Duration getElapsed() {
+            return Duration.between(submittedAt, Instant.now());
+        }
+    }
+}